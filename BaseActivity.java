@@ -2,10 +2,26 @@
 
 import android.os.Bundle;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.widget.NestedScrollView;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class BaseActivity extends AppCompatActivity {
 
+    // Escuchas de Firestore de esta pantalla, por clave (ver EscuchasFirestore)
+    private final Map<String, EscuchasFirestore.Suscripcion> escuchas = new LinkedHashMap<>();
+    private boolean visible; // entre onStart y onStop
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -20,6 +36,10 @@ public class BaseActivity extends AppCompatActivity {
         getWindow().getDecorView().setSystemUiVisibility(
                 View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN | View.SYSTEM_UI_FLAG_LAYOUT_STABLE
         );
+
+        // 🔹 7) ¿Las listas ya pueden leer catalogo_resumen? (ver ResumenCatalogo)
+        // Una sola consulta hasta verlo listo; después sale de SharedPreferences
+        ResumenCatalogo.comprobar(this, FirebaseFirestore.getInstance());
     }
 
     @Override
@@ -53,4 +73,108 @@ public class BaseActivity extends AppCompatActivity {
             }
         }
     }
+
+    // ==========================================================
+    // 🔹 Escuchas en tiempo real atadas al ciclo de vida
+    // En vez de addSnapshotListener(): se activa en onStart, se pausa en
+    // onStop y se quita en onDestroy. Volver a escuchar con la misma clave
+    // reemplaza la escucha anterior. La escucha corre en Hilos.FONDO.
+    protected void escuchar(String clave, Query query, EscuchasFirestore.Escucha escucha) {
+        dejarDeEscuchar(clave);
+
+        EscuchasFirestore.Suscripcion s = EscuchasFirestore.crear(this, clave, query, escucha);
+        escuchas.put(clave, s);
+        if (visible) EscuchasFirestore.activar(s);
+    }
+
+    protected void dejarDeEscuchar(String clave) {
+        EscuchasFirestore.Suscripcion anterior = escuchas.remove(clave);
+        if (anterior != null) EscuchasFirestore.pausar(anterior);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        visible = true;
+        for (EscuchasFirestore.Suscripcion s : escuchas.values()) EscuchasFirestore.activar(s);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        visible = false;
+        for (EscuchasFirestore.Suscripcion s : escuchas.values()) EscuchasFirestore.pausar(s);
+    }
+
+    @Override
+    protected void onDestroy() {
+        for (EscuchasFirestore.Suscripcion s : escuchas.values()) EscuchasFirestore.pausar(s);
+        escuchas.clear();
+        super.onDestroy();
+    }
+
+    // ==========================================================
+    // 🔹 Convierte un contenedor de cards (LinearLayout dentro de un ScrollView)
+    // en un RecyclerView que recicla las vistas.
+    //
+    // Un RecyclerView dentro de un ScrollView infla TODAS sus filas, así que
+    // el ScrollView se reemplaza: lo que estaba arriba de la lista queda fijo
+    // y la lista ocupa el resto de la pantalla.
+    protected RecyclerView convertirEnListaReciclable(ViewGroup contenedor) {
+
+        RecyclerView recycler = new RecyclerView(this);
+        recycler.setLayoutManager(new LinearLayoutManager(this));
+        recycler.setPadding(contenedor.getPaddingLeft(), contenedor.getPaddingTop(),
+                contenedor.getPaddingRight(), contenedor.getPaddingBottom());
+        recycler.setClipToPadding(false);
+
+        // Busca el ScrollView que envuelve al contenedor
+        View scroll = contenedor;
+        while (scroll.getParent() instanceof View
+                && !(scroll instanceof ScrollView || scroll instanceof NestedScrollView)) {
+            scroll = (View) scroll.getParent();
+        }
+
+        ViewGroup contenido = (scroll instanceof ViewGroup && ((ViewGroup) scroll).getChildCount() > 0)
+                ? (ViewGroup) ((ViewGroup) scroll).getChildAt(0) : null;
+
+        if (scroll == contenedor || contenido == null
+                || (contenido != contenedor && contenedor.getParent() != contenido)) {
+            // Estructura desconocida → se reemplaza solo el contenedor
+            reemplazarVista(contenedor, recycler, contenedor.getLayoutParams());
+            recycler.setNestedScrollingEnabled(false);
+            return recycler;
+        }
+
+        if (contenido == contenedor) {
+            // El ScrollView solo tenía la lista
+            reemplazarVista(scroll, recycler, scroll.getLayoutParams());
+            return recycler;
+        }
+
+        // El ScrollView tenía otras vistas (títulos, contadores) además de la lista
+        LinearLayout columna = new LinearLayout(this);
+        columna.setOrientation(LinearLayout.VERTICAL);
+        reemplazarVista(scroll, columna, scroll.getLayoutParams());
+
+        while (contenido.getChildCount() > 0) {
+            View hijo = contenido.getChildAt(0);
+            contenido.removeViewAt(0);
+
+            if (hijo == contenedor) {
+                columna.addView(recycler, new LinearLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, 0, 1f));
+            } else {
+                columna.addView(hijo);
+            }
+        }
+        return recycler;
+    }
+
+    private void reemplazarVista(View vieja, View nueva, ViewGroup.LayoutParams params) {
+        ViewGroup padre = (ViewGroup) vieja.getParent();
+        int indice = padre.indexOfChild(vieja);
+        padre.removeViewAt(indice);
+        padre.addView(nueva, indice, params);
+    }
 }
@@ -0,0 +1,129 @@
+package com.proveenet.proveenet;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * BUFFER DE "AGREGAR AL CARRITO"
+ * ==============================================================
+ * Cada toque en "Agregar" se guarda en memoria y, tras una pausa corta,
+ * TODOS los productos agregados se escriben en un solo WriteBatch.
+ *
+ * Cada ítem se escribe con set(..., merge) + FieldValue.increment(n):
+ *   - no hace falta leer el ítem antes (0 lecturas)
+ *   - si no existe, se crea con cantidad = n
+ *   - si existe, el servidor suma n → no se pierden toques aunque
+ *     el comprador use dos dispositivos a la vez
+ *
+ * 📌 Si el batch falla, las unidades NO se pierden: se vuelven a sumar a
+ * lo pendiente (junto con lo que se haya tocado mientras tanto) y se
+ * reintenta hasta MAX_REINTENTOS veces. El error se avisa siempre por
+ * AlFallar, también cuando el envío lo disparó el temporizador.
+ */
+public class CarritoBuffer {
+
+    private static final long ESPERA_MS = 300;
+    private static final long REINTENTO_MS = 5000;
+    private static final int MAX_REINTENTOS = 3;
+
+    public interface AlFallar {
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore db;
+    private final String userId;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // productoId → datos del ítem + unidades agregadas aún sin escribir
+    private final Map<String, Map<String, Object>> pendientes = new LinkedHashMap<>();
+    private final Map<String, Long> unidades = new HashMap<>();
+
+    private final AlFallar alFallar;
+    private int reintentos;
+
+    private final Runnable envio = this::enviar;
+
+    public CarritoBuffer(FirebaseFirestore db, String userId, AlFallar alFallar) {
+        this.db = db;
+        this.userId = userId;
+        this.alFallar = alFallar;
+    }
+
+    // 🔹 Registra +1 unidad del producto y programa el envío
+    public void agregar(String productoId, String nombre, String proveedor, String proveedorId, double precio) {
+
+        Map<String, Object> item = new HashMap<>();
+        item.put("nombre", nombre);
+        item.put("proveedor", proveedor);
+        item.put("proveedorId", proveedorId);
+        item.put("precio", precio);
+        item.put("productoId", productoId);
+        pendientes.put(productoId, item);
+
+        Long actual = unidades.get(productoId);
+        unidades.put(productoId, (actual != null ? actual : 0L) + 1);
+
+        handler.removeCallbacks(envio);
+        handler.postDelayed(envio, ESPERA_MS);
+    }
+
+    // 🔹 Escribe todo lo pendiente en UN batch (también se llama al salir de la pantalla)
+    public Task<Void> enviar() {
+        handler.removeCallbacks(envio);
+        if (pendientes.isEmpty()) return Tasks.forResult(null);
+
+        CollectionReference items = db.collection("carritos")
+                .document(userId)
+                .collection("items");
+
+        // Lo que va en ESTE batch; lo que se toque mientras viaja queda para el próximo
+        Map<String, Map<String, Object>> enviados = new LinkedHashMap<>(pendientes);
+        Map<String, Long> enviadas = new HashMap<>(unidades);
+        pendientes.clear();
+        unidades.clear();
+
+        WriteBatch batch = db.batch();
+
+        for (Map.Entry<String, Map<String, Object>> e : enviados.entrySet()) {
+            Map<String, Object> item = new HashMap<>(e.getValue());
+            item.put("cantidad", FieldValue.increment(enviadas.get(e.getKey())));
+            batch.set(items.document(e.getKey()), item, SetOptions.merge());
+        }
+
+        // Los listeners de Task corren en el hilo principal, igual que agregar()
+        return batch.commit()
+                .addOnSuccessListener(v -> reintentos = 0)
+                .addOnFailureListener(e -> {
+                    devolver(enviados, enviadas);
+                    if (reintentos < MAX_REINTENTOS) {
+                        reintentos++;
+                        handler.removeCallbacks(envio);
+                        handler.postDelayed(envio, REINTENTO_MS);
+                    }
+                    if (alFallar != null) alFallar.onError(e);
+                });
+    }
+
+    // 🔹 Un batch fallido vuelve a lo pendiente (se suma a lo agregado mientras tanto)
+    private void devolver(Map<String, Map<String, Object>> enviados, Map<String, Long> enviadas) {
+        for (Map.Entry<String, Map<String, Object>> e : enviados.entrySet()) {
+            String id = e.getKey();
+            if (!pendientes.containsKey(id)) pendientes.put(id, e.getValue());
+            Long actual = unidades.get(id);
+            unidades.put(id, (actual != null ? actual : 0L) + enviadas.get(id));
+        }
+    }
+}
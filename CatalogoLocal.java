@@ -0,0 +1,415 @@
+package com.proveenet.proveenet;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * CATÁLOGO LOCAL (copia del catálogo en SQLite)
+ * ==============================================================
+ * Antes cada pantalla volvía a descargar los productos al abrirse.
+ * Ahora hay una copia en el dispositivo que se pone al día con una
+ * "marca de agua":
+ *
+ *   sincronizar() → productos con updatedAt > marca (solo lo que cambió)
+ *                 → se guardan en SQLite → marca = updatedAt del último
+ *
+ * Reglas para quien escribe en "productos":
+ *   - TODA escritura agrega ACTUALIZADO = serverTimestamp() (ver sello()).
+ *   - Borrar = lápida: estado "eliminado" + ELIMINADO = true (ver lapida()).
+ *     Un delete() real no aparece en la consulta por updatedAt y la copia
+ *     local se quedaría con el producto para siempre.
+ *
+ * Se copia catalogo_resumen (ver ResumenCatalogo), no productos: solo los
+ * campos de las cards. La descripción queda recortada, y el buscador
+ * también busca sobre ese texto recortado. Mientras el resumen se rellena
+ * se copia "productos" (ResumenCatalogo.coleccion elige).
+ *
+ * MiCatalogo (un solo proveedor) no descarga el catálogo de todos: usa
+ * sincronizarProveedor(), con su propia marca por proveedor.
+ *
+ * La primera vez (sin marca) se descarga todo, de a páginas por documentId,
+ * salvo que haya un paquete del catálogo (ver PaqueteCatalogo y sembrar()).
+ * Se usa solo desde Hilos.FONDO (SQLite y la marca no se sincronizan).
+ */
+public final class CatalogoLocal {
+
+    public static final String ACTUALIZADO = "updatedAt";
+    public static final String ELIMINADO = "eliminado";
+
+    private static final int TAMANO_PAGINA = 300;
+
+    // La consulta repite los últimos minutos: una escritura con un timestamp
+    // apenas menor a la marca que se hizo visible tarde no se pierde (guardar es idempotente)
+    private static final long SOLAPE_MS = 2 * 60 * 1000;
+
+    private static final String PREFS = "catalogo_local";
+    private static final String MARCA_SEGUNDOS = "marca.segundos";
+    private static final String MARCA_NANOS = "marca.nanos";
+    private static final String MARCA_VERSION = "marca.version"; // versión de la tabla que cubre la marca
+    private static final String MARCA_PROVEEDOR = "marca.proveedor.";
+
+    // Para escuchar "todo lo que tenga updatedAt" cuando todavía no hay marca
+    public static final Timestamp DESDE_SIEMPRE = new Timestamp(0, 0);
+
+    private static CatalogoLocal instancia;
+
+    public static synchronized CatalogoLocal get(Context context) {
+        if (instancia == null) instancia = new CatalogoLocal(context.getApplicationContext());
+        return instancia;
+    }
+
+    // 🔹 Lo que cambió en una sincronización (para actualizar índices / cards)
+    public static final class Delta {
+        public final List<Producto> cambiados = new ArrayList<>();
+        public final List<String> eliminados = new ArrayList<>();
+
+        public boolean vacio() {
+            return cambiados.isEmpty() && eliminados.isEmpty();
+        }
+    }
+
+    private final Base base;
+    private final SharedPreferences prefs;
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+    private CatalogoLocal(Context context) {
+        base = new Base(context);
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    // ==============================================================
+    // 🔹 Campos para quien escribe productos
+    // ==============================================================
+    public static Object sello() {
+        return FieldValue.serverTimestamp();
+    }
+
+    // Campos de un borrado lógico (para batch.update)
+    public static Map<String, Object> lapida() {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("estado", ELIMINADO);
+        datos.put(ELIMINADO, true);
+        datos.put(ACTUALIZADO, sello());
+        return datos;
+    }
+
+    public static boolean esLapida(DocumentSnapshot doc) {
+        return Boolean.TRUE.equals(doc.getBoolean(ELIMINADO));
+    }
+
+    // ==============================================================
+    // 🔹 Lecturas (hilo de fondo)
+    // ==============================================================
+    public boolean sincronizadoAlgunaVez() {
+        return marca() != null;
+    }
+
+    // null = nunca se sincronizó (o la tabla se recreó al cambiar de versión)
+    public Timestamp marca() {
+        if (!prefs.contains(MARCA_SEGUNDOS) || prefs.getInt(MARCA_VERSION, 0) != Base.VERSION) return null;
+        return new Timestamp(prefs.getLong(MARCA_SEGUNDOS, 0), prefs.getInt(MARCA_NANOS, 0));
+    }
+
+    // Desde dónde pedir cambios: la marca menos SOLAPE_MS (null = nunca se sincronizó)
+    public Timestamp consultarDesde() {
+        return menosSolape(marca());
+    }
+
+    // Lo mismo para UN proveedor: sirve la marca global o la suya, la más nueva
+    public Timestamp consultarDesdeProveedor(String proveedorId) {
+        return menosSolape(mayor(marca(), marcaProveedor(proveedorId)));
+    }
+
+    private static Timestamp menosSolape(Timestamp marca) {
+        if (marca == null) return null;
+        return new Timestamp(new Date(marca.toDate().getTime() - SOLAPE_MS));
+    }
+
+    private Timestamp marcaProveedor(String proveedorId) {
+        String clave = MARCA_PROVEEDOR + proveedorId;
+        if (!prefs.contains(clave + ".segundos") || prefs.getInt(clave + ".version", 0) != Base.VERSION) return null;
+        return new Timestamp(prefs.getLong(clave + ".segundos", 0), prefs.getInt(clave + ".nanos", 0));
+    }
+
+    // El listener de MiCatalogo la adelanta con lo que va recibiendo
+    public void avanzarMarcaProveedor(String proveedorId, Timestamp vista) {
+        Timestamp marca = mayor(marcaProveedor(proveedorId), vista);
+        if (marca == null) return;
+        String clave = MARCA_PROVEEDOR + proveedorId;
+        prefs.edit()
+                .putLong(clave + ".segundos", marca.getSeconds())
+                .putInt(clave + ".nanos", marca.getNanoseconds())
+                .putInt(clave + ".version", Base.VERSION)
+                .apply();
+    }
+
+    public List<Producto> activos() {
+        return leer("estado = ?", new String[]{"activo"});
+    }
+
+    public List<Producto> delProveedor(String proveedorId) {
+        return leer("proveedorId = ?", new String[]{proveedorId});
+    }
+
+    public long contarActivos() {
+        Cursor c = base.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM productos WHERE estado = 'activo'", null);
+        try {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    private List<Producto> leer(String where, String[] args) {
+        List<Producto> productos = new ArrayList<>();
+        Cursor c = base.getReadableDatabase().query("productos", null, where, args, null, null, "id");
+        try {
+            while (c.moveToNext()) {
+                productos.add(new Producto(
+                        c.getString(c.getColumnIndexOrThrow("id")),
+                        c.getString(c.getColumnIndexOrThrow("codigo")),
+                        c.getString(c.getColumnIndexOrThrow("nombre")),
+                        c.getString(c.getColumnIndexOrThrow("categoria")),
+                        c.getString(c.getColumnIndexOrThrow("descripcion")),
+                        c.getString(c.getColumnIndexOrThrow("proveedorId")),
+                        c.getString(c.getColumnIndexOrThrow("proveedorNombre")),
+                        c.getString(c.getColumnIndexOrThrow("estado")),
+                        c.getDouble(c.getColumnIndexOrThrow("precio")),
+                        c.getLong(c.getColumnIndexOrThrow("stock")),
+                        c.getLong(c.getColumnIndexOrThrow("reservado"))));
+            }
+        } finally {
+            c.close();
+        }
+        return productos;
+    }
+
+    // ==============================================================
+    // 🔹 Escrituras locales (hilo de fondo)
+    // ==============================================================
+    // Aplica documentos recibidos (de la sincronización o de un listener) → lo que cambió
+    public Delta aplicar(List<DocumentSnapshot> documentos) {
+        Delta delta = new Delta();
+        SQLiteDatabase sql = base.getWritableDatabase();
+
+        sql.beginTransaction();
+        try {
+            for (DocumentSnapshot doc : documentos) {
+                if (!doc.exists() || esLapida(doc)) {
+                    sql.delete("productos", "id = ?", new String[]{doc.getId()});
+                    delta.eliminados.add(doc.getId());
+                } else {
+                    Producto p = Decodificador.producto(doc);
+                    sql.insertWithOnConflict("productos", null, valores(p), SQLiteDatabase.CONFLICT_REPLACE);
+                    delta.cambiados.add(p);
+                }
+            }
+            sql.setTransactionSuccessful();
+        } finally {
+            sql.endTransaction();
+        }
+        return delta;
+    }
+
+    // 🔹 Copia inicial desde el paquete del catálogo (solo sin marca)
+    // La marca queda en el updatedAt más alto del paquete: sincronizar()
+    // pide solo lo que cambió después de armarlo.
+    public Delta sembrar(List<DocumentSnapshot> documentos) {
+        Delta delta = aplicar(documentos);
+
+        Timestamp alta = null;
+        for (DocumentSnapshot doc : documentos) alta = mayor(alta, doc.getTimestamp(ACTUALIZADO));
+        guardarMarca(alta); // sin updatedAt en ningún documento → sigue sin marca (descarga completa)
+        return delta;
+    }
+
+    // Producto que desapareció de una consulta en vivo (delete() real, sin lápida)
+    public void quitar(String productoId) {
+        base.getWritableDatabase().delete("productos", "id = ?", new String[]{productoId});
+    }
+
+    private static ContentValues valores(Producto p) {
+        ContentValues v = new ContentValues();
+        v.put("id", p.id);
+        v.put("codigo", p.codigo);
+        v.put("nombre", p.nombre);
+        v.put("categoria", p.categoria);
+        v.put("descripcion", p.descripcion);
+        v.put("proveedorId", p.proveedorId);
+        v.put("proveedorNombre", p.proveedorNombre);
+        v.put("estado", p.estado);
+        v.put("precio", p.precio);
+        v.put("stock", p.stock);
+        v.put("reservado", p.reservado);
+        return v;
+    }
+
+    // ==============================================================
+    // 🔹 Sincronizar (solo lo que cambió desde la marca)
+    // ==============================================================
+    /*
+     * Con marca:  updatedAt > marca - SOLAPE, ordenado por updatedAt.
+     *             La marca se guarda después de CADA página: si se corta,
+     *             la siguiente vez sigue desde ahí.
+     * Sin marca:  todo el catálogo por documentId (incluye productos viejos
+     *             sin updatedAt). Al terminar, marca = el updatedAt más alto
+     *             visto. Nunca la hora del dispositivo: un reloj adelantado
+     *             dejaría afuera cambios del servidor para siempre. Si ningún
+     *             documento tiene updatedAt queda sin marca (la próxima vez
+     *             se descarga completo otra vez).
+     *
+     * Devuelve el Delta acumulado (para actualizar lo que hay en pantalla).
+     */
+    public Task<Delta> sincronizar() {
+        Timestamp desde = consultarDesde();
+        Delta total = new Delta();
+
+        if (desde == null) {
+            return paginaCompleta(null, total, null);
+        }
+        return paginaDelta(desde, null, total);
+    }
+
+    // ==============================================================
+    // 🔹 Solo los productos de UN proveedor (MiCatalogo, sin copia local)
+    // ==============================================================
+    /*
+     * proveedorId = X ordenado por documentId, de a páginas: lo mismo que
+     * leía la pantalla antes, sin bajar el catálogo de los demás.
+     * Al terminar, marca del proveedor = el updatedAt más alto visto.
+     */
+    public Task<Delta> sincronizarProveedor(String proveedorId) {
+        return paginaProveedor(proveedorId, null, new Delta(), null);
+    }
+
+    private Task<Delta> paginaProveedor(String proveedorId, DocumentSnapshot cursor, Delta total, Timestamp masAlta) {
+        Query query = ResumenCatalogo.coleccion(db)
+                .whereEqualTo("proveedorId", proveedorId)
+                .orderBy(FieldPath.documentId());
+        if (cursor != null) query = query.startAfter(cursor);
+
+        return query.limit(TAMANO_PAGINA).get().continueWithTask(Hilos.FONDO, t -> {
+            List<DocumentSnapshot> pagina = t.getResult().getDocuments();
+            acumular(total, aplicar(pagina));
+
+            Timestamp alta = masAlta;
+            for (DocumentSnapshot doc : pagina) alta = mayor(alta, doc.getTimestamp(ACTUALIZADO));
+
+            if (pagina.size() < TAMANO_PAGINA) {
+                avanzarMarcaProveedor(proveedorId, alta);
+                return Tasks.forResult(total);
+            }
+            return paginaProveedor(proveedorId, pagina.get(pagina.size() - 1), total, alta);
+        });
+    }
+
+    private Task<Delta> paginaDelta(Timestamp desde, DocumentSnapshot cursor, Delta total) {
+        Query query = ResumenCatalogo.coleccion(db)
+                .whereGreaterThan(ACTUALIZADO, desde)
+                .orderBy(ACTUALIZADO)
+                .orderBy(FieldPath.documentId());
+        if (cursor != null) query = query.startAfter(cursor);
+
+        return query.limit(TAMANO_PAGINA).get().continueWithTask(Hilos.FONDO, t -> {
+            List<DocumentSnapshot> pagina = t.getResult().getDocuments();
+            acumular(total, aplicar(pagina));
+
+            if (!pagina.isEmpty()) {
+                guardarMarca(mayor(marca(), pagina.get(pagina.size() - 1).getTimestamp(ACTUALIZADO)));
+            }
+            if (pagina.size() < TAMANO_PAGINA) return Tasks.forResult(total);
+            return paginaDelta(desde, pagina.get(pagina.size() - 1), total);
+        });
+    }
+
+    private Task<Delta> paginaCompleta(DocumentSnapshot cursor, Delta total, Timestamp masAlta) {
+        Query query = ResumenCatalogo.coleccion(db).orderBy(FieldPath.documentId());
+        if (cursor != null) query = query.startAfter(cursor);
+
+        return query.limit(TAMANO_PAGINA).get().continueWithTask(Hilos.FONDO, t -> {
+            List<DocumentSnapshot> pagina = t.getResult().getDocuments();
+            acumular(total, aplicar(pagina));
+
+            Timestamp alta = masAlta;
+            for (DocumentSnapshot doc : pagina) alta = mayor(alta, doc.getTimestamp(ACTUALIZADO));
+
+            if (pagina.size() < TAMANO_PAGINA) {
+                guardarMarca(alta); // solo tiempos del servidor
+                return Tasks.forResult(total);
+            }
+            return paginaCompleta(pagina.get(pagina.size() - 1), total, alta);
+        });
+    }
+
+    private static void acumular(Delta total, Delta pagina) {
+        total.cambiados.addAll(pagina.cambiados);
+        total.eliminados.addAll(pagina.eliminados);
+    }
+
+    private static Timestamp mayor(Timestamp a, Timestamp b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private void guardarMarca(Timestamp marca) {
+        if (marca == null) return;
+        prefs.edit()
+                .putLong(MARCA_SEGUNDOS, marca.getSeconds())
+                .putInt(MARCA_NANOS, marca.getNanoseconds())
+                .putInt(MARCA_VERSION, Base.VERSION)
+                .apply();
+    }
+
+    // ==============================================================
+    // 🔹 Tabla SQLite
+    // ==============================================================
+    private static final class Base extends SQLiteOpenHelper {
+
+        // 2: la copia sale de catalogo_resumen (se vuelve a descargar una vez)
+        private static final int VERSION = 2;
+
+        Base(Context context) {
+            super(context, "catalogo_local.db", null, VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase sql) {
+            sql.execSQL("CREATE TABLE productos ("
+                    + "id TEXT PRIMARY KEY, codigo TEXT, nombre TEXT, categoria TEXT, descripcion TEXT, "
+                    + "proveedorId TEXT, proveedorNombre TEXT, estado TEXT, "
+                    + "precio REAL, stock INTEGER, reservado INTEGER)");
+            sql.execSQL("CREATE INDEX productos_estado ON productos (estado)");
+            sql.execSQL("CREATE INDEX productos_proveedor ON productos (proveedorId)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase sql, int anterior, int nueva) {
+            // Es solo una copia: se descarta y la próxima sincronización la rehace completa
+            // (la marca guardada es de otra versión → marca() devuelve null)
+            sql.execSQL("DROP TABLE IF EXISTS productos");
+            onCreate(sql);
+        }
+    }
+}
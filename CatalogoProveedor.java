@@ -0,0 +1,230 @@
+package com.proveenet.proveenet;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.auth.FirebaseAuth;          // ➜ Sesión del comprador (para el carrito)
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot; // ➜ Documentos de cada página
+import com.google.firebase.firestore.FieldPath;        // ➜ documentId() para ordenar
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;             // ➜ Consulta base del paginador
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ======================================================
+ * ACTIVITY: CatalogoProveedor (vista del comprador)
+ * ======================================================
+ * Catálogo de UN proveedor: se abre desde "Ver catálogo" en Proveedores.
+ *
+ * Consulta: catalogo_resumen con proveedorId = X y estado = "activo"
+ * (solo los campos de la card, ver ResumenCatalogo; "productos" mientras
+ * el resumen se rellena. Índice compuesto proveedorId + estado + __name__).
+ *
+ * Las páginas quedan en la caché LRU de PaginadorFirestore (una clave por
+ * proveedor, con vigencia): volver a abrir el mismo proveedor no descarga
+ * nada, y Proveedores precarga la primera página de las cards visibles.
+ *
+ * Usa el layout de Productos (lista + contador + barra inferior).
+ */
+public class CatalogoProveedor extends BaseActivity {
+
+    public static final String EXTRA_PROVEEDOR_ID = "proveedorId";
+    public static final String EXTRA_PROVEEDOR_NOMBRE = "proveedorNombre";
+
+    private static final int TAMANO_PAGINA = 20;
+    private static final int UMBRAL_PREFETCH = 5;
+
+    private FirebaseAuth auth;
+    private FirebaseFirestore db;
+    private TextView tvProductosCount;
+
+    private String proveedorId;
+    private PaginadorFirestore paginador;
+    private ProductoAdapter productoAdapter;
+    private final List<ProductoAdapter.Fila> filas = new ArrayList<>();
+
+    // Agregados al carrito pendientes de escribir (igual que en Productos)
+    private CarritoBuffer carritoBuffer;
+
+    // ======================================================
+    // Abrir / precargar (desde Proveedores)
+    // ======================================================
+    public static void abrir(Context context, String proveedorId, String nombre) {
+        Intent intent = new Intent(context, CatalogoProveedor.class);
+        intent.putExtra(EXTRA_PROVEEDOR_ID, proveedorId);
+        intent.putExtra(EXTRA_PROVEEDOR_NOMBRE, nombre);
+        context.startActivity(intent);
+    }
+
+    // La primera página queda lista en la caché antes de que el comprador toque la card
+    public static void precargar(FirebaseFirestore db, String proveedorId) {
+        PaginadorFirestore.precargar(claveCache(proveedorId), consulta(db, proveedorId), TAMANO_PAGINA);
+    }
+
+    private static String claveCache(String proveedorId) {
+        return "catalogo:" + proveedorId;
+    }
+
+    private static Query consulta(FirebaseFirestore db, String proveedorId) {
+        return ResumenCatalogo.coleccion(db)
+                .whereEqualTo("proveedorId", proveedorId)
+                .whereEqualTo("estado", "activo")
+                .orderBy(FieldPath.documentId());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_productos);
+
+        auth = FirebaseAuth.getInstance();
+        db = FirebaseFirestore.getInstance();
+
+        proveedorId = getIntent().getStringExtra(EXTRA_PROVEEDOR_ID);
+        String nombre = getIntent().getStringExtra(EXTRA_PROVEEDOR_NOMBRE);
+
+        if (proveedorId == null) {
+            Toast.makeText(this, "⚠️ Proveedor no encontrado", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        // ======================================================
+        // Enlazar vistas (el encabezado muestra al proveedor)
+        // ======================================================
+        LinearLayout llListaProductos = findViewById(R.id.llListaProductos);
+        tvProductosCount = findViewById(R.id.tvProductosCount);
+        TextView tvUserName = findViewById(R.id.tvUserName);
+        BottomNavigationView bottomNavigationView = findViewById(R.id.bottomNavigation);
+
+        tvUserName.setText(nombre != null ? nombre : "Proveedor");
+        bottomNavigationView.setSelectedItemId(R.id.nav_proveedores);
+        bottomNavigationView.setOnItemSelectedListener(item -> {
+            int id = item.getItemId();
+
+            if (id == R.id.nav_inicio) {
+                startActivity(new Intent(this, Panel_comprador.class));
+                finish();
+                return true;
+            }
+            if (id == R.id.nav_proveedores) {
+                finish(); // vuelve al directorio
+                return true;
+            }
+            if (id == R.id.nav_productos) {
+                startActivity(new Intent(this, Productos.class));
+                finish();
+                return true;
+            }
+            if (id == R.id.nav_carrito) {
+                startActivity(new Intent(this, MiCarrito.class));
+                finish();
+                return true;
+            }
+            return false;
+        });
+
+        RecyclerView recycler = convertirEnListaReciclable(llListaProductos);
+        productoAdapter = new ProductoAdapter(filas, this::agregarAlCarrito);
+        recycler.setAdapter(productoAdapter);
+
+        PaginadorFirestore.alAcercarseAlFinal(recycler, UMBRAL_PREFETCH, this::cargarSiguientePagina);
+
+        cargarCatalogo();
+    }
+
+    // ======================================================
+    // Catálogo del proveedor (desde la caché si está)
+    // ======================================================
+    private void cargarCatalogo() {
+
+        paginador = PaginadorFirestore.compartido(claveCache(proveedorId), consulta(db, proveedorId), TAMANO_PAGINA);
+
+        if (paginador.getDocumentos().isEmpty()) {
+            // Nada en caché (o la precarga viene en camino: cargarSiguiente la recibe igual)
+            tvProductosCount.setText("Cargando…");
+            cargarSiguientePagina();
+        } else {
+            // Páginas en caché: se preparan las filas en el fondo (copia de la lista del paginador)
+            agregarFilas(new ArrayList<>(paginador.getDocumentos()));
+        }
+    }
+
+    // Un solo callback por pantalla: onDestroy lo suelta del paginador compartido
+    private final PaginadorFirestore.Callback alRecibirPagina = new PaginadorFirestore.Callback() {
+        @Override
+        public void onPagina(List<DocumentSnapshot> pagina, int desde) {
+            agregarFilas(pagina);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Toast.makeText(CatalogoProveedor.this, "❌ Error al cargar el catálogo", Toast.LENGTH_LONG).show();
+        }
+    };
+
+    private void cargarSiguientePagina() {
+        paginador.cargarSiguiente(alRecibirPagina);
+    }
+
+    // 🔹 Decodificar en el fondo; el hilo principal solo inserta las filas
+    private void agregarFilas(List<DocumentSnapshot> documentos) {
+        Hilos.preparar(() -> ProductoAdapter.Fila.de(documentos), nuevas -> {
+            int inicio = filas.size();
+            filas.addAll(nuevas);
+            productoAdapter.notifyItemRangeInserted(inicio, nuevas.size());
+
+            // "+" = quedan páginas por pedir al bajar
+            tvProductosCount.setText(filas.size() + (paginador.hayMas() ? "+" : "") + " productos");
+        });
+    }
+
+    // ======================================================
+    // Agregar producto al carrito (mismo buffer que Productos)
+    // ======================================================
+    private void agregarAlCarrito(Producto producto) {
+
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) {
+            Toast.makeText(this, "⚠️ Debes iniciar sesión", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (carritoBuffer == null) {
+            carritoBuffer = new CarritoBuffer(db, user.getUid(), e ->
+                    Toast.makeText(this, "❌ Error al guardar el carrito", Toast.LENGTH_SHORT).show());
+        }
+
+        carritoBuffer.agregar(producto.id, producto.nombre, producto.proveedorNombre,
+                producto.proveedorId, producto.precio);
+        Toast.makeText(this, "✅ Agregado al carrito: " + producto.nombre, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // Escribe los productos agregados que aún estaban en el buffer
+        if (carritoBuffer != null) {
+            carritoBuffer.enviar(); // si falla, avisa el propio buffer (y reintenta)
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // El paginador sigue en la caché compartida: que no retenga esta pantalla
+        if (paginador != null) paginador.soltar(alRecibirPagina);
+    }
+}
@@ -1,5 +1,6 @@
 package com.proveenet.proveenet;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import android.content.Intent;
 import android.os.Bundle;
@@ -10,17 +11,17 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public class DashboardProveedor extends BaseActivity {
 
@@ -69,11 +70,16 @@ public class DashboardProveedor extends BaseActivity {
 
         // 🚀 Carga de datos desde Firebase para rellenar el dashboard
         cargarNombreProveedor();   // Muestra nombre/empresa del proveedor
-        cargarProductosActivos();  // Cuenta productos activos del proveedor
-        cargarStockBajo();         // Cuenta productos con stock bajo (<= 5)
-        cargarOrdenesRecibidas();  // Cuenta órdenes totales recibidas
-        cargarVentasMes();         // Suma total de ventas del mes actual
-        cargarUltimaOrden();       // 🆕 Muestra la última orden en la card
+        cargarResumen();           // Métricas + última orden desde resumenProveedores/{uid}
+        liberarReservasVencidas(); // Devuelve a "disponible" el stock de reservas vencidas
+
+        // 🛠 Solo en builds de desarrollo: mantener presionado el nombre abre la migración de tipos
+        if (BuildConfig.DEBUG) {
+            tvNombreEmpresa.setOnLongClickListener(v -> {
+                mostrarMenuMigracion();
+                return true;
+            });
+        }
 
         // 🔹 Navegación inferior: define qué pasa cuando se toca cada ícono
         bottomNavigationView.setOnItemSelectedListener(item -> {
@@ -101,7 +107,7 @@ public class DashboardProveedor extends BaseActivity {
 
         // 🚪 Botón cerrar sesión
         btnLogout.setOnClickListener(v -> {
-            auth.signOut(); // Cierra sesión en FirebaseAuth
+            SesionUsuario.cerrar(this); // Cierra sesión en FirebaseAuth y borra el perfil guardado
             Toast.makeText(this, "👋 Sesión cerrada correctamente", Toast.LENGTH_SHORT).show();
 
             // Limpia el historial de actividades y vuelve al MainActivity
@@ -124,166 +130,187 @@ public class DashboardProveedor extends BaseActivity {
             return;
         }
 
-        // Busca el documento del proveedor con el mismo UID del usuario
-        db.collection("proveedores").document(user.getUid())
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        // Obtiene campos del documento
-                        String empresa = doc.getString("empresa");
-                        String correo = doc.getString("correo");
-
-                        // Prioridad: empresa > correo del doc > correo de FirebaseAuth
-                        if (empresa != null && !empresa.isEmpty()) {
-                            tvNombreEmpresa.setText(empresa);
-                            tvWelcome.setText("Bienvenido, " + empresa);
-                        } else if (correo != null && !correo.isEmpty()) {
-                            tvNombreEmpresa.setText(correo);
-                            tvWelcome.setText("Bienvenido, " + correo);
-                        } else {
-                            tvNombreEmpresa.setText(user.getEmail());
-                            tvWelcome.setText("Bienvenido, " + user.getEmail());
-                        }
-                    } else {
-                        // Si no hay documento del proveedor, usa el correo del usuario
-                        tvNombreEmpresa.setText(user.getEmail());
-                        tvWelcome.setText("Bienvenido, " + user.getEmail());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    // En caso de error, igual muestra el correo del usuario
-                    tvNombreEmpresa.setText(user.getEmail());
-                    tvWelcome.setText("Bienvenido, " + user.getEmail());
-                    Toast.makeText(this, "❌ Error al cargar proveedor: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        // Perfil guardado al iniciar sesión (SesionUsuario) → sin lectura a Firestore
+        SesionUsuario.obtener(this, db, sesion -> {
+            // Prioridad: empresa > correo del perfil > correo de FirebaseAuth
+            String nombre = sesion != null
+                    ? SesionUsuario.primero(sesion.empresa, sesion.correo, user.getEmail())
+                    : user.getEmail();
+
+            tvNombreEmpresa.setText(nombre);
+            tvWelcome.setText("Bienvenido, " + nombre);
+        });
     }
 
     // ==========================================================
-    // 🔹 Cuenta cuántos productos activos tiene este proveedor
-    private void cargarProductosActivos() {
+    // 🔹 Barrido de reservas vencidas (ver ReservasStock)
+    // Las órdenes que el proveedor no confirmó a tiempo sueltan sus unidades.
+    // Corre en segundo plano; si falla se reintenta la próxima vez que se abre el dashboard.
+    private void liberarReservasVencidas() {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) return;
 
-        db.collection("productos")
-                .whereEqualTo("proveedorId", user.getUid()) // Filtro por proveedor
-                .whereEqualTo("estado", "activo")           // Solo productos activos
-                .get()
-                .addOnSuccessListener(snapshot ->
-                        // snapshot.size() = cantidad de documentos que cumplen el filtro
-                        tvProductosActivos.setText(String.valueOf(snapshot.size())))
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error al contar productos", Toast.LENGTH_SHORT).show());
+        ReservasStock.liberarVencidas(db, user.getUid())
+                .addOnSuccessListener(liberadas -> {
+                    if (liberadas > 0) {
+                        Toast.makeText(this,
+                                "⏱ " + liberadas + " reservas vencidas liberadas",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
     }
 
-    // 🔹 Cuenta productos con stock bajo (<= 5)
-    private void cargarStockBajo() {
-        FirebaseUser user = auth.getCurrentUser();
-        if (user == null) return;
-
-        db.collection("productos")
-                .whereEqualTo("proveedorId", user.getUid())
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    int bajos = 0;
-
-                    // Recorre todos los productos del proveedor
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                        Object stockObj = doc.get("stock"); // stock puede venir como Number o String
-
-                        if (stockObj != null) {
-                            try {
-                                int stock;
-                                if (stockObj instanceof Number) {
-                                    // Si Firestore lo guarda como número (Long/Double), lo convierte a int
-                                    stock = ((Number) stockObj).intValue();
-                                } else {
-                                    // Si vino como String, lo parsea
-                                    stock = Integer.parseInt(stockObj.toString());
-                                }
-
-                                // Si el stock es <= 5, se considera "stock bajo"
-                                if (stock <= 5) bajos++;
-                            } catch (Exception ignored) {
-                                // Si falla el parseo, simplemente ignora ese producto
+    // ==========================================================
+    // 🛠 Migración de tipos (precio/stock como número) — herramienta de desarrollo
+    // Ver MigracionTipos: se puede cortar y reanudar; al final muestra el reporte.
+    private void mostrarMenuMigracion() {
+        MigracionTipos migracion = new MigracionTipos(this, db);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Migración de tipos")
+                .setItems(new String[]{"Ejecutar / reanudar", "Reiniciar progreso", "Sembrar datos de prueba (emulador)",
+                                "Generar paquete del catálogo", "Rellenar catalogo_resumen"},
+                        (d, opcion) -> {
+                            if (opcion == 0) {
+                                ejecutarMigracion(migracion);
+                            } else if (opcion == 1) {
+                                migracion.reiniciar();
+                                Toast.makeText(this, "Progreso reiniciado", Toast.LENGTH_SHORT).show();
+                            } else if (opcion == 3) {
+                                generarPaqueteCatalogo();
+                            } else if (opcion == 4) {
+                                rellenarResumenCatalogo(migracion);
+                            } else {
+                                MigracionTipos.sembrarDatosDePrueba(db, 500)
+                                        .addOnSuccessListener(x -> Toast.makeText(this,
+                                                "Datos de prueba creados", Toast.LENGTH_SHORT).show())
+                                        .addOnFailureListener(e -> Toast.makeText(this,
+                                                "❌ " + e.getMessage(), Toast.LENGTH_LONG).show());
                             }
-                        }
-                    }
+                        })
+                .show();
+    }
+
+    // 🛠 Paquete del catálogo para la primera carga (ver PaqueteCatalogo)
+    private void generarPaqueteCatalogo() {
+        PaqueteCatalogo.construir(this, db, true)
+                .addOnSuccessListener(documentos -> Toast.makeText(this,
+                        "📦 Paquete listo: " + documentos + " documentos en "
+                                + PaqueteCatalogo.archivo(this).getPath(), Toast.LENGTH_LONG).show())
+                .addOnFailureListener(e -> Toast.makeText(this,
+                        "❌ " + e.getMessage(), Toast.LENGTH_LONG).show());
+    }
+
+    // 🛠 Relleno de catalogo_resumen (ver ResumenCatalogo): una sola vez, con una
+    // cuenta de administración. Hasta que termine, las listas leen "productos".
+    private void rellenarResumenCatalogo(MigracionTipos migracion) {
+        migracion.rellenarResumen(this)
+                .addOnSuccessListener(x -> Toast.makeText(this,
+                        "catalogo_resumen completo", Toast.LENGTH_SHORT).show())
+                .addOnFailureListener(e -> Toast.makeText(this,
+                        "❌ " + e.getMessage(), Toast.LENGTH_LONG).show());
+    }
 
-                    // Muestra cuántos productos tienen stock bajo
-                    tvStockBajo.setText(String.valueOf(bajos));
+    private void ejecutarMigracion(MigracionTipos migracion) {
+        AlertDialog progreso = new AlertDialog.Builder(this)
+                .setTitle("Migrando...")
+                .setMessage("Preparando")
+                .setCancelable(false)
+                .show();
+
+        migracion.ejecutar((paso, leidos) -> progreso.setMessage(paso + ": " + leidos + " documentos"))
+                .addOnSuccessListener(reporte -> {
+                    progreso.dismiss();
+                    new AlertDialog.Builder(this)
+                            .setTitle("Reporte de migración")
+                            .setMessage(reporte.resumen())
+                            .setPositiveButton("OK", null)
+                            .show();
                 })
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error al contar stock bajo: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                .addOnFailureListener(e -> {
+                    progreso.dismiss();
+                    Toast.makeText(this, "❌ Migración detenida (se puede reanudar): " + e.getMessage(),
+                            Toast.LENGTH_LONG).show();
+                });
     }
 
-    // 🔹 Cuenta cuántas órdenes totales tiene este proveedor
-    private void cargarOrdenesRecibidas() {
+    // ==========================================================
+    // 🔹 Carga TODAS las métricas desde el documento resumen
+    // resumenProveedores/{uid} se mantiene con incrementos cada vez que cambia
+    // un producto o una orden → una sola lectura en vez de recorrer colecciones
+    private void cargarResumen() {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) return;
 
-        db.collection("ordenes")
-                .whereEqualTo("proveedorId", user.getUid())
+        ResumenProveedor.ref(db, user.getUid())
                 .get()
-                .addOnSuccessListener(snapshot ->
-                        tvOrdenesRecibidas.setText(String.valueOf(snapshot.size())))
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists()) {
+                        mostrarResumen(doc);
+                    } else {
+                        // Proveedor antiguo sin resumen → se calcula una única vez
+                        ResumenProveedor.reconstruir(db, user.getUid())
+                                .addOnSuccessListener(this::mostrarResumen)
+                                .addOnFailureListener(e ->
+                                        Toast.makeText(this, "❌ Error al cargar resumen: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                    }
+                })
                 .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error al cargar órdenes", Toast.LENGTH_SHORT).show());
+                        Toast.makeText(this, "❌ Error al cargar resumen: " + e.getMessage(), Toast.LENGTH_SHORT).show());
     }
 
-    // ==========================================================
-    // 🔹 Calcula el total de ventas del mes actual
-    private void cargarVentasMes() {
-        FirebaseUser user = auth.getCurrentUser();
-        if (user == null) return;
+    // 🔹 Rellena las tarjetas de métricas y la card de última orden
+    private void mostrarResumen(DocumentSnapshot doc) {
 
-        // Formato año-mes, ejemplo: "2025-11"
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
-        String mesActual = sdf.format(Calendar.getInstance().getTime());
+        tvProductosActivos.setText(String.valueOf(Decodificador.numero(doc.get(ResumenProveedor.PRODUCTOS_ACTIVOS))));
+        tvStockBajo.setText(String.valueOf(Decodificador.numero(doc.get(ResumenProveedor.STOCK_BAJO))));
 
-        db.collection("ordenes")
-                .whereEqualTo("proveedorId", user.getUid())
-                .whereEqualTo("estado", "confirmada") // Solo órdenes confirmadas
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    double totalMes = 0.0;
-
-                    // Recorre todas las órdenes confirmadas del proveedor
-                    for (QueryDocumentSnapshot doc : snapshot) {
-                        Object fechaObj = doc.get("fechaCreacion"); // Puede ser String o Timestamp
-                        Object subtotalObj = doc.get("subtotal");   // Monto de la orden
-
-                        if (fechaObj != null && subtotalObj != null) {
-                            String fecha = fechaObj.toString(); // Se pasa a String para buscar "yyyy-MM"
-
-                            // Si el String de fecha contiene el mes actual, se considera parte del mes
-                            if (fecha.contains(mesActual)) {
-                                try {
-                                    // Suma el subtotal a totalMes
-                                    totalMes += Double.parseDouble(subtotalObj.toString());
-                                } catch (NumberFormatException ignored) {
-                                    // Si no se puede convertir a número, se ignora esa orden
-                                }
-                            }
-                        }
-                    }
+        long ordenes = Decodificador.numero(doc.get(ResumenProveedor.ORDENES_RECIBIDAS));
+        tvOrdenesRecibidas.setText(String.valueOf(ordenes));
 
-                    // Muestra el total de ventas del mes sin decimales
-                    tvVentasMes.setText("$" + String.format("%.0f", totalMes));
-                })
+        // Ventas del mes actual: rollup resumenProveedores/{uid}/meses/{yyyy-MM} (1 lectura)
+        cargarVentasDelMes();
+
+        // Puntero a la última orden
+        String idOrden = doc.getString(ResumenProveedor.ULTIMA_ORDEN + ".id");
+
+        if (idOrden == null) {
+            if (ordenes > 0) {
+                cargarUltimaOrden(); // el puntero se perdió (orden eliminada) → se busca de nuevo
+            } else {
+                llUltimaOrden.setVisibility(View.GONE);
+                tvNoOrdenes.setVisibility(View.VISIBLE);
+            }
+            return;
+        }
+
+        mostrarUltimaOrden(
+                idOrden,
+                doc.getString(ResumenProveedor.ULTIMA_ORDEN + ".estado"),
+                Decodificador.decimal(doc.get(ResumenProveedor.ULTIMA_ORDEN + ".subtotal")),
+                doc.get(ResumenProveedor.ULTIMA_ORDEN + ".fecha")
+        );
+    }
+
+    private void cargarVentasDelMes() {
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) return;
+
+        VentasMensuales.ventasDelMes(db, user.getUid(), ResumenProveedor.mesActual())
+                .addOnSuccessListener(total -> tvVentasMes.setText(Formatos.dinero(total)))
                 .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error al calcular ventas", Toast.LENGTH_SHORT).show());
+                        Toast.makeText(this, "❌ Error al cargar ventas: " + e.getMessage(), Toast.LENGTH_SHORT).show());
     }
 
-    // 🔹 Carga la última orden para mostrarla en la card
+    // 🔹 Busca la última orden cuando el resumen no tiene puntero y lo repara
     private void cargarUltimaOrden() {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) return;
 
         db.collection("ordenes")
                 .whereEqualTo("proveedorId", user.getUid())
-                // Ordena por ID de documento de forma descendente (el último creado suele quedar al final)
-                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
-                .limit(1) // Solo queremos 1 documento: la "última" orden
+                .orderBy("fechaCreacion", Query.Direction.DESCENDING)
+                .limit(1) // Solo queremos 1 documento: la última orden
                 .get()
                 .addOnSuccessListener(snapshot -> {
                     if (snapshot.isEmpty()) {
@@ -293,33 +320,20 @@ public class DashboardProveedor extends BaseActivity {
                         return;
                     }
 
-                    // Obtiene el único documento (la última orden)
                     DocumentSnapshot doc = snapshot.getDocuments().get(0);
-
-                    String idOrden = doc.getId();               // ID del documento
-                    String estado = doc.getString("estado");    // Estado de la orden
-                    double subtotal = doc.getDouble("subtotal") != null ? doc.getDouble("subtotal") : 0.0;
-
-                    // Muestra un ID corto de la orden (primeros 6 caracteres para que no sea tan largo)
-                    tvOrdenNumero.setText("Orden #" + idOrden.substring(0, 6));
-
-                    // Muestra el total de la orden
-                    tvOrdenTotal.setText("$" + String.format("%.0f", subtotal));
-
-                    // Capitaliza el estado (ej: "pendiente" -> "Pendiente")
-                    if (estado != null && !estado.isEmpty()) {
-                        tvOrdenEstado.setText(estado.substring(0,1).toUpperCase() + estado.substring(1));
-                    } else {
-                        tvOrdenEstado.setText("Pendiente");
-                    }
-
-                    // De momento, la fecha se muestra como "Reciente"
-                    // (cuando uses un Timestamp real, aquí lo formateas)
-                    tvOrdenFecha.setText("Reciente");
-
-                    // Muestra la card y oculta el texto de "no órdenes"
-                    llUltimaOrden.setVisibility(View.VISIBLE);
-                    tvNoOrdenes.setVisibility(View.GONE);
+                    String estado = doc.getString("estado");
+                    double subtotal = Decodificador.decimal(doc.get("subtotal"));
+
+                    // Se guarda el puntero para que la próxima apertura no necesite esta consulta
+                    Map<String, Object> puntero = new HashMap<>();
+                    puntero.put("id", doc.getId());
+                    puntero.put("estado", estado);
+                    puntero.put("subtotal", subtotal);
+                    puntero.put("fecha", doc.get("fechaCreacion"));
+                    ResumenProveedor.ref(db, user.getUid())
+                            .update(ResumenProveedor.ULTIMA_ORDEN, puntero);
+
+                    mostrarUltimaOrden(doc.getId(), estado, subtotal, doc.get("fechaCreacion"));
                 })
                 .addOnFailureListener(e -> {
                     // En caso de error, oculta la card de última orden
@@ -328,4 +342,33 @@ public class DashboardProveedor extends BaseActivity {
                 });
     }
 
+    // 🔹 Muestra la card de la última orden
+    private void mostrarUltimaOrden(String idOrden, String estado, double subtotal, Object fecha) {
+
+        // Muestra un ID corto de la orden (primeros 6 caracteres para que no sea tan largo)
+        tvOrdenNumero.setText("Orden #" + idOrden.substring(0, Math.min(6, idOrden.length())));
+
+        // Muestra el total de la orden
+        tvOrdenTotal.setText(Formatos.dinero(subtotal));
+
+        // Capitaliza el estado (ej: "pendiente" -> "Pendiente")
+        if (estado != null && !estado.isEmpty()) {
+            tvOrdenEstado.setText(estado.substring(0,1).toUpperCase() + estado.substring(1));
+        } else {
+            tvOrdenEstado.setText("Pendiente");
+        }
+
+        // Fecha corta si el puntero trae Timestamp
+        if (fecha instanceof Timestamp) {
+            tvOrdenFecha.setText(new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault())
+                    .format(((Timestamp) fecha).toDate()));
+        } else {
+            tvOrdenFecha.setText("Reciente");
+        }
+
+        // Muestra la card y oculta el texto de "no órdenes"
+        llUltimaOrden.setVisibility(View.VISIBLE);
+        tvNoOrdenes.setVisibility(View.GONE);
+    }
+
 }
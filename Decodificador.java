@@ -0,0 +1,158 @@
+package com.proveenet.proveenet;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * DECODIFICADOR (Firestore → modelos)
+ * ==============================================================
+ * ÚNICO lugar donde se interpretan los campos "sueltos" de Firestore.
+ * Los datos antiguos traen números como Long, Double o texto ("$12.000", " 5 "),
+ * así que todo pasa por numero() / decimal() UNA vez al llegar el snapshot.
+ *
+ * Después las pantallas trabajan con Producto, ItemCarrito y Orden
+ * (campos primitivos, inmutables) sin volver a parsear en cada bind.
+ */
+public final class Decodificador {
+
+    private Decodificador() {}
+
+    // ==============================================================
+    // 🔹 Normalización de valores
+    // ==============================================================
+
+    // Entero aunque venga como texto o decimal
+    public static long numero(Object o) {
+        if (o instanceof Number) return ((Number) o).longValue();
+        if (o == null) return 0L;
+        try { return Long.parseLong(o.toString().trim()); }
+        catch (Exception e) { return (long) decimal(o); }
+    }
+
+    // Decimal aunque venga como texto con símbolos ("$12.000" → 12000)
+    public static double decimal(Object o) {
+        if (o instanceof Number) return ((Number) o).doubleValue();
+        if (o == null) return 0.0;
+
+        Double numero = leerNumero(o.toString());
+        return numero != null ? numero : 0.0;
+    }
+
+    /*
+     * Texto → número, o null si no tiene dígitos (MigracionTipos usa este
+     * mismo parser: la app y la migración leen igual el mismo texto).
+     *   "$12.000"   → 12000    (punto delante de exactamente 3 dígitos = miles)
+     *   "1.250.000" → 1250000
+     *   "1.500,5"   → 1500.5   (con coma: la coma es el decimal)
+     *   "12.5"      → 12.5
+     *   " 5 "       → 5
+     */
+    public static Double leerNumero(String texto) {
+        String limpio = texto.replaceAll("[^0-9.,-]", "");
+        if (!limpio.matches(".*[0-9].*")) return null;
+
+        if (limpio.indexOf(',') >= 0) {
+            limpio = limpio.replace(".", "").replace(',', '.');
+        } else if (limpio.matches("-?\\d{1,3}(\\.\\d{3})+")) {
+            limpio = limpio.replace(".", "");
+        }
+
+        try {
+            return Double.parseDouble(limpio);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static String texto(Object o) {
+        return o == null ? null : o.toString();
+    }
+
+    // ==============================================================
+    // 🔹 Documentos
+    // ==============================================================
+    public static Producto producto(DocumentSnapshot doc) {
+        return new Producto(
+                doc.getId(),
+                texto(doc.get("codigo")),
+                texto(doc.get("nombre")),
+                texto(doc.get("categoria")),
+                texto(doc.get("descripcion")),
+                texto(doc.get("proveedorId")),
+                texto(doc.get("proveedorNombre")),
+                texto(doc.get("estado")),
+                decimal(doc.get("precio")),
+                numero(doc.get("stock")),
+                numero(doc.get(ReservasStock.RESERVADO)));
+    }
+
+    public static ItemCarrito itemCarrito(DocumentSnapshot doc) {
+        Object cantidad = doc.get("cantidad");
+        return new ItemCarrito(
+                doc.getId(),
+                texto(doc.get("nombre")),
+                texto(doc.get("proveedor")),
+                texto(doc.get("proveedorId")),
+                decimal(doc.get("precio")),
+                cantidad != null ? numero(cantidad) : 1L);
+    }
+
+    public static Orden orden(DocumentSnapshot doc) {
+        return orden(doc.getId(), doc.getData());
+    }
+
+    /*
+     * Órdenes nuevas: productos en "items".
+     * Órdenes antiguas (un producto por orden): el producto está en la raíz
+     * del documento → se leen como una orden de un solo item.
+     */
+    public static Orden orden(String id, Map<String, Object> datos) {
+        List<LineaOrden> lineas = new ArrayList<>();
+
+        Object items = datos != null ? datos.get("items") : null;
+        if (items instanceof List) {
+            for (Object item : (List<?>) items) {
+                if (item instanceof Map) lineas.add(linea((Map<?, ?>) item));
+            }
+        } else if (datos != null && datos.get("productoId") != null) {
+            lineas.add(linea(datos));
+        }
+
+        if (datos == null) {
+            return new Orden(id, null, null, null, null, null, null,
+                    0.0, 0, null, null, null, lineas, 0, 0);
+        }
+
+        Object fecha = datos.get("fechaCreacion");
+        return new Orden(
+                id,
+                texto(datos.get("compradorId")),
+                texto(datos.get("compradorNombre")),
+                texto(datos.get("proveedorId")),
+                texto(datos.get("proveedorNombre")),
+                texto(datos.get("estado")),
+                texto(datos.get("metodoPago")),
+                decimal(datos.get("subtotal")),
+                datos.containsKey("unidades") ? numero(datos.get("unidades")) : -1,
+                texto(datos.get("periodo")),
+                fecha instanceof Timestamp ? (Timestamp) fecha : null,
+                texto(datos.get(ReservasStock.ESTADO)),
+                lineas,
+                (int) numero(datos.get("parte")),
+                (int) numero(datos.get("partes")));
+    }
+
+    private static LineaOrden linea(Map<?, ?> datos) {
+        return new LineaOrden(
+                texto(datos.get("productoId")),
+                texto(datos.get("productoNombre")),
+                numero(datos.get("cantidad")),
+                decimal(datos.get("precioUnitario")),
+                decimal(datos.get("subtotal")));
+    }
+}
@@ -0,0 +1,176 @@
+package com.proveenet.proveenet;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * ESCRITOR POR LOTES
+ * ==============================================================
+ * Un WriteBatch de Firestore admite como máximo 500 operaciones.
+ * Esta clase junta cualquier cantidad de set / update / delete y:
+ *
+ *   ✔ los parte en tramos de MAX_OPERACIONES
+ *   ✔ envía hasta MAX_EN_PARALELO tramos a la vez
+ *   ✔ reintenta un tramo que falló por red/contención (con espera creciente)
+ *
+ * Reintentar es seguro porque solo se usan operaciones idempotentes:
+ * borrar dos veces o escribir el mismo valor dos veces deja el mismo
+ * resultado. NO usar con FieldValue.increment() (un reintento sumaría doble).
+ *
+ * Uso:
+ *   new EscritorPorLotes(db)
+ *       .delete(ref1)
+ *       .delete(ref2)
+ *       .commit();
+ */
+public class EscritorPorLotes {
+
+    static final int MAX_OPERACIONES = 450;   // margen bajo el límite de 500
+    static final int MAX_EN_PARALELO = 3;
+    static final int MAX_REINTENTOS = 3;
+    private static final long ESPERA_BASE_MS = 500;
+
+    // Una operación sabe agregarse a un WriteBatch
+    private interface Operacion {
+        void agregarA(WriteBatch batch);
+    }
+
+    private final FirebaseFirestore db;
+    private final List<Operacion> operaciones = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    public EscritorPorLotes(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    // ==============================================================
+    // 🔹 Operaciones
+    // ==============================================================
+    public EscritorPorLotes set(DocumentReference ref, Map<String, Object> datos) {
+        operaciones.add(batch -> batch.set(ref, datos));
+        return this;
+    }
+
+    public EscritorPorLotes set(DocumentReference ref, Map<String, Object> datos, SetOptions opciones) {
+        operaciones.add(batch -> batch.set(ref, datos, opciones));
+        return this;
+    }
+
+    public EscritorPorLotes update(DocumentReference ref, Map<String, Object> datos) {
+        operaciones.add(batch -> batch.update(ref, datos));
+        return this;
+    }
+
+    public EscritorPorLotes delete(DocumentReference ref) {
+        operaciones.add(batch -> batch.delete(ref));
+        return this;
+    }
+
+    public int cantidad() {
+        return operaciones.size();
+    }
+
+    // ==============================================================
+    // 🔹 Enviar todo
+    // ==============================================================
+    /*
+     * Termina cuando TODOS los tramos terminaron.
+     * Si alguno falla después de los reintentos, el Task falla con ese error
+     * (los demás tramos igual se escriben; volver a llamar es seguro).
+     */
+    public Task<Void> commit() {
+        if (operaciones.isEmpty()) return Tasks.forResult(null);
+
+        List<List<Operacion>> tramos = new ArrayList<>();
+        for (int i = 0; i < operaciones.size(); i += MAX_OPERACIONES) {
+            tramos.add(new ArrayList<>(
+                    operaciones.subList(i, Math.min(i + MAX_OPERACIONES, operaciones.size()))));
+        }
+        operaciones.clear();
+
+        TaskCompletionSource<Void> fin = new TaskCompletionSource<>();
+        new Envio(tramos, fin).arrancar();
+        return fin.getTask();
+    }
+
+    // Estado de un commit(): todo corre en el hilo principal, no hace falta sincronizar
+    private class Envio {
+
+        private final List<List<Operacion>> tramos;
+        private final TaskCompletionSource<Void> fin;
+
+        private int siguiente = 0;  // próximo tramo por enviar
+        private int enCurso = 0;    // tramos enviados o esperando reintento
+        private Exception error;
+
+        Envio(List<List<Operacion>> tramos, TaskCompletionSource<Void> fin) {
+            this.tramos = tramos;
+            this.fin = fin;
+        }
+
+        void arrancar() {
+            while (enCurso < MAX_EN_PARALELO && siguiente < tramos.size()) {
+                enviar(tramos.get(siguiente++), 0);
+            }
+        }
+
+        private void enviar(List<Operacion> tramo, int intento) {
+            enCurso++;
+
+            WriteBatch batch = db.batch();
+            for (Operacion op : tramo) op.agregarA(batch);
+
+            batch.commit().addOnCompleteListener(t -> {
+                if (!t.isSuccessful()) {
+                    if (intento < MAX_REINTENTOS && esReintentable(t.getException())) {
+                        // El lugar queda ocupado mientras espera: 0.5s, 1s, 2s...
+                        handler.postDelayed(() -> {
+                            enCurso--;
+                            enviar(tramo, intento + 1);
+                        }, ESPERA_BASE_MS << intento);
+                        return;
+                    }
+                    if (error == null) error = t.getException();
+                }
+
+                enCurso--;
+                if (siguiente < tramos.size()) {
+                    enviar(tramos.get(siguiente++), 0);
+                } else if (enCurso == 0) {
+                    if (error == null) fin.setResult(null);
+                    else fin.setException(error);
+                }
+            });
+        }
+    }
+
+    // 🔹 Solo errores pasajeros; permisos o datos inválidos fallarían igual
+    private static boolean esReintentable(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case UNAVAILABLE:
+            case ABORTED:
+            case DEADLINE_EXCEEDED:
+            case RESOURCE_EXHAUSTED:
+            case INTERNAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
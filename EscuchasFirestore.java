@@ -0,0 +1,200 @@
+package com.proveenet.proveenet;
+
+import android.app.Activity;
+import android.util.Log;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * ==============================================================
+ * ESCUCHAS DE FIRESTORE (registro ligado al ciclo de vida)
+ * ==============================================================
+ * Antes cada pantalla llamaba a addSnapshotListener() y tenía que
+ * acordarse de remove(): MiCatalogo nunca lo hacía y MiCarrito lo quitaba
+ * en onStop sin volver a ponerlo. Cada visita dejaba un listener vivo
+ * bajando cambios y redibujando vistas que ya no estaban en pantalla.
+ *
+ * Ahora se escucha con BaseActivity.escuchar(clave, query, escucha):
+ *
+ *   onStart   → se activa (o se reactiva al volver del fondo)
+ *   onStop    → se pausa (en segundo plano no llega nada)
+ *   onDestroy → se quita
+ *
+ * Consultas iguales (Query.equals) comparten UN solo addSnapshotListener:
+ * la pantalla que llega tarde recibe el último snapshot al activarse.
+ *
+ * 📌 Contrato de la escucha (corre en Hilos.FONDO):
+ *   completo = true  → primer snapshot desde que se (re)activó: traer el
+ *                      estado entero con getDocuments(), no los cambios
+ *                      (mientras estuvo pausada pudo pasar cualquier cosa)
+ *   completo = false → getDocumentChanges() como siempre
+ *   snapshot = null  → error (la escucha compartida se descarta y se
+ *                      vuelve a crear al próximo onStart)
+ *
+ * En debug (BuildConfig.DEBUG) se informa por log "ProveeNet":
+ *   - la misma pantalla escuchando dos veces la misma consulta
+ *   - escuchas de una pantalla ya destruida (fuga) → se quitan
+ *
+ * Solo se llama desde el hilo principal (BaseActivity).
+ */
+public final class EscuchasFirestore {
+
+    private static final String TAG = "ProveeNet";
+
+    public interface Escucha {
+        void onSnapshot(QuerySnapshot snapshot, boolean completo);
+    }
+
+    // Una escucha real por consulta (solo hilo principal)
+    private static final Map<Query, Compartida> COMPARTIDAS = new HashMap<>();
+
+    private EscuchasFirestore() {}
+
+    // 🔹 Lo que registra una pantalla (una por clave)
+    public static final class Suscripcion {
+        final Query query;
+        final Escucha escucha;
+        final String nombre;                       // "Pantalla/clave" para los reportes
+        final WeakReference<Activity> dueno;       // débil: no retiene la pantalla
+
+        volatile boolean activa;
+        boolean completo;                          // ⚠️ solo Hilos.FONDO
+        Compartida compartida;                     // null = pausada
+
+        Suscripcion(Activity dueno, String clave, Query query, Escucha escucha) {
+            this.dueno = new WeakReference<>(dueno);
+            this.nombre = dueno.getClass().getSimpleName() + "/" + clave;
+            this.query = query;
+            this.escucha = escucha;
+        }
+    }
+
+    // 🔹 Un addSnapshotListener y quienes lo usan
+    private static final class Compartida {
+        final Query query;
+        final List<Suscripcion> vivas = new ArrayList<>();                      // hilo principal
+        final List<Suscripcion> receptores = new CopyOnWriteArrayList<>();      // Hilos.FONDO
+        volatile QuerySnapshot ultimo;
+        ListenerRegistration registro;
+
+        Compartida(Query query) {
+            this.query = query;
+        }
+
+        // ⚠️ Hilos.FONDO
+        void entregar(QuerySnapshot snapshot) {
+            ultimo = snapshot;
+            for (Suscripcion s : receptores) entregarA(s, snapshot);
+        }
+    }
+
+    public static Suscripcion crear(Activity dueno, String clave, Query query, Escucha escucha) {
+        return new Suscripcion(dueno, clave, query, escucha);
+    }
+
+    // ==============================================================
+    // 🔹 Activar / pausar (onStart / onStop)
+    // ==============================================================
+    public static void activar(Suscripcion s) {
+        if (s.compartida != null) return;
+        if (BuildConfig.DEBUG) buscarFugas();
+
+        Compartida c = COMPARTIDAS.get(s.query);
+        if (c == null) {
+            Compartida nueva = new Compartida(s.query);
+            nueva.registro = s.query.addSnapshotListener(Hilos.FONDO, (snapshot, e) -> {
+                if (e != null) {
+                    Log.w(TAG, "Escucha con error: " + e.getMessage());
+                    Hilos.principal(() -> descartar(nueva));
+                    for (Suscripcion r : nueva.receptores) entregarA(r, null);
+                    return;
+                }
+                if (snapshot != null) nueva.entregar(snapshot);
+            });
+            COMPARTIDAS.put(s.query, nueva);
+            c = nueva;
+        } else if (BuildConfig.DEBUG) {
+            for (Suscripcion otra : c.vivas) {
+                if (otra.dueno.get() == s.dueno.get()) {
+                    Log.w(TAG, "Escucha duplicada: " + s.nombre + " y " + otra.nombre + " usan la misma consulta");
+                }
+            }
+        }
+
+        s.activa = true;
+        s.compartida = c;
+        c.vivas.add(s);
+
+        // En el mismo hilo que las entregas: el primer snapshot que vea es "completo"
+        Compartida esa = c;
+        Hilos.FONDO.execute(() -> {
+            if (!s.activa || s.compartida != esa) return;
+            s.completo = true;
+            esa.receptores.add(s);
+            QuerySnapshot ultimo = esa.ultimo;
+            if (ultimo != null) entregarA(s, ultimo);
+        });
+    }
+
+    public static void pausar(Suscripcion s) {
+        Compartida c = s.compartida;
+        if (c == null) return;
+
+        s.activa = false; // desde ya no se entrega nada, aunque haya algo en la cola del fondo
+        s.compartida = null;
+        c.vivas.remove(s);
+        Hilos.FONDO.execute(() -> c.receptores.remove(s));
+
+        // Nadie más la usa → se quita el listener real
+        if (c.vivas.isEmpty()) descartar(c);
+    }
+
+    private static void descartar(Compartida c) {
+        if (COMPARTIDAS.get(c.query) == c) COMPARTIDAS.remove(c.query);
+        if (c.registro != null) c.registro.remove();
+    }
+
+    // ⚠️ Hilos.FONDO
+    private static void entregarA(Suscripcion s, QuerySnapshot snapshot) {
+        if (!s.activa) return;
+        boolean completo = s.completo;
+        if (snapshot != null) s.completo = false;
+        s.escucha.onSnapshot(snapshot, completo);
+    }
+
+    // ==============================================================
+    // 🛠 Debug: escuchas de pantallas que ya no existen
+    // ==============================================================
+    private static void buscarFugas() {
+        List<Suscripcion> fugas = new ArrayList<>();
+        for (Compartida c : COMPARTIDAS.values()) {
+            for (Suscripcion s : c.vivas) {
+                Activity dueno = s.dueno.get();
+                if (dueno == null || dueno.isDestroyed()) fugas.add(s);
+            }
+        }
+        for (Suscripcion s : fugas) {
+            Log.e(TAG, "Escucha con fuga: " + s.nombre + " sigue activa con la pantalla destruida");
+            pausar(s);
+        }
+    }
+
+    // Para revisar a mano (p. ej. desde el depurador): qué se está escuchando ahora
+    public static void reportar() {
+        Log.d(TAG, COMPARTIDAS.size() + " escuchas activas");
+        for (Compartida c : COMPARTIDAS.values()) {
+            StringBuilder nombres = new StringBuilder();
+            for (Suscripcion s : c.vivas) nombres.append(' ').append(s.nombre);
+            Log.d(TAG, "  " + c.vivas.size() + " →" + nombres);
+        }
+    }
+}
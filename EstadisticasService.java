@@ -0,0 +1,103 @@
+package com.proveenet.proveenet;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+/*
+ * ==============================================================
+ * SERVICIO DE ESTADÍSTICAS
+ * ==============================================================
+ * Conteos y sumas calculados EN EL SERVIDOR con consultas de agregación
+ * (count() / sum()).
+ *
+ * Antes se descargaba la colección completa solo para llamar snapshot.size()
+ * o para sumar "subtotal" en el teléfono. Una agregación cobra 1 lectura
+ * por cada 1000 documentos contados y no transfiere los documentos.
+ */
+public class EstadisticasService {
+
+    private final FirebaseFirestore db;
+
+    public EstadisticasService(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    // ==============================================================
+    // 🔹 Resultado de compras: cantidad de órdenes + monto total
+    // ==============================================================
+    public static class Totales {
+        public final long cantidad;
+        public final double total;
+
+        Totales(long cantidad, double total) {
+            this.cantidad = cantidad;
+            this.total = total;
+        }
+    }
+
+    // 🔹 count() genérico sobre cualquier consulta
+    public Task<Long> contar(Query query) {
+        return query.count()
+                .get(AggregateSource.SERVER)
+                .continueWith(t -> t.getResult().getCount());
+    }
+
+    // 🔹 count() + sum(campo) en una sola consulta de agregación
+    public Task<Totales> contarYSumar(Query query, String campo) {
+        AggregateField.SumAggregateField suma = AggregateField.sum(campo);
+
+        return query.aggregate(AggregateField.count(), suma)
+                .get(AggregateSource.SERVER)
+                .continueWith(t -> {
+                    AggregateQuerySnapshot snapshot = t.getResult();
+                    Double total = snapshot.getDouble(suma); // null si no hay valores numéricos
+                    return new Totales(snapshot.getCount(), total != null ? total : 0.0);
+                });
+    }
+
+    // ==============================================================
+    // 🔹 Estadísticas del comprador (Panel_comprador)
+    // ==============================================================
+    public Task<Long> contarProveedores() {
+        return contar(db.collection("proveedores"));
+    }
+
+    public Task<Long> contarProductosActivos() {
+        return contar(db.collection("productos").whereEqualTo("estado", "activo"));
+    }
+
+    public Task<Totales> comprasDelComprador(String compradorId) {
+        return contarYSumar(
+                db.collection("ordenes").whereEqualTo("compradorId", compradorId),
+                "subtotal");
+    }
+
+    // ==============================================================
+    // 🔹 Estadísticas del proveedor (DashboardProveedor / ResumenProveedor)
+    // ==============================================================
+    public Task<Long> contarProductosActivos(String proveedorId) {
+        return contar(db.collection("productos")
+                .whereEqualTo("proveedorId", proveedorId)
+                .whereEqualTo("estado", "activo"));
+    }
+
+    public Task<Long> contarOrdenesRecibidas(String proveedorId) {
+        return contar(db.collection("ordenes").whereEqualTo("proveedorId", proveedorId));
+    }
+
+    // Suma de órdenes confirmadas creadas en [desde, hasta)
+    public Task<Totales> ventasEntre(String proveedorId, Timestamp desde, Timestamp hasta) {
+        return contarYSumar(
+                db.collection("ordenes")
+                        .whereEqualTo("proveedorId", proveedorId)
+                        .whereEqualTo("estado", "confirmada")
+                        .whereGreaterThanOrEqualTo("fechaCreacion", desde)
+                        .whereLessThan("fechaCreacion", hasta),
+                "subtotal");
+    }
+}
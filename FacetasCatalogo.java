@@ -0,0 +1,186 @@
+package com.proveenet.proveenet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * ==============================================================
+ * FACETAS DEL CATÁLOGO (categoría / proveedor / precio)
+ * ==============================================================
+ * Índice de ids ORDENADOS por valor de faceta:
+ *
+ *   porCategoria:  "Bebidas"  → {p01, p07, p19}
+ *   porProveedor:  "uidProv1" → {p01, p02}
+ *
+ * Varias facetas juntas = recorrer el conjunto más chico y comprobar
+ * el resto con FiltroCatalogo.cumple (sin consultar Firestore).
+ * Los ids quedan en orden de documentId, igual que el catálogo paginado.
+ *
+ * Los conteos de cada valor se suman/restan con cada cambio de documento:
+ * cambiar de filtro nunca recorre ni recarga el catálogo completo.
+ *
+ * NO es seguro entre hilos: se usa solo desde Hilos.FONDO (como IndiceBusqueda).
+ */
+public class FacetasCatalogo {
+
+    // 🔹 Conteos listos para mostrar en el diálogo de filtros
+    public static final class Conteos {
+        public final Map<String, Integer> categorias;        // categoría → productos (orden alfabético)
+        public final Map<String, Integer> proveedores;       // proveedorId → productos
+        public final Map<String, String> nombresProveedor;   // proveedorId → nombre
+        public final int total;                               // productos que cumplen el filtro completo
+
+        Conteos(Map<String, Integer> categorias, Map<String, Integer> proveedores,
+                Map<String, String> nombresProveedor, int total) {
+            this.categorias = categorias;
+            this.proveedores = proveedores;
+            this.nombresProveedor = nombresProveedor;
+            this.total = total;
+        }
+    }
+
+    private final Map<String, Producto> productos = new HashMap<>();
+    private final TreeSet<String> todos = new TreeSet<>();
+    private final Map<String, TreeSet<String>> porCategoria = new HashMap<>();
+    private final Map<String, TreeSet<String>> porProveedor = new HashMap<>();
+    private final Map<String, String> nombresProveedor = new HashMap<>();
+
+    // Último filtro evaluado (pedir la página 2 no vuelve a recorrer)
+    private FiltroCatalogo ultimoFiltro;
+    private List<Producto> ultimosResultados;
+
+    // ==============================================================
+    // 🔹 Mantener al día (un documento a la vez)
+    // ==============================================================
+    public void actualizar(Producto producto) {
+        quitar(producto.id);
+        if (!producto.esActivo()) return;
+
+        productos.put(producto.id, producto);
+        todos.add(producto.id);
+        agregar(porCategoria, producto.categoria, producto.id);
+        agregar(porProveedor, producto.proveedorId, producto.id);
+        if (producto.proveedorId != null && producto.proveedorNombre != null) {
+            nombresProveedor.put(producto.proveedorId, producto.proveedorNombre);
+        }
+        ultimoFiltro = null;
+    }
+
+    public void quitar(String productoId) {
+        Producto anterior = productos.remove(productoId);
+        if (anterior == null) return;
+
+        todos.remove(productoId);
+        sacar(porCategoria, anterior.categoria, productoId);
+        sacar(porProveedor, anterior.proveedorId, productoId);
+        ultimoFiltro = null;
+    }
+
+    private static void agregar(Map<String, TreeSet<String>> faceta, String valor, String id) {
+        if (valor == null) return;
+        TreeSet<String> ids = faceta.get(valor);
+        if (ids == null) {
+            ids = new TreeSet<>();
+            faceta.put(valor, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void sacar(Map<String, TreeSet<String>> faceta, String valor, String id) {
+        if (valor == null) return;
+        TreeSet<String> ids = faceta.get(valor);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) faceta.remove(valor); // el valor desaparece del diálogo
+    }
+
+    // ==============================================================
+    // 🔹 Filtrar (una página, en orden de documentId)
+    // ==============================================================
+    public List<Producto> filtrar(FiltroCatalogo filtro, int desde, int cantidad) {
+        if (!filtro.equals(ultimoFiltro)) {
+            ultimosResultados = evaluar(filtro);
+            ultimoFiltro = filtro;
+        }
+
+        if (desde >= ultimosResultados.size()) return Collections.emptyList();
+        return new ArrayList<>(ultimosResultados.subList(desde,
+                Math.min(desde + cantidad, ultimosResultados.size())));
+    }
+
+    // Cuántos productos cumplen el filtro (reutiliza la última evaluación)
+    public int contar(FiltroCatalogo filtro) {
+        filtrar(filtro, 0, 0);
+        return ultimosResultados.size();
+    }
+
+    private List<Producto> evaluar(FiltroCatalogo filtro) {
+
+        // Se parte del conjunto más chico entre las facetas elegidas
+        TreeSet<String> candidatos = todos;
+        if (filtro.categoria != null) candidatos = menor(candidatos, porCategoria.get(filtro.categoria));
+        if (filtro.proveedorId != null) candidatos = menor(candidatos, porProveedor.get(filtro.proveedorId));
+
+        List<Producto> resultado = new ArrayList<>();
+        for (String id : candidatos) {
+            Producto p = productos.get(id);
+            if (filtro.cumple(p)) resultado.add(p);
+        }
+        return resultado;
+    }
+
+    private static TreeSet<String> menor(TreeSet<String> actual, TreeSet<String> otro) {
+        if (otro == null) return new TreeSet<>(); // valor sin productos
+        return otro.size() < actual.size() ? otro : actual;
+    }
+
+    // ==============================================================
+    // 🔹 Conteos por faceta (con el resto del filtro aplicado)
+    // ==============================================================
+    /*
+     * El conteo de "Bebidas" responde: ¿cuántos productos veo si elijo
+     * Bebidas, dejando igual proveedor y precio?
+     * Si no hay otras facetas elegidas sale directo del tamaño de cada
+     * conjunto; si no, se recuentan solo los candidatos ya filtrados.
+     */
+    public Conteos conteos(FiltroCatalogo filtro) {
+
+        FiltroCatalogo sinCategoria = filtro.conCategoria(null);
+        Map<String, Integer> categorias = (sinCategoria.facetasActivas() == 0)
+                ? tamanos(porCategoria)
+                : contarPor(evaluar(sinCategoria), true);
+
+        FiltroCatalogo sinProveedor = filtro.conProveedor(null);
+        Map<String, Integer> proveedores = (sinProveedor.facetasActivas() == 0)
+                ? tamanos(porProveedor)
+                : contarPor(evaluar(sinProveedor), false);
+
+        int total = filtro.facetasActivas() == 0 ? todos.size() : contar(filtro);
+
+        return new Conteos(categorias, proveedores, new HashMap<>(nombresProveedor), total);
+    }
+
+    private static Map<String, Integer> tamanos(Map<String, TreeSet<String>> faceta) {
+        Map<String, Integer> conteo = new TreeMap<>();
+        for (Map.Entry<String, TreeSet<String>> e : faceta.entrySet()) {
+            conteo.put(e.getKey(), e.getValue().size());
+        }
+        return conteo;
+    }
+
+    private static Map<String, Integer> contarPor(List<Producto> lista, boolean porCategoria) {
+        Map<String, Integer> conteo = new TreeMap<>();
+        for (Producto p : lista) {
+            String valor = porCategoria ? p.categoria : p.proveedorId;
+            if (valor == null) continue;
+            Integer n = conteo.get(valor);
+            conteo.put(valor, n == null ? 1 : n + 1);
+        }
+        return conteo;
+    }
+}
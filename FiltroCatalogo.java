@@ -0,0 +1,116 @@
+package com.proveenet.proveenet;
+
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
+
+/*
+ * ==============================================================
+ * FILTRO DEL CATÁLOGO (facetas elegidas)
+ * ==============================================================
+ * Facetas: categoría, proveedor y rango de precio. null = sin filtrar.
+ * Es inmutable: cada cambio devuelve un filtro nuevo (se puede pasar
+ * al hilo de fondo sin copiarlo).
+ *
+ *   1 faceta   → consulta indexada en Firestore (aplicarA)
+ *   2 o más    → se evalúa en el dispositivo (ver FacetasCatalogo)
+ */
+public final class FiltroCatalogo {
+
+    public static final FiltroCatalogo TODOS = new FiltroCatalogo(null, null, null, null);
+
+    public final String categoria;
+    public final String proveedorId;
+    public final Double precioMin;
+    public final Double precioMax;
+
+    private FiltroCatalogo(String categoria, String proveedorId, Double precioMin, Double precioMax) {
+        this.categoria = categoria;
+        this.proveedorId = proveedorId;
+        this.precioMin = precioMin;
+        this.precioMax = precioMax;
+    }
+
+    public FiltroCatalogo conCategoria(String categoria) {
+        return new FiltroCatalogo(categoria, proveedorId, precioMin, precioMax);
+    }
+
+    public FiltroCatalogo conProveedor(String proveedorId) {
+        return new FiltroCatalogo(categoria, proveedorId, precioMin, precioMax);
+    }
+
+    public FiltroCatalogo conPrecio(Double min, Double max) {
+        return new FiltroCatalogo(categoria, proveedorId, min, max);
+    }
+
+    public boolean filtraPrecio() {
+        return precioMin != null || precioMax != null;
+    }
+
+    // El rango de precio cuenta como UNA faceta
+    public int facetasActivas() {
+        return (categoria != null ? 1 : 0) + (proveedorId != null ? 1 : 0) + (filtraPrecio() ? 1 : 0);
+    }
+
+    public boolean cumple(Producto p) {
+        if (categoria != null && !categoria.equals(p.categoria)) return false;
+        if (proveedorId != null && !proveedorId.equals(p.proveedorId)) return false;
+        if (precioMin != null && p.precio < precioMin) return false;
+        if (precioMax != null && p.precio > precioMax) return false;
+        return true;
+    }
+
+    // ==============================================================
+    // 🔹 Una sola faceta → consulta de Firestore
+    // ==============================================================
+    /*
+     * "base" ya trae whereEqualTo("estado", "activo").
+     * Índices compuestos necesarios (consola de Firebase):
+     *   catalogo_resumen: estado + categoria + __name__
+     *   catalogo_resumen: estado + proveedorId + __name__
+     *   catalogo_resumen: estado + precio + __name__
+     * (y los mismos en "productos": se leen ahí mientras el resumen se rellena)
+     * El precio necesita orderBy("precio") antes del documentId porque
+     * Firestore exige ordenar primero por el campo del rango.
+     */
+    public Query aplicarA(Query base) {
+        if (facetasActivas() > 1) {
+            throw new IllegalStateException("Varias facetas se filtran en el dispositivo");
+        }
+
+        if (categoria != null) {
+            return base.whereEqualTo("categoria", categoria).orderBy(FieldPath.documentId());
+        }
+        if (proveedorId != null) {
+            return base.whereEqualTo("proveedorId", proveedorId).orderBy(FieldPath.documentId());
+        }
+        if (filtraPrecio()) {
+            Query q = base;
+            if (precioMin != null) q = q.whereGreaterThanOrEqualTo("precio", precioMin);
+            if (precioMax != null) q = q.whereLessThanOrEqualTo("precio", precioMax);
+            return q.orderBy("precio").orderBy(FieldPath.documentId());
+        }
+        return base.orderBy(FieldPath.documentId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FiltroCatalogo)) return false;
+        FiltroCatalogo f = (FiltroCatalogo) o;
+        return igual(categoria, f.categoria) && igual(proveedorId, f.proveedorId)
+                && igual(precioMin, f.precioMin) && igual(precioMax, f.precioMax);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = categoria != null ? categoria.hashCode() : 0;
+        h = 31 * h + (proveedorId != null ? proveedorId.hashCode() : 0);
+        h = 31 * h + (precioMin != null ? precioMin.hashCode() : 0);
+        h = 31 * h + (precioMax != null ? precioMax.hashCode() : 0);
+        return h;
+    }
+
+    private static boolean igual(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,43 @@
+package com.proveenet.proveenet;
+
+import com.google.firebase.Timestamp;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/*
+ * ==============================================================
+ * FORMATOS COMPARTIDOS (fechas y montos)
+ * ==============================================================
+ * Antes cada fila creaba su propio SimpleDateFormat (y su Locale) y
+ * llamaba String.format("%.0f") → mucha basura para el GC al hacer
+ * scroll rápido por cientos de órdenes.
+ *
+ * SimpleDateFormat NO es seguro entre hilos, así que hay UNO por hilo
+ * (ThreadLocal): el hilo de fondo (Hilos.FONDO) y el principal reusan
+ * el suyo para siempre.
+ */
+public final class Formatos {
+
+    private Formatos() {}
+
+    public static final Locale CHILE = new Locale("es", "CL");
+
+    private static final ThreadLocal<SimpleDateFormat> FECHA_LARGA = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd 'de' MMMM 'de' yyyy, HH:mm", CHILE);
+        }
+    };
+
+    // 🔹 "05 de marzo de 2025, 14:30" (o "Fecha no disponible")
+    public static String fechaLarga(Timestamp fecha) {
+        if (fecha == null) return "Fecha no disponible";
+        return FECHA_LARGA.get().format(fecha.toDate());
+    }
+
+    // 🔹 "$12000": mismo resultado que "$" + String.format("%.0f", monto), sin parsear el patrón
+    public static String dinero(double monto) {
+        return "$" + Math.round(monto);
+    }
+}
@@ -0,0 +1,61 @@
+package com.proveenet.proveenet;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/*
+ * ==============================================================
+ * HILOS (fondo → principal)
+ * ==============================================================
+ * Los listeners de Firestore corren por defecto en el hilo principal:
+ * decodificar 200 documentos y formatear sus precios ahí se nota como
+ * "saltos" al hacer scroll justo cuando llega un snapshot grande.
+ *
+ * Patrón:
+ *   query.get().addOnSuccessListener(Hilos.FONDO, snapshot -> {
+ *       List<Fila> filas = ...decodificar y formatear...;     // hilo de fondo
+ *       Hilos.principal(() -> adapter.notifyItemRangeInserted(...)); // solo la UI
+ *   });
+ *
+ * FONDO es UN solo hilo: los snapshots se procesan en el orden en que
+ * llegan y se publican en ese mismo orden (no hace falta sincronizar).
+ * Regla: en el fondo NO se tocan vistas ni listas que usa un adapter.
+ */
+public final class Hilos {
+
+    private Hilos() {}
+
+    // Executor para addOnSuccessListener(...) / addSnapshotListener(...)
+    public static final Executor FONDO = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "proveenet-fondo");
+        hilo.setPriority(Thread.NORM_PRIORITY - 1); // por debajo del hilo de UI
+        return hilo;
+    });
+
+    private static final Handler PRINCIPAL = new Handler(Looper.getMainLooper());
+
+    public static void principal(Runnable accion) {
+        PRINCIPAL.post(accion);
+    }
+
+    // ==============================================================
+    // 🔹 Preparar en el fondo y entregar en el hilo principal
+    // ==============================================================
+    public interface Tarea<T> {
+        T ejecutar();
+    }
+
+    public interface Listo<T> {
+        void onListo(T resultado);
+    }
+
+    public static <T> void preparar(Tarea<T> enFondo, Listo<T> enPrincipal) {
+        FONDO.execute(() -> {
+            T resultado = enFondo.ejecutar();
+            principal(() -> enPrincipal.onListo(resultado));
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.proveenet.proveenet;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * ==============================================================
+ * ÍNDICE DE BÚSQUEDA (catálogo en el dispositivo)
+ * ==============================================================
+ * Firestore no busca texto dentro de "nombre" / "categoria" / "descripcion",
+ * así que el catálogo activo se indexa en memoria:
+ *
+ *   "Café Molido Premium" → tokens: cafe, molido, premium   (sin tildes, minúsculas)
+ *
+ *   prefijos:   "c", "ca", "caf", "cafe", "m", "mo"...  → ids   (mientras se escribe)
+ *   trigramas:  "caf", "afe", "mol", "oli", "lid"...    → ids   (texto en medio: "lido")
+ *
+ * Cada posting guarda en qué campos aparece (bits NOMBRE / CATEGORIA /
+ * DESCRIPCION) para ordenar: un acierto en el nombre pesa más.
+ *
+ * Se actualiza documento por documento (actualizar / quitar) con los
+ * cambios del snapshot: nunca se reconstruye entero.
+ *
+ * NO es seguro entre hilos: se usa solo desde Hilos.FONDO.
+ */
+public class IndiceBusqueda {
+
+    // Campos (bits) y su peso en el ranking
+    private static final int NOMBRE = 1, CATEGORIA = 2, DESCRIPCION = 4;
+
+    // Prefijos más largos que esto se resuelven con trigramas
+    private static final int MAX_PREFIJO = 12;
+
+    // Un documento indexado: lo necesario para puntuar y para quitarlo después
+    private static final class Entrada {
+        final Producto producto;
+        final String nombre, categoria, descripcion;   // normalizados
+        final Set<String> prefijos = new HashSet<>();
+        final Set<String> trigramas = new HashSet<>();
+
+        Entrada(Producto producto) {
+            this.producto = producto;
+            nombre = normalizar(producto.nombre);
+            categoria = normalizar(producto.categoria);
+            descripcion = normalizar(producto.descripcion);
+        }
+    }
+
+    private final Map<String, Entrada> entradas = new HashMap<>();
+    private final Map<String, Map<String, Integer>> porPrefijo = new HashMap<>();
+    private final Map<String, Map<String, Integer>> porTrigrama = new HashMap<>();
+
+    // Última consulta ordenada (pedir la página 2 no vuelve a buscar)
+    private String ultimaConsulta;
+    private FiltroCatalogo ultimoFiltro;
+    private List<Producto> ultimosResultados;
+
+    public int tamano() {
+        return entradas.size();
+    }
+
+    // ==============================================================
+    // 🔹 Mantener el índice al día
+    // ==============================================================
+    public void actualizar(Producto producto) {
+        quitar(producto.id);
+        if (!producto.esActivo()) return;
+
+        Entrada entrada = new Entrada(producto);
+        indexarCampo(entrada, entrada.nombre, NOMBRE);
+        indexarCampo(entrada, entrada.categoria, CATEGORIA);
+        indexarCampo(entrada, entrada.descripcion, DESCRIPCION);
+        entradas.put(producto.id, entrada);
+        ultimaConsulta = null;
+    }
+
+    public void quitar(String productoId) {
+        Entrada entrada = entradas.remove(productoId);
+        if (entrada == null) return;
+
+        for (String clave : entrada.prefijos) quitarPosting(porPrefijo, clave, productoId);
+        for (String clave : entrada.trigramas) quitarPosting(porTrigrama, clave, productoId);
+        ultimaConsulta = null;
+    }
+
+    private void indexarCampo(Entrada entrada, String texto, int campo) {
+        for (String token : tokens(texto)) {
+            for (int i = 1; i <= Math.min(token.length(), MAX_PREFIJO); i++) {
+                String prefijo = token.substring(0, i);
+                agregarPosting(porPrefijo, prefijo, entrada.producto.id, campo);
+                entrada.prefijos.add(prefijo);
+            }
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                String trigrama = token.substring(i, i + 3);
+                agregarPosting(porTrigrama, trigrama, entrada.producto.id, campo);
+                entrada.trigramas.add(trigrama);
+            }
+        }
+    }
+
+    private static void agregarPosting(Map<String, Map<String, Integer>> postings,
+                                       String clave, String id, int campo) {
+        Map<String, Integer> ids = postings.get(clave);
+        if (ids == null) {
+            ids = new HashMap<>();
+            postings.put(clave, ids);
+        }
+        Integer campos = ids.get(id);
+        ids.put(id, campos == null ? campo : campos | campo);
+    }
+
+    private static void quitarPosting(Map<String, Map<String, Integer>> postings, String clave, String id) {
+        Map<String, Integer> ids = postings.get(clave);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) postings.remove(clave);
+    }
+
+    // ==============================================================
+    // 🔹 Buscar (una página de resultados ordenados)
+    // ==============================================================
+    /*
+     * Todas las palabras de la consulta deben aparecer (Y lógico).
+     * Puntaje por palabra (se usa el mejor campo):
+     *   comienzo de palabra → nombre 10, categoría 5, descripción 2
+     *   texto en medio      → la mitad
+     * Empates: por nombre alfabético.
+     * "filtro" = facetas elegidas (FiltroCatalogo.TODOS para no filtrar).
+     */
+    public List<Producto> buscar(String consulta, FiltroCatalogo filtro, int desde, int cantidad) {
+        String normalizada = normalizar(consulta);
+
+        if (!normalizada.equals(ultimaConsulta) || !filtro.equals(ultimoFiltro)) {
+            ultimosResultados = ordenar(normalizada);
+            if (filtro.facetasActivas() > 0) {
+                List<Producto> filtrados = new ArrayList<>();
+                for (Producto p : ultimosResultados) {
+                    if (filtro.cumple(p)) filtrados.add(p);
+                }
+                ultimosResultados = filtrados;
+            }
+            ultimaConsulta = normalizada;
+            ultimoFiltro = filtro;
+        }
+
+        if (desde >= ultimosResultados.size()) return Collections.emptyList();
+        return new ArrayList<>(ultimosResultados.subList(desde,
+                Math.min(desde + cantidad, ultimosResultados.size())));
+    }
+
+    public int totalUltimaBusqueda() {
+        return ultimosResultados != null ? ultimosResultados.size() : 0;
+    }
+
+    private List<Producto> ordenar(String consulta) {
+        List<String> palabras = new ArrayList<>(new LinkedHashSet<>(tokens(consulta)));
+        if (palabras.isEmpty()) return Collections.emptyList();
+
+        Map<String, Integer> puntajes = null;
+
+        for (String palabra : palabras) {
+            Map<String, Integer> deLaPalabra = puntajesDe(palabra);
+
+            if (puntajes == null) {
+                puntajes = deLaPalabra;
+            } else {
+                // Y lógico: solo siguen los que ya estaban
+                Map<String, Integer> cruce = new HashMap<>();
+                for (Map.Entry<String, Integer> e : puntajes.entrySet()) {
+                    Integer extra = deLaPalabra.get(e.getKey());
+                    if (extra != null) cruce.put(e.getKey(), e.getValue() + extra);
+                }
+                puntajes = cruce;
+            }
+            if (puntajes.isEmpty()) return Collections.emptyList();
+        }
+
+        List<Entrada> encontradas = new ArrayList<>(puntajes.size());
+        for (String id : puntajes.keySet()) encontradas.add(entradas.get(id));
+
+        Map<String, Integer> finales = puntajes;
+        Collections.sort(encontradas, (a, b) -> {
+            int porPuntaje = Integer.compare(finales.get(b.producto.id), finales.get(a.producto.id));
+            return porPuntaje != 0 ? porPuntaje : a.nombre.compareTo(b.nombre);
+        });
+
+        List<Producto> productos = new ArrayList<>(encontradas.size());
+        for (Entrada e : encontradas) productos.add(e.producto);
+        return productos;
+    }
+
+    // id → puntaje de UNA palabra (comienzo de palabra y/o texto en medio)
+    private Map<String, Integer> puntajesDe(String palabra) {
+        Map<String, Integer> puntajes = new HashMap<>();
+
+        // 1) Comienzo de palabra
+        if (palabra.length() <= MAX_PREFIJO) {
+            Map<String, Integer> ids = porPrefijo.get(palabra);
+            if (ids != null) {
+                for (Map.Entry<String, Integer> e : ids.entrySet()) {
+                    puntajes.put(e.getKey(), peso(e.getValue()) * 2);
+                }
+            }
+        }
+
+        // 2) Texto en medio (o palabra más larga que MAX_PREFIJO): cruce de trigramas + verificación
+        if (palabra.length() >= 3) {
+            Set<String> candidatos = null;
+            for (int i = 0; i + 3 <= palabra.length(); i++) {
+                Map<String, Integer> ids = porTrigrama.get(palabra.substring(i, i + 3));
+                if (ids == null) return puntajes;
+
+                if (candidatos == null) candidatos = new HashSet<>(ids.keySet());
+                else candidatos.retainAll(ids.keySet());
+                if (candidatos.isEmpty()) return puntajes;
+            }
+
+            for (String id : candidatos) {
+                if (puntajes.containsKey(id)) continue; // ya puntuó como comienzo de palabra
+
+                Entrada entrada = entradas.get(id);
+                int campos = (entrada.nombre.contains(palabra) ? NOMBRE : 0)
+                        | (entrada.categoria.contains(palabra) ? CATEGORIA : 0)
+                        | (entrada.descripcion.contains(palabra) ? DESCRIPCION : 0);
+                if (campos != 0) puntajes.put(id, peso(campos));
+            }
+        }
+        return puntajes;
+    }
+
+    private static int peso(int campos) {
+        if ((campos & NOMBRE) != 0) return 10;
+        if ((campos & CATEGORIA) != 0) return 5;
+        return 2;
+    }
+
+    // ==============================================================
+    // 🔹 Normalización (español)
+    // ==============================================================
+    // "Azúcar Ñandú 1KG" → "azucar nandu 1kg"
+    static String normalizar(String texto) {
+        if (texto == null) return "";
+        String sinTildes = Normalizer.normalize(texto.toLowerCase(Formatos.CHILE), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return sinTildes.replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    private static List<String> tokens(String normalizado) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalizado.split(" ")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,37 @@
+package com.proveenet.proveenet;
+
+/*
+ * ==============================================================
+ * ÍTEM DEL CARRITO (modelo inmutable)
+ * ==============================================================
+ * carritos/{uid}/items/{productoId} ya decodificado.
+ * Cambiar la cantidad crea un ítem nuevo (conCantidad) en vez de
+ * modificar un Map compartido.
+ */
+public final class ItemCarrito {
+
+    public final String productoId;
+    public final String nombre;
+    public final String proveedor;
+    public final String proveedorId;
+    public final double precio;
+    public final long cantidad;
+
+    ItemCarrito(String productoId, String nombre, String proveedor, String proveedorId,
+                double precio, long cantidad) {
+        this.productoId = productoId;
+        this.nombre = nombre;
+        this.proveedor = proveedor;
+        this.proveedorId = proveedorId;
+        this.precio = precio;
+        this.cantidad = cantidad;
+    }
+
+    public double subtotal() {
+        return precio * cantidad;
+    }
+
+    public ItemCarrito conCantidad(long nuevaCantidad) {
+        return new ItemCarrito(productoId, nombre, proveedor, proveedorId, precio, nuevaCantidad);
+    }
+}
@@ -0,0 +1,43 @@
+package com.proveenet.proveenet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * LÍNEA DE ORDEN (un producto dentro de "items")
+ * ==============================================================
+ */
+public final class LineaOrden {
+
+    public final String productoId;
+    public final String productoNombre;
+    public final long cantidad;
+    public final double precioUnitario;
+    public final double subtotal;
+
+    LineaOrden(String productoId, String productoNombre, long cantidad,
+               double precioUnitario, double subtotal) {
+        this.productoId = productoId;
+        this.productoNombre = productoNombre;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+        this.subtotal = subtotal;
+    }
+
+    // 🔹 Línea nueva a partir de un ítem del carrito
+    public static LineaOrden desde(ItemCarrito item) {
+        return new LineaOrden(item.productoId, item.nombre, item.cantidad, item.precio, item.subtotal());
+    }
+
+    // Formato en Firestore (elemento del arreglo "items")
+    Map<String, Object> aMapa() {
+        Map<String, Object> mapa = new HashMap<>();
+        mapa.put("productoId", productoId);
+        mapa.put("productoNombre", productoNombre);
+        mapa.put("cantidad", cantidad);
+        mapa.put("precioUnitario", precioUnitario);
+        mapa.put("subtotal", subtotal);
+        return mapa;
+    }
+}
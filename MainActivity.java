@@ -194,6 +194,11 @@ public class MainActivity extends AppCompatActivity {
 
                     if (document.exists()) {
 
+                        // Guarda el perfil para que ninguna pantalla tenga que volver a leerlo
+                        SesionUsuario.guardar(this,
+                                coleccion.equals("compradores") ? SesionUsuario.ROL_COMPRADOR : SesionUsuario.ROL_PROVEEDOR,
+                                document);
+
                         // Si existe, redirige al panel correcto
                         if (coleccion.equals("compradores")) {
                             startActivity(new Intent(this, Panel_comprador.class));
@@ -206,7 +211,7 @@ public class MainActivity extends AppCompatActivity {
                     } else {
                         // El usuario inició sesión pero no está registrado como comprador/proveedor
                         Toast.makeText(this, "No se encontró el usuario en " + coleccion, Toast.LENGTH_SHORT).show();
-                        auth.signOut(); // Lo desconectamos para evitar inconsistencias
+                        SesionUsuario.cerrar(this); // Lo desconectamos para evitar inconsistencias
                     }
                 })
                 .addOnFailureListener(e ->
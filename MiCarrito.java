@@ -4,10 +4,14 @@ import androidx.appcompat.app.AlertDialog;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.*;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -29,15 +33,21 @@ public class MiCarrito extends BaseActivity {
     private BottomNavigationView bottomNavigationView;
 
     // --- Variables ---
+    // Totales mantenidos de forma incremental (se suma/resta solo la línea que cambia)
     private double subtotalGlobal = 0.0;
+    private long totalItems = 0;
 
-    // 🔹 itemsActuales → Lista en memoria con los productos del carrito
-    // Cada producto se almacena como un MAP (clave → valor)
-    // Ejemplo: {"nombre": "Manzanas", "cantidad": 3, "precio": 1000}
-    private List<Map<String, Object>> itemsActuales = new ArrayList<>();
+    // 🔹 itemsActuales → productos del carrito en memoria, por productoId
+    // Cada producto es un ItemCarrito ya decodificado (precio y cantidad como números)
+    private final Map<String, ItemCarrito> itemsActuales = new LinkedHashMap<>();
 
-    // 🔹 carritoListener → escucha en TIEMPO REAL cambios al carrito
-    private ListenerRegistration carritoListener;
+    // 🔹 Vista de cada fila del carrito, por productoId
+    private final Map<String, View> filasPorId = new HashMap<>();
+
+    // 🔹 Escrituras de cantidad en espera (toques rápidos se agrupan en una sola)
+    private static final long ESPERA_ESCRITURA_MS = 400;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Runnable> escriturasPendientes = new HashMap<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -112,117 +122,259 @@ public class MiCarrito extends BaseActivity {
     // addSnapshotListener() escucha cambios en tiempo real.
     // Si el usuario agrega o quita productos desde otro dispositivo,
     // la UI se actualiza automáticamente.
+    // Se registra con escuchar() (BaseActivity): se pausa en segundo plano
+    // y al volver llega el carrito entero (completo) para ponerse al día.
     private void cargarCarrito() {
 
         FirebaseUser user = auth.getCurrentUser();
         if (user == null)
             return;
 
-        carritoListener = db.collection("carritos")
+        // La escucha corre en el hilo de fondo (Hilos.FONDO): ahí se decodifican
+        // los cambios y al hilo principal solo llega la lista de cambios ya leída
+        Query items = db.collection("carritos")
                 .document(user.getUid())
-                .collection("items")
-                .addSnapshotListener((snapshots, e) -> {
+                .collection("items");
 
-                    // snapshots → QuerySnapshot
-                    // Es una "foto" (snapshot) de los datos en ese momento
-                    if (e != null) {
-                        Toast.makeText(this, "Error al cargar carrito", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+        escuchar("carrito", items, (snapshots, completo) -> {
 
-                    if (snapshots == null || snapshots.isEmpty()) {
-                        mostrarCarritoVacio();
-                        return;
-                    }
+            // snapshots → QuerySnapshot
+            // Es una "foto" (snapshot) de los datos en ese momento
+            if (snapshots == null) {
+                Hilos.principal(() ->
+                        Toast.makeText(this, "Error al cargar carrito", Toast.LENGTH_SHORT).show());
+                return;
+            }
+
+            List<CambioItem> cambios = new ArrayList<>();
+            if (completo) {
+                List<DocumentSnapshot> docs = snapshots.getDocuments();
+                for (int i = 0; i < docs.size(); i++) cambios.add(CambioItem.presente(docs.get(i), i));
+                Hilos.principal(() -> reemplazarCarrito(cambios));
+                return;
+            }
+
+            for (DocumentChange cambio : snapshots.getDocumentChanges()) {
+                cambios.add(new CambioItem(cambio));
+            }
+            Hilos.principal(() -> aplicarCambiosCarrito(cambios));
+        });
+    }
+
+    // 🔹 Un DocumentChange ya decodificado (se arma en el hilo de fondo)
+    private static final class CambioItem {
+        final DocumentChange.Type tipo;
+        final String productoId;
+        final ItemCarrito item;
+        final int nuevoIndice;
+
+        CambioItem(DocumentChange cambio) {
+            this(cambio.getType(), cambio.getDocument().getId(),
+                    cambio.getType() == DocumentChange.Type.REMOVED ? null : Decodificador.itemCarrito(cambio.getDocument()),
+                    cambio.getNewIndex());
+        }
+
+        private CambioItem(DocumentChange.Type tipo, String productoId, ItemCarrito item, int nuevoIndice) {
+            this.tipo = tipo;
+            this.productoId = productoId;
+            this.item = item;
+            this.nuevoIndice = nuevoIndice;
+        }
+
+        // Ítem del estado entero (todavía no se sabe si ya estaba en pantalla)
+        static CambioItem presente(DocumentSnapshot doc, int indice) {
+            return new CambioItem(DocumentChange.Type.ADDED, doc.getId(), Decodificador.itemCarrito(doc), indice);
+        }
 
-                    mostrarCarritoConProductos(snapshots);
-                });
+        CambioItem como(DocumentChange.Type otroTipo) {
+            return new CambioItem(otroTipo, productoId, item, nuevoIndice);
+        }
     }
 
     // ============================================================
-    private void mostrarCarritoConProductos(QuerySnapshot snapshots) {
+    // 🔹 Estado entero (al abrir o al volver del segundo plano)
+    // Se compara con lo que hay en pantalla: lo que ya estaba se actualiza,
+    // lo nuevo se agrega y lo que ya no está se quita.
+    private void reemplazarCarrito(List<CambioItem> todos) {
+
+        Set<String> presentes = new HashSet<>();
+        for (CambioItem c : todos) presentes.add(c.productoId);
+
+        List<CambioItem> cambios = new ArrayList<>();
+        for (String productoId : itemsActuales.keySet()) {
+            if (!presentes.contains(productoId)) {
+                cambios.add(new CambioItem(DocumentChange.Type.REMOVED, productoId, null, -1));
+            }
+        }
+        for (CambioItem c : todos) {
+            cambios.add(itemsActuales.containsKey(c.productoId) ? c.como(DocumentChange.Type.MODIFIED) : c);
+        }
+
+        aplicarCambiosCarrito(cambios);
+    }
+
+    // ============================================================
+    // 🔹 Aplica SOLO los documentos que cambiaron (ADDED / MODIFIED / REMOVED)
+    // Cada fila se identifica por productoId → no se re-infla el carrito completo
+    private void aplicarCambiosCarrito(List<CambioItem> cambios) {
+
+        for (CambioItem cambio : cambios) {
+
+            String productoId = cambio.productoId;
+
+            switch (cambio.tipo) {
+                case ADDED: {
+                    ItemCarrito item = cambio.item;
+                    itemsActuales.put(productoId, item);
+                    sumarLinea(item, +1);
+
+                    // Inflar vista del producto (una sola vez por ítem)
+                    View fila = crearFila(productoId);
+                    enlazarFila(fila, item);
+                    llCarrito.addView(fila, Math.min(cambio.nuevoIndice, llCarrito.getChildCount()));
+                    filasPorId.put(productoId, fila);
+                    break;
+                }
+                case MODIFIED: {
+                    ItemCarrito anterior = itemsActuales.get(productoId);
+                    ItemCarrito item = cambio.item;
+
+                    // Si hay un cambio local aún sin escribir, manda la cantidad local
+                    if (anterior != null && escriturasPendientes.containsKey(productoId)) {
+                        item = item.conCantidad(anterior.cantidad);
+                    }
+
+                    if (anterior != null) sumarLinea(anterior, -1);
+                    sumarLinea(item, +1);
+                    itemsActuales.put(productoId, item);
+
+                    View fila = filasPorId.get(productoId);
+                    if (fila != null) enlazarFila(fila, item);
+                    break;
+                }
+                case REMOVED: {
+                    ItemCarrito anterior = itemsActuales.remove(productoId);
+                    if (anterior != null) sumarLinea(anterior, -1);
+
+                    cancelarEscritura(productoId);
+
+                    View fila = filasPorId.remove(productoId);
+                    if (fila != null) llCarrito.removeView(fila);
+                    break;
+                }
+            }
+        }
+
+        if (itemsActuales.isEmpty()) {
+            mostrarCarritoVacio();
+            return;
+        }
 
         scrollCarrito.setVisibility(View.VISIBLE);
         llResumen.setVisibility(View.VISIBLE);
         llCarritoVacio.setVisibility(View.GONE);
 
-        llCarrito.removeAllViews();
-        itemsActuales.clear();
-        subtotalGlobal = 0.0;
+        mostrarTotales();
+    }
+
+    // 🔹 Suma (signo = +1) o resta (signo = -1) una línea a los totales
+    private void sumarLinea(ItemCarrito item, int signo) {
+        subtotalGlobal += signo * item.subtotal();
+        totalItems += signo * item.cantidad;
+    }
+
+    // ============================================================
+    // 🔹 Fila del carrito: los listeners se crean UNA vez y leen la cantidad actual
+    private View crearFila(String productoId) {
+
+        View itemView = LayoutInflater.from(this)
+                .inflate(R.layout.item_carrito, llCarrito, false);
 
-        int totalItems = 0;
+        Button btnMenos = itemView.findViewById(R.id.btnMenos);
+        Button btnMas = itemView.findViewById(R.id.btnMas);
+        Button btnEliminar = itemView.findViewById(R.id.btnEliminarCarrito);
 
-        // 🔹 QuerySnapshot = lista de documentos
-        // 🔹 DocumentSnapshot = un documento específico
-        for (DocumentSnapshot doc : snapshots) {
+        btnMenos.setOnClickListener(v -> cambiarCantidad(productoId, -1));
+        btnMas.setOnClickListener(v -> cambiarCantidad(productoId, +1));
+        btnEliminar.setOnClickListener(v -> eliminarDelCarrito(productoId));
 
-            String nombre = doc.getString("nombre");
-            String proveedor = doc.getString("proveedor");
-            String productoId = doc.getId();
-            String proveedorId = doc.getString("proveedorId");
+        return itemView;
+    }
 
-            Double precio = doc.getDouble("precio");
-            Long cantidad = doc.getLong("cantidad");
+    private void enlazarFila(View itemView, ItemCarrito item) {
 
-            if (precio == null)
-                precio = 0.0;
-            if (cantidad == null)
-                cantidad = 1L;
+        ((TextView) itemView.findViewById(R.id.tvNombreCarrito)).setText(item.nombre);
+        ((TextView) itemView.findViewById(R.id.tvProveedorCarrito)).setText(item.proveedor);
+        ((TextView) itemView.findViewById(R.id.tvPrecioCarrito)).setText(Formatos.dinero(item.precio));
+        ((TextView) itemView.findViewById(R.id.tvCantidadCarrito)).setText(String.valueOf(item.cantidad));
+        ((TextView) itemView.findViewById(R.id.tvSubtotalCarrito))
+                .setText(Formatos.dinero(item.subtotal()));
+    }
 
-            double subtotalItem = precio * cantidad;
+    private void mostrarTotales() {
+        double iva = subtotalGlobal * 0.19;
+        double totalFinal = subtotalGlobal + iva;
 
-            subtotalGlobal += subtotalItem;
-            totalItems += cantidad;
+        tvTotalProductos.setText(totalItems + " productos");
+        tvSubtotal.setText(Formatos.dinero(subtotalGlobal));
+        tvIva.setText(Formatos.dinero(iva));
+        tvTotal.setText(Formatos.dinero(totalFinal));
+    }
 
-            // 🔹 MAP
-            // Un Map funciona como un JSON:
-            // clave → valor
-            Map<String, Object> itemMap = new HashMap<>();
-            itemMap.put("productoId", productoId);
-            itemMap.put("nombre", nombre);
-            itemMap.put("proveedor", proveedor);
-            itemMap.put("proveedorId", proveedorId);
-            itemMap.put("precio", precio);
-            itemMap.put("cantidad", cantidad);
+    // ============================================================
+    // 🔹 Botones + / − : actualización optimista
+    // La UI cambia al instante y la escritura a Firestore espera un momento:
+    // varios toques seguidos terminan en UNA sola escritura por producto.
+    private void cambiarCantidad(String productoId, int delta) {
 
-            itemsActuales.add(itemMap);
+        ItemCarrito anterior = itemsActuales.get(productoId);
+        if (anterior == null)
+            return;
 
-            // Inflar vista del producto
-            View itemView = LayoutInflater.from(this)
-                    .inflate(R.layout.item_carrito, llCarrito, false);
+        long nuevaCantidad = anterior.cantidad + delta;
+        if (nuevaCantidad < 1)
+            return;
 
-            ((TextView) itemView.findViewById(R.id.tvNombreCarrito)).setText(nombre);
-            ((TextView) itemView.findViewById(R.id.tvProveedorCarrito)).setText(proveedor);
-            ((TextView) itemView.findViewById(R.id.tvPrecioCarrito)).setText("$" + String.format("%.0f", precio));
-            ((TextView) itemView.findViewById(R.id.tvCantidadCarrito)).setText(String.valueOf(cantidad));
-            ((TextView) itemView.findViewById(R.id.tvSubtotalCarrito))
-                    .setText("$" + String.format("%.0f", subtotalItem));
+        // Totales incrementales: solo la diferencia de esta línea
+        ItemCarrito item = anterior.conCantidad(nuevaCantidad);
+        sumarLinea(anterior, -1);
+        sumarLinea(item, +1);
+        itemsActuales.put(productoId, item);
 
-            Button btnMenos = itemView.findViewById(R.id.btnMenos);
-            Button btnMas = itemView.findViewById(R.id.btnMas);
-            Button btnEliminar = itemView.findViewById(R.id.btnEliminarCarrito);
+        View fila = filasPorId.get(productoId);
+        if (fila != null) enlazarFila(fila, item);
+        mostrarTotales();
 
-            long cantidadActual = cantidad;
+        programarEscritura(productoId);
+    }
 
-            btnMenos.setOnClickListener(v -> {
-                if (cantidadActual > 1)
-                    actualizarCantidad(productoId, cantidadActual - 1);
-            });
+    private void programarEscritura(String productoId) {
+        cancelarEscritura(productoId);
 
-            btnMas.setOnClickListener(v -> actualizarCantidad(productoId, cantidadActual + 1));
+        Runnable escritura = () -> {
+            escriturasPendientes.remove(productoId);
 
-            btnEliminar.setOnClickListener(v -> eliminarDelCarrito(productoId));
+            ItemCarrito item = itemsActuales.get(productoId);
+            if (item != null)
+                actualizarCantidad(productoId, item.cantidad);
+        };
 
-            llCarrito.addView(itemView);
-        }
+        escriturasPendientes.put(productoId, escritura);
+        handler.postDelayed(escritura, ESPERA_ESCRITURA_MS);
+    }
 
-        double iva = subtotalGlobal * 0.19;
-        double totalFinal = subtotalGlobal + iva;
+    private void cancelarEscritura(String productoId) {
+        Runnable pendiente = escriturasPendientes.remove(productoId);
+        if (pendiente != null)
+            handler.removeCallbacks(pendiente);
+    }
 
-        tvTotalProductos.setText(totalItems + " productos");
-        tvSubtotal.setText("$" + String.format("%.0f", subtotalGlobal));
-        tvIva.setText("$" + String.format("%.0f", iva));
-        tvTotal.setText("$" + String.format("%.0f", totalFinal));
+    // 🔹 Escribe de inmediato todo lo pendiente (al salir o antes de comprar)
+    private void enviarEscriturasPendientes() {
+        for (Runnable escritura : new ArrayList<>(escriturasPendientes.values())) {
+            handler.removeCallbacks(escritura);
+            escritura.run();
+        }
     }
 
     // ============================================================
@@ -273,25 +425,15 @@ public class MiCarrito extends BaseActivity {
                 .setMessage("¿Seguro que deseas vaciar todo el carrito?")
                 .setPositiveButton("Sí", (d, w) -> {
 
-                    // 🔹 BATCH = varias operaciones juntas
-                    // WriteBatch permite borrar muchos documentos en un solo request
-                    WriteBatch batch = db.batch();
-
-                    db.collection("carritos")
-                            .document(user.getUid())
-                            .collection("items")
-                            .get()
-                            .addOnSuccessListener(snapshots -> {
-
-                                // snapshots = QuerySnapshot
-                                for (DocumentSnapshot doc : snapshots) {
-                                    // doc.getReference() → referencia al documento
-                                    batch.delete(doc.getReference());
-                                }
-
-                                batch.commit(); // Ejecuta TODAS las operaciones juntas
-                            });
+                    // Un + / − que aún no se escribió no debe volver a crear el ítem
+                    for (String productoId : new ArrayList<>(escriturasPendientes.keySet())) {
+                        cancelarEscritura(productoId);
+                    }
 
+                    // Los ítems ya están en memoria (itemsActuales): no hace falta re-leerlos
+                    borrarItems(itemsActuales.keySet())
+                            .addOnFailureListener(e -> Toast.makeText(this,
+                                    "Error al vaciar: " + e.getMessage(), Toast.LENGTH_SHORT).show());
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
@@ -304,6 +446,9 @@ public class MiCarrito extends BaseActivity {
             return;
         }
 
+        // Las cantidades que aún esperan escritura se envían antes de comprar
+        enviarEscriturasPendientes();
+
         new AlertDialog.Builder(this)
                 .setTitle("Finalizar compra")
                 .setMessage("¿Deseas confirmar la compra y generar la orden?")
@@ -325,77 +470,105 @@ public class MiCarrito extends BaseActivity {
         String compradorNombre = user.getDisplayName() != null ? user.getDisplayName()
                 : (user.getEmail() != null ? user.getEmail() : "Usuario Anónimo");
 
-        // 🔹 BATCH → para crear muchas órdenes juntas
-        WriteBatch batch = db.batch();
+        // 🔹 Mes de la orden "yyyy-MM": texto ordenable para consultas por periodo
+        String periodo = ResumenProveedor.mesActual();
+
+        /*
+         * 🔹 UNA orden por proveedor:
+         * Los ítems del carrito se agrupan por proveedorId y cada grupo se guarda
+         * como un arreglo "items" dentro de la orden, con el total ya calculado.
+         * Un carrito de 40 productos de 3 proveedores → 3 órdenes (no 40).
+         */
+        Map<String, List<LineaOrden>> lineasPorProveedor = new LinkedHashMap<>();
+        Map<String, String> nombresProveedor = new HashMap<>();
 
-        for (Map<String, Object> item : itemsActuales) {
+        for (ItemCarrito item : itemsActuales.values()) {
 
-            // Extracción desde el MAP
-            String productoId = (String) item.get("productoId");
-            String productoNombre = (String) item.get("nombre");
-            String proveedorNombre = (String) item.get("proveedor");
-            String proveedorId = (String) item.get("proveedorId");
-            double precioUnitario = (double) item.get("precio");
-            long cantidad = (long) item.get("cantidad");
-            double subtotal = precioUnitario * cantidad;
+            String clave = item.proveedorId != null ? item.proveedorId : "";
 
-            // Crear una nueva orden como MAP
-            Map<String, Object> orden = new HashMap<>();
-            orden.put("compradorId", compradorId);
-            orden.put("compradorNombre", compradorNombre);
+            List<LineaOrden> lineas = lineasPorProveedor.get(clave);
+            if (lineas == null) {
+                lineas = new ArrayList<>();
+                lineasPorProveedor.put(clave, lineas);
+                nombresProveedor.put(clave, item.proveedor);
+            }
+            // Línea de la orden (solo datos del producto; el comprador va una vez en la orden)
+            lineas.add(LineaOrden.desde(item));
+        }
 
-            orden.put("productoId", productoId);
-            orden.put("productoNombre", productoNombre);
+        // 🔹 Armar una orden por proveedor (subtotal y unidades salen de las líneas)
+        List<Orden> ordenes = new ArrayList<>();
 
-            orden.put("proveedorNombre", proveedorNombre);
-            orden.put("proveedorId", proveedorId);
+        for (Map.Entry<String, List<LineaOrden>> grupo : lineasPorProveedor.entrySet()) {
+            String proveedorId = grupo.getKey().isEmpty() ? null : grupo.getKey();
 
-            orden.put("cantidad", cantidad);
-            orden.put("precioUnitario", precioUnitario);
-            orden.put("subtotal", subtotal);
+            ordenes.add(Orden.nueva(compradorId, compradorNombre, proveedorId,
+                    nombresProveedor.get(grupo.getKey()), periodo, grupo.getValue()));
+        }
 
-            // 🔹 serverTimestamp() → hora exacta del servidor
-            orden.put("fechaCreacion", FieldValue.serverTimestamp());
-            orden.put("estado", "pendiente");
-            orden.put("confirmacionProveedor", "pendiente");
+        /*
+         * 🔹 TRANSACCIÓN (ServicioOrdenes.crearOrdenes):
+         * reserva el stock de todos los productos y crea las órdenes juntas.
+         * Si algún producto ya no tiene unidades disponibles, no se crea nada
+         * y el carrito queda como estaba.
+         */
+        new ServicioOrdenes(db).crearOrdenes(ordenes)
+                .addOnSuccessListener(resultado -> {
 
-            // Genera ID automáticamente
-            DocumentReference ordenRef = db.collection("ordenes").document();
+                    // Se borran del carrito solo los productos que quedaron en una orden
+                    borrarItems(resultado.productosOrdenados);
 
-            // Se agrega al batch la creación de cada orden
-            batch.set(ordenRef, orden);
-        }
+                    if (resultado.errores.isEmpty()) {
+                        Toast.makeText(this, "✅ Orden generada correctamente", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    // Compra parcial: el resto sigue en el carrito
+                    StringBuilder detalle = new StringBuilder(resultado.productosOrdenados.isEmpty()
+                            ? "No se pudo generar la orden:\n"
+                            : "Se ordenaron " + resultado.productosOrdenados.size()
+                                    + " productos. Los demás siguen en el carrito:\n");
+                    for (String error : resultado.errores) {
+                        detalle.append("\n• ").append(error);
+                    }
 
-        batch.commit()
-                .addOnSuccessListener(aVoid -> {
-                    Toast.makeText(this, "✅ Orden generada correctamente", Toast.LENGTH_SHORT).show();
-                    vaciarCarritoSilencioso();
-                });
+                    new AlertDialog.Builder(this)
+                            .setTitle("Finalizar compra")
+                            .setMessage(detalle.toString())
+                            .setPositiveButton("OK", null)
+                            .show();
+                })
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "❌ " + e.getMessage(), Toast.LENGTH_LONG).show());
     }
 
     // ============================================================
-    private void vaciarCarritoSilencioso() {
+    // 🔹 Borrar ítems del carrito con EscritorPorLotes
+    // Tramos de 450 borrados en paralelo → carritos de cualquier tamaño.
+    // Los IDs salen de itemsActuales (ID del ítem = productoId), sin volver a consultar.
+    private Task<Void> borrarItems(Collection<String> productoIds) {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null)
-            return;
+            return Tasks.forResult(null);
 
-        WriteBatch batch = db.batch();
-
-        db.collection("carritos")
+        CollectionReference items = db.collection("carritos")
                 .document(user.getUid())
-                .collection("items")
-                .get()
-                .addOnSuccessListener(snapshots -> {
+                .collection("items");
 
-                    for (DocumentSnapshot doc : snapshots) {
-                        batch.delete(doc.getReference());
-                    }
-
-                    batch.commit();
-                });
+        EscritorPorLotes escritor = new EscritorPorLotes(db);
+        for (String productoId : new ArrayList<>(productoIds)) {
+            escritor.delete(items.document(productoId));
+        }
+        return escritor.commit();
     }
 
     private void mostrarCarritoVacio() {
+        llCarrito.removeAllViews();
+        filasPorId.clear();
+        itemsActuales.clear();
+        subtotalGlobal = 0.0;
+        totalItems = 0;
+
         scrollCarrito.setVisibility(View.GONE);
         llResumen.setVisibility(View.GONE);
         llCarritoVacio.setVisibility(View.VISIBLE);
@@ -405,9 +578,9 @@ public class MiCarrito extends BaseActivity {
     protected void onStop() {
         super.onStop();
 
-        // 🔹 IMPORTANTE:
-        // Remove del listener para evitar memoria fugada
-        if (carritoListener != null)
-            carritoListener.remove();
+        // No perder los toques de + / − que aún no se escribieron
+        enviarEscriturasPendientes();
+
+        // La escucha del carrito la pausa BaseActivity (y la reactiva en onStart)
     }
 }
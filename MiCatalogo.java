@@ -11,23 +11,31 @@ import android.widget.*;
 import androidx.appcompat.app.AlertDialog;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
 // Firebase Firestore — base de datos noSQL en la nube con documentos y colecciones.
-import com.google.firebase.firestore.DocumentSnapshot;   // Foto 1 documento
+import com.google.firebase.firestore.DocumentChange;     // Cambio puntual (ADDED/MODIFIED/REMOVED)
+import com.google.firebase.firestore.DocumentSnapshot;   // Documento que cambió
 import com.google.firebase.firestore.FirebaseFirestore; // Acceso a Firestore
-import com.google.firebase.firestore.Query;             // Consultas ordenadas
-import com.google.firebase.firestore.QuerySnapshot;     // Foto varios documentos
+import com.google.firebase.firestore.Query;             // Consulta de la escucha
+import com.google.firebase.firestore.WriteBatch;        // Varias escrituras atómicas
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class MiCatalogo extends BaseActivity {
 
     // --- Firebase ---
     private FirebaseAuth auth;           // Maneja sesión del usuario
     private FirebaseFirestore db;        // Conexión a Firestore
+    private CatalogoLocal catalogoLocal; // Copia local de "productos" (se usa en Hilos.FONDO)
 
     // --- Vistas ---
     private LinearLayout llProductos, llProductosRecientes;
@@ -35,6 +43,12 @@ public class MiCatalogo extends BaseActivity {
     private TextView tvProductosCount;
     private TextView tvNombreEmpresa;
 
+    // --- Estado de la lista (clave = ID del producto) ---
+    private static final int CANTIDAD_RECIENTES = 2;
+    private final Map<String, View> cardsPorId = new HashMap<>();
+    private final TreeMap<String, Producto> productosPorId = new TreeMap<>(); // ordenado → posición de la card
+    private List<String> idsRecientes = new ArrayList<>();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -42,6 +56,7 @@ public class MiCatalogo extends BaseActivity {
 
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        catalogoLocal = CatalogoLocal.get(this);
 
         // Vistas XML
         llProductos = findViewById(R.id.llProductos);
@@ -60,9 +75,8 @@ public class MiCatalogo extends BaseActivity {
         // 🔹 Cargar info del proveedor
         cargarDatosProveedor(user);
 
-        // 🔹 Escucha en tiempo real
+        // 🔹 Escucha en tiempo real (también alimenta "productos recientes")
         escucharProductosEnTiempoReal();
-        escucharProductosRecientes();
 
         // 🔹 Botón agregar producto
         btnAgregarProducto.setOnClickListener(v -> mostrarModalAgregarProducto());
@@ -98,26 +112,14 @@ public class MiCatalogo extends BaseActivity {
     // 📌 Cargar datos del proveedor (empresa)
     private void cargarDatosProveedor(FirebaseUser user) {
 
-        // Aquí obtenemos UN documento → DocumentSnapshot
-        db.collection("proveedores").document(user.getUid()).get()
-                .addOnSuccessListener(documentSnapshot -> {
-
-                    /*
-                     * DocumentSnapshot:
-                     * Es una "foto" del documento en Firestore en ese momento.
-                     * Permite leer campos con .getString(), .getLong(), etc.
-                     */
-
-                    if (documentSnapshot.exists()) {
-                        String nombre = documentSnapshot.getString("empresa");
-                        tvNombreEmpresa.setText(nombre != null ? nombre : "Empresa sin nombre");
-                    } else {
-                        tvNombreEmpresa.setText("Perfil no encontrado");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    tvNombreEmpresa.setText("Error al cargar");
-                });
+        // Perfil guardado al iniciar sesión (SesionUsuario) → sin lectura a Firestore
+        SesionUsuario.obtener(this, db, sesion -> {
+            if (sesion != null) {
+                tvNombreEmpresa.setText(sesion.empresa != null ? sesion.empresa : "Empresa sin nombre");
+            } else {
+                tvNombreEmpresa.setText("Perfil no encontrado");
+            }
+        });
     }
 
     // ===============================================================
@@ -185,7 +187,10 @@ public class MiCatalogo extends BaseActivity {
             producto.put("stock", stock);
             producto.put("estado", "activo");
             producto.put("proveedorId", user.getUid());
-            producto.put("proveedorNombre", tvNombreEmpresa.getText().toString());
+            producto.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+            SesionUsuario sesion = SesionUsuario.get(this);
+            producto.put("proveedorNombre", sesion != null && sesion.empresa != null
+                    ? sesion.empresa : tvNombreEmpresa.getText().toString());
 
             // 🔹 Verificar si el código ya existe
             db.collection("productos").document(codigo)
@@ -197,13 +202,20 @@ public class MiCatalogo extends BaseActivity {
                          * Permite preguntar .exists() para saber si ya hay un producto igual.
                          */
 
-                        if (existing.exists()) {
+                        // Un producto borrado (lápida) deja reusar su código: set() lo reemplaza entero
+                        if (existing.exists() && !CatalogoLocal.esLapida(existing)) {
                             Toast.makeText(this, "⚠️ Ese código ya existe", Toast.LENGTH_SHORT).show();
                         } else {
 
-                            // Guardar producto
-                            db.collection("productos").document(codigo)
-                                    .set(producto)  // .set() crea o reemplaza
+                            // Guardar producto + actualizar el resumen del dashboard en el mismo batch
+                            WriteBatch batch = db.batch();
+                            batch.set(db.collection("productos").document(codigo), producto); // .set() crea o reemplaza
+                            batch.set(ResumenCatalogo.ref(db, codigo), ResumenCatalogo.de(producto)); // versión liviana para las listas
+                            new ResumenProveedor.Cambio()
+                                    .producto(true, stock, +1)
+                                    .aplicar(batch, ResumenProveedor.ref(db, user.getUid()));
+
+                            batch.commit()
                                     .addOnSuccessListener(x -> {
                                         Toast.makeText(this, "Producto agregado", Toast.LENGTH_SHORT).show();
                                         dialog.dismiss();
@@ -216,99 +228,204 @@ public class MiCatalogo extends BaseActivity {
     }
 
     // ===============================================================
-    // 📌 Escucha en tiempo real los productos del proveedor
+    // 📌 Productos del proveedor: copia local primero, después solo cambios
     private void escucharProductosEnTiempoReal() {
 
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) return;
+        String uid = user.getUid();
+
+        /*
+         * 1) Las cards salen de la copia local (CatalogoLocal) → sin descargas.
+         * 2) Si no hay copia de ESTE proveedor, se bajan solo sus productos
+         *    (proveedorId = uid, de a páginas), no el catálogo de todos.
+         * 3) Desde ahí se escucha en TIEMPO REAL solo lo que cambió después
+         *    de la marca (updatedAt > marca): abrir la pantalla ya no
+         *    vuelve a bajar todo el catálogo del proveedor.
+         */
+        Hilos.preparar(() -> catalogoLocal.delProveedor(uid), locales -> {
+            for (Producto producto : locales) mostrarProducto(producto);
+            actualizarTotal();
+            actualizarProductosRecientes(true);
+
+            Hilos.preparar(() -> catalogoLocal.consultarDesdeProveedor(uid), desde -> {
+                if (desde != null) {
+                    escucharCambiosDesde(uid, desde);
+                    return;
+                }
+                catalogoLocal.sincronizarProveedor(uid)
+                        .addOnSuccessListener(Hilos.FONDO, delta -> {
+                            Timestamp nueva = catalogoLocal.consultarDesdeProveedor(uid);
+                            Hilos.principal(() -> {
+                                aplicarCambios(uid, delta);
+                                escucharCambiosDesde(uid, nueva != null ? nueva : CatalogoLocal.DESDE_SIEMPRE);
+                            });
+                        })
+                        .addOnFailureListener(e ->
+                                Toast.makeText(this, "❌ Error al cargar productos", Toast.LENGTH_SHORT).show());
+            });
+        });
+    }
+
+    private void escucharCambiosDesde(String uid, Timestamp desde) {
 
         /*
          * addSnapshotListener():
          * Escucha cambios en TIEMPO REAL.
-         * QuerySnapshot:
-         * Representa VARIOS documentos (como un array de DocumentSnapshots).
+         *
+         * getDocumentChanges():
+         * Solo los documentos que cambiaron desde el evento anterior.
+         * Un producto borrado llega como MODIFIED con la lápida
+         * (ver CatalogoLocal); REMOVED solo pasa con un delete() real.
+         *
+         * Hilos.FONDO: se guarda en la copia local antes de tocar las cards.
+         * Lee catalogo_resumen (ver ResumenCatalogo): índice compuesto proveedorId + updatedAt.
+         *
+         * escuchar() (BaseActivity): se pausa en segundo plano y se quita al
+         * cerrar la pantalla. Al volver llega todo lo posterior a la marca
+         * (completo): guardarlo otra vez en la copia local no cambia nada.
          */
-        db.collection("productos")
-                .whereEqualTo("proveedorId", user.getUid())
-                .addSnapshotListener((snapshots, e) -> {
+        Query cambios = ResumenCatalogo.coleccion(db)
+                .whereEqualTo("proveedorId", uid)
+                .whereGreaterThan(CatalogoLocal.ACTUALIZADO, desde);
 
-                    if (e != null || snapshots == null) {
-                        return;
-                    }
+        escuchar("cambios", cambios, (snapshots, completo) -> {
 
-                    // Limpiar UI
-                    llProductos.removeAllViews();
-                    int count = 0;
+            if (snapshots == null) {
+                return;
+            }
 
-                    for (DocumentSnapshot doc : snapshots) {
-                        // Inflate → Convierte un XML en una vista lista para usar.
-                        View card = LayoutInflater.from(this)
-                                .inflate(R.layout.item_producto_card, llProductos, false);
+            List<DocumentSnapshot> cambiados = new ArrayList<>();
+            List<String> borrados = new ArrayList<>();
 
-                        llenarCardProducto(doc, card);
-                        llProductos.addView(card);
-                        count++;
+            if (completo) {
+                cambiados.addAll(snapshots.getDocuments());
+            } else {
+                for (DocumentChange cambio : snapshots.getDocumentChanges()) {
+                    if (cambio.getType() == DocumentChange.Type.REMOVED) {
+                        borrados.add(cambio.getDocument().getId());
+                    } else {
+                        cambiados.add(cambio.getDocument());
                     }
+                }
+            }
 
-                    tvProductosCount.setText(
-                            count == 0 ? "No hay productos" :
-                            count == 1 ? "1 producto" :
-                            count + " productos"
-                    );
-                });
+            CatalogoLocal.Delta delta = catalogoLocal.aplicar(cambiados);
+            for (String id : borrados) catalogoLocal.quitar(id);
+            delta.eliminados.addAll(borrados);
+
+            // La próxima apertura escucha desde acá (y no vuelve a bajar todo)
+            for (DocumentSnapshot doc : cambiados) {
+                catalogoLocal.avanzarMarcaProveedor(uid, doc.getTimestamp(CatalogoLocal.ACTUALIZADO));
+            }
+
+            Hilos.principal(() -> aplicarCambios(uid, delta));
+        });
     }
 
-    // ===============================================================
-    // 📌 Productos recientes ordenados por código
-    private void escucharProductosRecientes() {
+    // Cards: una por producto, en orden de ID (como venían de Firestore)
+    private void aplicarCambios(String uid, CatalogoLocal.Delta delta) {
 
-        FirebaseUser user = auth.getCurrentUser();
-        if (user == null) return;
+        boolean cambiaronRecientes = false;
 
-        /*
-         * Query + orderBy
-         *
-         * Firestore permite ordenar documentos por un campo.
-         * orderBy("codigo", DESC) → últimos productos agregados.
-         *
-         * limit(2) → solo trae los 2 primeros.
-         */
-        db.collection("productos")
-                .whereEqualTo("proveedorId", user.getUid())
-                .orderBy("codigo", Query.Direction.DESCENDING)
-                .limit(2)
-                .addSnapshotListener((snapshots, e) -> {
+        for (Producto producto : delta.cambiados) {
+            if (!uid.equals(producto.proveedorId)) continue; // por las dudas: la copia local puede tener otros proveedores
+            mostrarProducto(producto);
+            if (idsRecientes.contains(producto.id)) cambiaronRecientes = true;
+        }
+
+        for (String id : delta.eliminados) {
+            View card = cardsPorId.remove(id);
+            if (card != null) llProductos.removeView(card);
+            if (productosPorId.remove(id) != null && idsRecientes.contains(id)) cambiaronRecientes = true;
+        }
 
-                    if (snapshots == null) return;
+        actualizarTotal();
+        actualizarProductosRecientes(cambiaronRecientes);
+    }
 
-                    llProductosRecientes.removeAllViews();
+    private void mostrarProducto(Producto producto) {
 
-                    for (DocumentSnapshot doc : snapshots) {
-                        View card = LayoutInflater.from(this)
-                                .inflate(R.layout.item_producto_card, llProductosRecientes, false);
-                        llenarCardProducto(doc, card);
-                        llProductosRecientes.addView(card);
-                    }
-                });
+        String id = producto.id;
+        productosPorId.put(id, producto);
+
+        View card = cardsPorId.get(id);
+        if (card == null) {
+            // Inflate → Convierte un XML en una vista lista para usar.
+            card = LayoutInflater.from(this)
+                    .inflate(R.layout.item_producto_card, llProductos, false);
+            llProductos.addView(card, productosPorId.headMap(id).size());
+            cardsPorId.put(id, card);
+        }
+        llenarCardProducto(producto, card); // nueva o re-bind de la misma card
+    }
+
+    private void actualizarTotal() {
+        int count = productosPorId.size();
+        tvProductosCount.setText(
+                count == 0 ? "No hay productos" :
+                count == 1 ? "1 producto" :
+                count + " productos"
+        );
+    }
+
+    // ===============================================================
+    // 📌 Productos recientes: los 2 con código más alto
+    // Se calculan desde el mismo listener (antes era una segunda consulta)
+    private void actualizarProductosRecientes(boolean forzar) {
+
+        List<Producto> recientes = new ArrayList<>();
+        for (Producto producto : productosPorId.values()) {
+            recientes.add(producto);
+            if (recientes.size() > CANTIDAD_RECIENTES) {
+                Collections.sort(recientes, POR_CODIGO_DESC);
+                recientes.remove(recientes.size() - 1);
+            }
+        }
+        Collections.sort(recientes, POR_CODIGO_DESC);
+
+        List<String> ids = new ArrayList<>();
+        for (Producto producto : recientes) ids.add(producto.id);
+
+        // Si no cambió cuáles son ni su contenido, no se toca la sección
+        if (!forzar && ids.equals(idsRecientes)) return;
+
+        idsRecientes = ids;
+        llProductosRecientes.removeAllViews();
+
+        for (Producto producto : recientes) {
+            View card = LayoutInflater.from(this)
+                    .inflate(R.layout.item_producto_card, llProductosRecientes, false);
+            llenarCardProducto(producto, card);
+            llProductosRecientes.addView(card);
+        }
     }
 
+    // orderBy("codigo", DESC) hecho en memoria
+    private static final Comparator<Producto> POR_CODIGO_DESC = (a, b) -> {
+        String ca = a.codigo != null ? a.codigo : "";
+        String cb = b.codigo != null ? b.codigo : "";
+        return cb.compareTo(ca);
+    };
+
     // ===============================================================
     // 📌 Rellena una card de producto
-    private void llenarCardProducto(DocumentSnapshot doc, View card) {
+    private void llenarCardProducto(Producto producto, View card) {
 
-        // DocumentSnapshot permite leer el valor de cada campo
-        ((TextView) card.findViewById(R.id.tvNombre)).setText(doc.getString("nombre"));
-        ((TextView) card.findViewById(R.id.tvCodigo)).setText("Código: " + doc.getString("codigo"));
+        // Producto ya decodificado: precio y stock son números
+        ((TextView) card.findViewById(R.id.tvNombre)).setText(producto.nombre);
+        ((TextView) card.findViewById(R.id.tvCodigo)).setText("Código: " + producto.codigo);
 
-        ((TextView) card.findViewById(R.id.tvCategoria)).setText("Categoría: " + doc.getString("categoria"));
-        ((TextView) card.findViewById(R.id.tvDescripcion)).setText(doc.getString("descripcion"));
-        ((TextView) card.findViewById(R.id.tvPrecio)).setText("$" + documentToString(doc.get("precio")));
-        ((TextView) card.findViewById(R.id.tvStock)).setText(documentToString(doc.get("stock")) + " unidades");
+        ((TextView) card.findViewById(R.id.tvCategoria)).setText("Categoría: " + producto.categoria);
+        ((TextView) card.findViewById(R.id.tvDescripcion)).setText(producto.descripcion);
+        ((TextView) card.findViewById(R.id.tvPrecio)).setText("$" + (long) producto.precio);
+        // Unidades apartadas por órdenes aún sin confirmar (ver ReservasStock)
+        ((TextView) card.findViewById(R.id.tvStock)).setText(producto.stock + " unidades"
+                + (producto.reservado > 0 ? " (" + producto.reservado + " reservadas)" : ""));
 
-        String estado = doc.getString("estado");
         TextView tvEstado = card.findViewById(R.id.tvEstado);
 
-        if ("activo".equalsIgnoreCase(estado)) {
+        if ("activo".equalsIgnoreCase(producto.estado)) {
             tvEstado.setText("Estado: Activo");
             tvEstado.setTextColor(Color.parseColor("#2E7D32"));
             tvEstado.setBackgroundResource(R.drawable.badge_estado_activo);
@@ -326,12 +443,19 @@ public class MiCatalogo extends BaseActivity {
                     .setMessage("¿Seguro que deseas eliminar este producto?")
                     .setPositiveButton("Sí", (d, w) -> {
 
-                        // delete() elimina un documento por ID
-                        db.collection("productos").document(doc.getId())
-                                .delete()
-                                .addOnSuccessListener(x -> {
-                                    llProductos.removeView(card);
-                                });
+                        // Borrado lógico (lápida): así las copias locales también se enteran (ver CatalogoLocal)
+                        // El resumen del proveedor descuenta el producto en el mismo batch
+                        WriteBatch batch = db.batch();
+                        batch.update(db.collection("productos").document(producto.id), CatalogoLocal.lapida());
+                        Map<String, Object> lapida = ResumenCatalogo.de(producto);
+                        lapida.putAll(CatalogoLocal.lapida());
+                        batch.set(ResumenCatalogo.ref(db, producto.id), lapida); // completo: sin resúmenes a medias
+                        new ResumenProveedor.Cambio()
+                                .producto(producto.esActivo(), producto.stock, -1)
+                                .aplicar(batch, ResumenProveedor.ref(db, producto.proveedorId));
+
+                        // La card se quita sola cuando el listener recibe la lápida
+                        batch.commit();
 
                     })
                     .setNegativeButton("Cancelar", null)
@@ -340,19 +464,19 @@ public class MiCatalogo extends BaseActivity {
 
         // --- Editar producto ---
         card.findViewById(R.id.btnEditar).setOnClickListener(v -> {
-            mostrarModalEditarProducto(doc);
+            // La card tiene el resumen (descripción recortada): se edita el documento completo
+            db.collection("productos").document(producto.id).get()
+                    .addOnSuccessListener(doc -> {
+                        if (doc.exists()) mostrarModalEditarProducto(Decodificador.producto(doc));
+                    })
+                    .addOnFailureListener(e ->
+                            Toast.makeText(this, "❌ No se pudo abrir el producto", Toast.LENGTH_SHORT).show());
         });
     }
 
-    private String documentToString(Object obj) {
-        return (obj instanceof Number)
-                ? String.valueOf(((Number) obj).longValue())
-                : (obj != null ? obj.toString() : "0");
-    }
-
     // ===============================================================
     // 📌 Modal para editar producto existente
-    private void mostrarModalEditarProducto(DocumentSnapshot doc) {
+    private void mostrarModalEditarProducto(Producto producto) {
 
         Dialog dialog = new Dialog(this);
         dialog.setContentView(R.layout.modal_editar_producto);
@@ -375,12 +499,12 @@ public class MiCatalogo extends BaseActivity {
         Button btnGuardarEdit = dialog.findViewById(R.id.btnGuardarEdit);
         Button btnCancelarEdit = dialog.findViewById(R.id.btnCancelarEdit);
 
-        // Prellenar con valores del DocumentSnapshot
-        etNombreEdit.setText(doc.getString("nombre"));
-        etCategoriaEdit.setText(doc.getString("categoria"));
-        etDescripcionEdit.setText(doc.getString("descripcion"));
-        etPrecioEdit.setText(String.valueOf(doc.get("precio")));
-        etStockEdit.setText(String.valueOf(doc.get("stock")));
+        // Prellenar con los valores del producto (enteros, para que Long.parseLong los acepte)
+        etNombreEdit.setText(producto.nombre);
+        etCategoriaEdit.setText(producto.categoria);
+        etDescripcionEdit.setText(producto.descripcion);
+        etPrecioEdit.setText(String.valueOf((long) producto.precio));
+        etStockEdit.setText(String.valueOf(producto.stock));
 
         btnCancelarEdit.setOnClickListener(v -> dialog.dismiss());
 
@@ -402,10 +526,23 @@ public class MiCatalogo extends BaseActivity {
             actualizaciones.put("descripcion", etDescripcionEdit.getText().toString());
             actualizaciones.put("precio", precio);
             actualizaciones.put("stock", stock);
+            actualizaciones.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
 
             // update() actualiza SOLO los campos enviados
-            db.collection("productos").document(doc.getId())
-                    .update(actualizaciones)
+            // El resumen cambia solo si el producto entra o sale de "stock bajo"
+            boolean activo = producto.esActivo();
+            WriteBatch batch = db.batch();
+            batch.update(db.collection("productos").document(producto.id), actualizaciones);
+            // Resumen entero: el producto completo (leído al abrir el modal) + los cambios
+            Map<String, Object> resumen = ResumenCatalogo.de(producto);
+            resumen.putAll(ResumenCatalogo.de(actualizaciones));
+            batch.set(ResumenCatalogo.ref(db, producto.id), resumen);
+            new ResumenProveedor.Cambio()
+                    .producto(activo, producto.stock, -1)
+                    .producto(activo, stock, +1)
+                    .aplicar(batch, ResumenProveedor.ref(db, producto.proveedorId));
+
+            batch.commit()
                     .addOnSuccessListener(x -> dialog.dismiss());
         });
 
@@ -0,0 +1,406 @@
+package com.proveenet.proveenet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * MIGRACIÓN DE TIPOS (precio / stock / cantidades)
+ * ==============================================================
+ * Versiones antiguas guardaban números como texto ("$12.000", "5")
+ * o como decimales (stock 7.0). Mientras existan esos documentos:
+ *   - todo tiene que pasar por Decodificador para no crashear
+ *   - no se puede consultar por rango (whereLessThanOrEqualTo("stock", 5)
+ *     ignora los documentos donde "stock" es String)
+ *
+ * Esta migración recorre, de a páginas (cursor por documentId):
+ *   1) productos            → precio (número), stock / reservado (entero)
+ *   2) ordenes              → subtotal, unidades, cantidadItems y cada item
+ *   3) carritos/{uid}/items → precio (número), cantidad (entero)
+ *   4) catalogo_resumen     → proyección de cada producto (ver ResumenCatalogo)
+ *
+ * y reescribe SOLO los campos con tipo incorrecto (EscritorPorLotes,
+ * tramos de 450). Un valor sin número ("abc") no se toca: se informa.
+ * El paso 4 escribe el resumen de TODOS los productos (ya corregidos).
+ *
+ * Reanudable: después de cada página escrita se guarda el cursor en
+ * SharedPreferences. Si la app se cierra a mitad, ejecutar() sigue
+ * desde la última página confirmada (repetir una página es inofensivo:
+ * los valores ya corregidos no se vuelven a escribir).
+ *
+ * Probar contra el emulador (build debug):
+ *   FirebaseFirestore.getInstance().useEmulator("10.0.2.2", 8080); // antes de usar Firestore
+ *   MigracionTipos.sembrarDatosDePrueba(db, 500);                  // datos con tipos mezclados
+ *   new MigracionTipos(context, db).ejecutar(listener);
+ */
+public class MigracionTipos {
+
+    static final int TAMANO_PAGINA = 200;
+
+    // Ejemplos de valores no convertibles que se guardan en el reporte
+    private static final int MAX_EJEMPLOS = 20;
+
+    private static final String PREFS = "migracion_tipos";
+
+    // Pasos en orden de ejecución
+    static final String PRODUCTOS = "productos";
+    static final String ORDENES = "ordenes";
+    static final String ITEMS_CARRITO = "carritos/items";
+    static final String RESUMEN = ResumenCatalogo.COLECCION;
+    private static final String[] PASOS = {PRODUCTOS, ORDENES, ITEMS_CARRITO, RESUMEN};
+
+    public interface Listener {
+        void onProgreso(String paso, long leidos);
+    }
+
+    // ==============================================================
+    // 🔹 Reporte por paso
+    // ==============================================================
+    public static class Paso {
+        public final String nombre;
+        public long leidos;
+        public long corregidos;        // documentos reescritos
+        public long noConvertibles;    // campos con texto sin número
+        public boolean terminado;
+        public final List<String> ejemplos = new ArrayList<>();
+
+        Paso(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    public static class Reporte {
+        public final Map<String, Paso> pasos = new LinkedHashMap<>();
+
+        public String resumen() {
+            StringBuilder texto = new StringBuilder();
+            for (Paso paso : pasos.values()) {
+                if (texto.length() > 0) texto.append("\n\n");
+                texto.append(paso.nombre).append(paso.terminado ? "" : " (incompleto)")
+                        .append("\n• Leídos: ").append(paso.leidos)
+                        .append("\n• Corregidos: ").append(paso.corregidos)
+                        .append("\n• No convertibles: ").append(paso.noConvertibles);
+                for (String ejemplo : paso.ejemplos) texto.append("\n   ").append(ejemplo);
+            }
+            return texto.toString();
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+
+    public MigracionTipos(Context context, FirebaseFirestore db) {
+        this.db = db;
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    // 🔹 Borra el checkpoint: la próxima ejecución empieza desde cero
+    public void reiniciar() {
+        prefs.edit().clear().apply();
+    }
+
+    // ==============================================================
+    // 🔹 Ejecutar (o reanudar) todos los pasos
+    // ==============================================================
+    public Task<Reporte> ejecutar(Listener listener) {
+        Reporte reporte = new Reporte();
+        Task<Void> cadena = Tasks.forResult(null);
+
+        for (String nombre : PASOS) {
+            Paso paso = leerCheckpoint(nombre);
+            reporte.pasos.put(nombre, paso);
+
+            if (paso.terminado) continue;
+            cadena = cadena.continueWithTask(t -> {
+                if (!t.isSuccessful()) return t; // un paso falló → no seguir
+                return migrarPagina(paso, prefs.getString(clave(nombre, "cursor"), null), listener);
+            });
+        }
+
+        // Todos los pasos listos → las listas ya pueden leer catalogo_resumen
+        cadena = cadena.onSuccessTask(x -> ResumenCatalogo.marcarListo(db));
+
+        // Si falla, el reporte parcial queda en el checkpoint (se ve al reanudar)
+        return cadena.continueWith(t -> {
+            if (!t.isSuccessful()) throw t.getException();
+            return reporte;
+        });
+    }
+
+    // ==============================================================
+    // 🛠 Solo el paso "catalogo_resumen" (menú de desarrollo de DashboardProveedor)
+    // ==============================================================
+    /*
+     * Recorre TODOS los productos y escribe el resumen de cada uno: es un
+     * trabajo de administración (una vez, con reglas que lo permitan), no
+     * algo que corra cada proveedor al abrir la app.
+     * Si ya está terminado (migraciones/catalogo_resumen) no hace nada.
+     * Si se corta, la próxima vez sigue desde su checkpoint.
+     */
+    public Task<Void> rellenarResumen(Context context) {
+        return ResumenCatalogo.comprobar(context, db).onSuccessTask(listo -> {
+            if (Boolean.TRUE.equals(listo)) return Tasks.forResult(null);
+
+            Paso paso = leerCheckpoint(RESUMEN);
+            Task<Void> relleno = paso.terminado
+                    ? Tasks.forResult(null)
+                    : migrarPagina(paso, prefs.getString(clave(RESUMEN, "cursor"), null), null);
+            return relleno.onSuccessTask(x -> ResumenCatalogo.marcarListo(db));
+        });
+    }
+
+    // Consulta base de cada paso (orden estable por documentId para el cursor)
+    private Query consulta(String paso) {
+        switch (paso) {
+            case PRODUCTOS:
+            case RESUMEN:
+                return db.collection("productos").orderBy(FieldPath.documentId());
+            case ORDENES:
+                return db.collection("ordenes").orderBy(FieldPath.documentId());
+            default:
+                // Grupo de colecciones: el documentId del cursor es la ruta completa
+                return db.collectionGroup("items").orderBy(FieldPath.documentId());
+        }
+    }
+
+    private Task<Void> migrarPagina(Paso paso, String cursor, Listener listener) {
+
+        Query query = consulta(paso.nombre);
+        if (cursor != null) query = query.startAfter(cursor);
+
+        return query.limit(TAMANO_PAGINA).get().continueWithTask(t -> {
+            List<DocumentSnapshot> pagina = t.getResult().getDocuments();
+
+            if (pagina.isEmpty()) {
+                paso.terminado = true;
+                guardarCheckpoint(paso, cursor);
+                return Tasks.forResult(null);
+            }
+
+            EscritorPorLotes escritor = new EscritorPorLotes(db);
+            for (DocumentSnapshot doc : pagina) {
+                if (RESUMEN.equals(paso.nombre)) {
+                    // Se reescribe entero: repetir la página da el mismo resultado
+                    escritor.set(ResumenCatalogo.ref(db, doc.getId()), ResumenCatalogo.de(doc.getData()));
+                    paso.corregidos++;
+                    continue;
+                }
+
+                Map<String, Object> cambios = correcciones(paso, doc);
+                if (!cambios.isEmpty()) {
+                    escritor.update(doc.getReference(), cambios);
+                    paso.corregidos++;
+                }
+            }
+            paso.leidos += pagina.size();
+
+            DocumentSnapshot ultimo = pagina.get(pagina.size() - 1);
+            String siguiente = ITEMS_CARRITO.equals(paso.nombre)
+                    ? ultimo.getReference().getPath()
+                    : ultimo.getId();
+
+            return escritor.commit().continueWithTask(commit -> {
+                if (!commit.isSuccessful()) return commit;
+
+                // Checkpoint solo después de escribir la página
+                paso.terminado = pagina.size() < TAMANO_PAGINA;
+                guardarCheckpoint(paso, siguiente);
+                if (listener != null) listener.onProgreso(paso.nombre, paso.leidos);
+
+                if (paso.terminado) return Tasks.forResult(null);
+                return migrarPagina(paso, siguiente, listener);
+            });
+        });
+    }
+
+    // ==============================================================
+    // 🔹 Campos a corregir de un documento (vacío = ya está bien)
+    // ==============================================================
+    private Map<String, Object> correcciones(Paso paso, DocumentSnapshot doc) {
+        Map<String, Object> cambios = new HashMap<>();
+        String ruta = doc.getReference().getPath();
+
+        switch (paso.nombre) {
+            case PRODUCTOS:
+                decimal(paso, ruta, doc.get("precio"), "precio", cambios);
+                entero(paso, ruta, doc.get("stock"), "stock", cambios);
+                entero(paso, ruta, doc.get(ReservasStock.RESERVADO), ReservasStock.RESERVADO, cambios);
+                // Las copias locales (CatalogoLocal) reciben el valor corregido
+                if (!cambios.isEmpty()) cambios.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                break;
+
+            case ORDENES:
+                decimal(paso, ruta, doc.get("subtotal"), "subtotal", cambios);
+                entero(paso, ruta, doc.get("unidades"), "unidades", cambios);
+                entero(paso, ruta, doc.get("cantidadItems"), "cantidadItems", cambios);
+                // Órdenes antiguas: el producto está en la raíz
+                entero(paso, ruta, doc.get("cantidad"), "cantidad", cambios);
+                decimal(paso, ruta, doc.get("precioUnitario"), "precioUnitario", cambios);
+
+                // "items" es un arreglo: si un item cambia se reescribe el arreglo completo
+                Object items = doc.get("items");
+                if (items instanceof List) {
+                    List<Object> corregidos = new ArrayList<>();
+                    boolean cambio = false;
+
+                    for (Object item : (List<?>) items) {
+                        if (!(item instanceof Map)) {
+                            corregidos.add(item);
+                            continue;
+                        }
+                        Map<String, Object> linea = new HashMap<>();
+                        for (Map.Entry<?, ?> e : ((Map<?, ?>) item).entrySet()) {
+                            linea.put(String.valueOf(e.getKey()), e.getValue());
+                        }
+                        Map<String, Object> cambiosLinea = new HashMap<>();
+                        entero(paso, ruta, linea.get("cantidad"), "cantidad", cambiosLinea);
+                        decimal(paso, ruta, linea.get("precioUnitario"), "precioUnitario", cambiosLinea);
+                        decimal(paso, ruta, linea.get("subtotal"), "subtotal", cambiosLinea);
+
+                        if (!cambiosLinea.isEmpty()) {
+                            linea.putAll(cambiosLinea);
+                            cambio = true;
+                        }
+                        corregidos.add(linea);
+                    }
+                    if (cambio) cambios.put("items", corregidos);
+                }
+                break;
+
+            default:
+                decimal(paso, ruta, doc.get("precio"), "precio", cambios);
+                entero(paso, ruta, doc.get("cantidad"), "cantidad", cambios);
+                break;
+        }
+        return cambios;
+    }
+
+    // Cualquier Number sirve (Long y Double se comparan igual en Firestore); el texto no
+    private static void decimal(Paso paso, String ruta, Object valor, String campo, Map<String, Object> cambios) {
+        if (!(valor instanceof String)) return;
+
+        Double numero = Decodificador.leerNumero((String) valor);
+        if (numero != null) cambios.put(campo, numero);
+        else noConvertible(paso, ruta, campo, valor);
+    }
+
+    // Enteros: se corrigen el texto y los decimales (7.0 → 7)
+    private static void entero(Paso paso, String ruta, Object valor, String campo, Map<String, Object> cambios) {
+        if (valor == null || valor instanceof Long || valor instanceof Integer) return;
+
+        Double numero = valor instanceof Number
+                ? Double.valueOf(((Number) valor).doubleValue())
+                : Decodificador.leerNumero(valor.toString());
+
+        if (numero != null) cambios.put(campo, Math.round(numero));
+        else noConvertible(paso, ruta, campo, valor);
+    }
+
+    private static void noConvertible(Paso paso, String ruta, String campo, Object valor) {
+        paso.noConvertibles++;
+        if (paso.ejemplos.size() < MAX_EJEMPLOS) {
+            paso.ejemplos.add(ruta + " → " + campo + " = \"" + valor + "\"");
+        }
+    }
+
+    // ==============================================================
+    // 🔹 Checkpoint (SharedPreferences)
+    // ==============================================================
+    private Paso leerCheckpoint(String nombre) {
+        Paso paso = new Paso(nombre);
+        paso.leidos = prefs.getLong(clave(nombre, "leidos"), 0);
+        paso.corregidos = prefs.getLong(clave(nombre, "corregidos"), 0);
+        paso.noConvertibles = prefs.getLong(clave(nombre, "noConvertibles"), 0);
+        paso.terminado = prefs.getBoolean(clave(nombre, "terminado"), false);
+        return paso;
+    }
+
+    private void guardarCheckpoint(Paso paso, String cursor) {
+        prefs.edit()
+                .putString(clave(paso.nombre, "cursor"), cursor)
+                .putLong(clave(paso.nombre, "leidos"), paso.leidos)
+                .putLong(clave(paso.nombre, "corregidos"), paso.corregidos)
+                .putLong(clave(paso.nombre, "noConvertibles"), paso.noConvertibles)
+                .putBoolean(clave(paso.nombre, "terminado"), paso.terminado)
+                .apply();
+    }
+
+    private static String clave(String paso, String dato) {
+        return paso + "." + dato;
+    }
+
+    // ==============================================================
+    // 🔹 Datos de prueba con tipos mezclados (SOLO emulador)
+    // ==============================================================
+    /*
+     * Crea "cantidad" productos, órdenes e ítems de carrito con ids "mig-..."
+     * mezclando números, decimales, texto con símbolos y texto sin número.
+     */
+    public static Task<Void> sembrarDatosDePrueba(FirebaseFirestore db, int cantidad) {
+        Object[] precios = {"$12.000", "1500", 990.0, 2500L, "abc", " 750 "};
+        Object[] stocks = {"5", 7.0, 3L, "  12", "sin stock"};
+
+        EscritorPorLotes escritor = new EscritorPorLotes(db);
+
+        for (int i = 0; i < cantidad; i++) {
+            String productoId = "mig-prod-" + i;
+            Object precio = precios[i % precios.length];
+            Object stock = stocks[i % stocks.length];
+
+            Map<String, Object> producto = new HashMap<>();
+            producto.put("codigo", productoId);
+            producto.put("nombre", "Producto de prueba " + i);
+            producto.put("estado", "activo");
+            producto.put("proveedorId", "mig-proveedor");
+            producto.put("precio", precio);
+            producto.put("stock", stock);
+            producto.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+            escritor.set(db.collection("productos").document(productoId), producto);
+
+            Map<String, Object> linea = new HashMap<>();
+            linea.put("productoId", productoId);
+            linea.put("productoNombre", "Producto de prueba " + i);
+            linea.put("cantidad", i % 2 == 0 ? "2" : 2L);
+            linea.put("precioUnitario", precio);
+            linea.put("subtotal", i % 3 == 0 ? "$" + (i * 100) : (double) i * 100);
+
+            List<Map<String, Object>> items = new ArrayList<>();
+            items.add(linea);
+
+            Map<String, Object> orden = new HashMap<>();
+            orden.put("proveedorId", "mig-proveedor");
+            orden.put("compradorId", "mig-comprador-" + (i % 10));
+            orden.put("estado", "pendiente");
+            orden.put("items", items);
+            orden.put("cantidadItems", i % 2 == 0 ? "1" : 1L);
+            orden.put("unidades", i % 4 == 0 ? 2.0 : 2L);
+            orden.put("subtotal", linea.get("subtotal"));
+            escritor.set(db.collection("ordenes").document("mig-orden-" + i), orden);
+
+            CollectionReference carrito = db.collection("carritos")
+                    .document("mig-comprador-" + (i % 10)).collection("items");
+
+            Map<String, Object> item = new HashMap<>();
+            item.put("nombre", "Producto de prueba " + i);
+            item.put("proveedorId", "mig-proveedor");
+            item.put("precio", precio);
+            item.put("cantidad", i % 2 == 0 ? "3" : 3L);
+            escritor.set(carrito.document(productoId), item);
+        }
+        return escritor.commit();
+    }
+}
@@ -4,18 +4,21 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.ImageButton;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.android.material.snackbar.Snackbar;
 
 // Firebase para autenticación y base de datos
 import com.google.firebase.auth.FirebaseAuth;        // Maneja login/logout
 import com.google.firebase.auth.FirebaseUser;       // Usuario activo actual
-import com.google.firebase.firestore.DocumentSnapshot; // Foto de 1 documento
 import com.google.firebase.firestore.FirebaseFirestore; // Base Firestore NoSQL
 
 import java.util.ArrayList;
@@ -35,7 +38,11 @@ public class MisOrdenes extends BaseActivity {
     private OrdenAdapter ordenAdapter;
 
     // Lista donde se guardan las órdenes en memoria antes de mostrarlas
-    private List<Map<String, Object>> listaOrdenes;
+    private List<OrdenAdapter.Fila> listaOrdenes;
+
+    // Confirmación masiva (modo selección)
+    private ServicioOrdenes servicioOrdenes;
+    private Snackbar barraSeleccion;
 
     // Header
     private TextView tvNombreEmpresa, tvOrdenesCount;
@@ -74,6 +81,14 @@ public class MisOrdenes extends BaseActivity {
         ordenAdapter = new OrdenAdapter(listaOrdenes, db);
         recyclerOrdenes.setAdapter(ordenAdapter);
 
+        /*
+         * Modo selección:
+         * Mantener presionada una orden pendiente la marca; mientras haya
+         * órdenes marcadas se muestra una barra con "Confirmar (N)".
+         */
+        servicioOrdenes = new ServicioOrdenes(db);
+        ordenAdapter.setOnSeleccionListener(this::actualizarBarraSeleccion);
+
         // ==========================================================
         // 3. VISTAS DEL HEADER Y BARRA INFERIOR
         // ==========================================================
@@ -117,7 +132,7 @@ public class MisOrdenes extends BaseActivity {
         );
 
         btnLogout.setOnClickListener(v -> {
-            auth.signOut(); // Cerrar sesión
+            SesionUsuario.cerrar(this); // Cerrar sesión y borrar el perfil guardado
 
             Intent i = new Intent(MisOrdenes.this, MainActivity.class);
             i.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -158,33 +173,11 @@ public class MisOrdenes extends BaseActivity {
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) return;
 
-        /*
-         * db.collection("proveedores").document(uid).get():
-         * Obtiene UN documento → DocumentSnapshot
-         *
-         * DocumentSnapshot:
-         *   Es una foto de los datos del documento en ese instante.
-         *   Permite leer valores con .getString("campo").
-         */
-        db.collection("proveedores").document(user.getUid())
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        String nombreEmpresa = doc.getString("nombreEmpresa");
-                        tvNombreEmpresa.setText(
-                                nombreEmpresa != null ? nombreEmpresa : "Proveedor"
-                        );
-                    } else {
-                        tvNombreEmpresa.setText("Proveedor");
-                    }
-                })
-                .addOnFailureListener(e ->
-                        Toast.makeText(
-                                this,
-                                "Error al cargar nombre: " + e.getMessage(),
-                                Toast.LENGTH_SHORT
-                        ).show()
-                );
+        // Perfil guardado al iniciar sesión (SesionUsuario) → sin lectura a Firestore
+        SesionUsuario.obtener(this, db, sesion -> {
+            String empresa = sesion != null ? sesion.empresa : null;
+            tvNombreEmpresa.setText(empresa != null && !empresa.isEmpty() ? empresa : "Proveedor");
+        });
     }
 
     // ==========================================================
@@ -204,62 +197,168 @@ public class MisOrdenes extends BaseActivity {
          *
          * QuerySnapshot:
          *   Contiene una lista de DocumentSnapshot (documentos individuales).
+         *
+         * addOnSuccessListener(Hilos.FONDO, ...):
+         *   El resultado llega en el hilo de fondo. Ahí se decodifica cada
+         *   orden y se formatean fecha/total/productos (OrdenAdapter.Fila);
+         *   al hilo principal solo llega la lista lista para mostrar.
          */
         db.collection("ordenes")
                 .whereEqualTo("proveedorId", user.getUid())
                 .get()
-                .addOnSuccessListener(snapshot -> {
+                .addOnSuccessListener(Hilos.FONDO, snapshot -> {
 
-                    listaOrdenes.clear();
+                    List<OrdenAdapter.Fila> filas = OrdenAdapter.Fila.de(snapshot.getDocuments());
 
-                    // snapshot.isEmpty() → Si no hay órdenes
-                    if (snapshot.isEmpty()) {
-                        tvOrdenesCount.setText("No hay órdenes");
-                        ordenAdapter.notifyDataSetChanged();
-                        return;
-                    }
-
-                    /*
-                     * snapshot.getDocuments():
-                     * Devuelve una lista de DocumentSnapshot
-                     */
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                    Hilos.principal(() -> {
+                        listaOrdenes.clear();
+                        listaOrdenes.addAll(filas);
 
                         /*
-                         * doc.getData():
-                         * Retorna un MAP (clave -> valor) con todos los campos del documento.
-                         *
-                         * Map<String, Object>:
-                         * Estructura tipo JSON.
+                         * notifyDataSetChanged():
+                         * Le indica al adapter que los datos cambiaron
+                         * para que actualice el RecyclerView.
                          */
-                        Map<String, Object> orden = doc.getData();
+                        ordenAdapter.notifyDataSetChanged();
 
-                        if (orden != null) {
+                        int total = listaOrdenes.size();
+                        tvOrdenesCount.setText(
+                                total == 0 ? "No hay órdenes" :
+                                total == 1 ? "1 orden" :
+                                total + " órdenes");
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    tvOrdenesCount.setText("Error al cargar");
+                    Toast.makeText(this, "❌ Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+    }
+
+    // ==========================================================
+    // 📌 MODO SELECCIÓN: barra inferior con la acción masiva
+    // ==========================================================
+    private void actualizarBarraSeleccion(int cantidad) {
 
-                            orden.put("id", doc.getId()); // Guardar ID del documento
+        if (cantidad == 0) {
+            if (barraSeleccion != null) barraSeleccion.dismiss();
+            barraSeleccion = null;
+            return;
+        }
 
-                            // Evitar errores por campos nulos
-                            orden.putIfAbsent("productoNombre", "Producto desconocido");
-                            orden.putIfAbsent("compradorNombre", "Comprador desconocido");
-                            orden.putIfAbsent("subtotal", 0.0);
+        String texto = cantidad == 1 ? "1 orden marcada" : cantidad + " órdenes marcadas";
 
-                            listaOrdenes.add(orden);
+        if (barraSeleccion == null) {
+            barraSeleccion = Snackbar.make(recyclerOrdenes, texto, Snackbar.LENGTH_INDEFINITE)
+                    .setAnchorView(bottomNavigationView);
+        } else {
+            barraSeleccion.setText(texto);
+        }
+        barraSeleccion.setAction("Confirmar (" + cantidad + ")", v -> preguntarConfirmarSeleccion());
+        barraSeleccion.show();
+    }
+
+    // Atrás con órdenes marcadas = desmarcar todo (no salir de la pantalla)
+    @Override
+    public void onBackPressed() {
+        if (ordenAdapter.enModoSeleccion()) {
+            ordenAdapter.limpiarSeleccion();
+            return;
+        }
+        super.onBackPressed();
+    }
+
+    private void preguntarConfirmarSeleccion() {
+
+        List<Orden> seleccion = ordenAdapter.getOrdenesSeleccionadas();
+
+        new AlertDialog.Builder(this)
+                .setTitle("Confirmar órdenes")
+                .setMessage("¿Deseas confirmar " + seleccion.size()
+                        + " órdenes y descontar el stock de sus productos?")
+                .setPositiveButton("Confirmar", (d, w) -> confirmarSeleccion(seleccion))
+                .setNegativeButton("Cancelar", (d, w) -> actualizarBarraSeleccion(seleccion.size()))
+                .setOnCancelListener(d -> actualizarBarraSeleccion(seleccion.size()))
+                .show();
+    }
+
+    // ==========================================================
+    // 📌 CONFIRMAR VARIAS ÓRDENES (con barra de progreso)
+    // ==========================================================
+    /*
+     * ServicioOrdenes.confirmarOrdenes() agrupa las órdenes por producto y
+     * las confirma en tramos (una transacción por tramo).
+     * Cada orden se confirma o falla por separado: si un producto no tiene
+     * stock para todas, se confirman las que alcanzan y el resto se informa.
+     */
+    private void confirmarSeleccion(List<Orden> seleccion) {
+
+        // Diálogo de progreso armado en código (no hay layout para esto)
+        ProgressBar barra = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        barra.setMax(seleccion.size());
+
+        TextView tvProgreso = new TextView(this);
+        tvProgreso.setText("0 de " + seleccion.size());
+
+        LinearLayout contenido = new LinearLayout(this);
+        contenido.setOrientation(LinearLayout.VERTICAL);
+        int margen = (int) (24 * getResources().getDisplayMetrics().density);
+        contenido.setPadding(margen, margen / 2, margen, 0);
+        contenido.addView(barra);
+        contenido.addView(tvProgreso);
+
+        AlertDialog dialogoProgreso = new AlertDialog.Builder(this)
+                .setTitle("Confirmando órdenes...")
+                .setView(contenido)
+                .setCancelable(false)
+                .show();
+
+        servicioOrdenes.confirmarOrdenes(seleccion, (procesadas, total) -> {
+                    barra.setProgress(procesadas);
+                    tvProgreso.setText(procesadas + " de " + total);
+                })
+                .addOnSuccessListener(resultado -> {
+                    dialogoProgreso.dismiss();
+
+                    // Reflejar en la lista sin volver a consultar
+                    for (int i = 0; i < listaOrdenes.size(); i++) {
+                        Orden orden = listaOrdenes.get(i).orden;
+                        if (resultado.confirmadas.contains(orden.id)) {
+                            listaOrdenes.set(i, new OrdenAdapter.Fila(orden.conEstado("confirmada")));
                         }
                     }
-
-                    /*
-                     * notifyDataSetChanged():
-                     * Le indica al adapter que los datos cambiaron
-                     * para que actualice el RecyclerView.
-                     */
+                    ordenAdapter.limpiarSeleccion();
                     ordenAdapter.notifyDataSetChanged();
 
-                    int total = listaOrdenes.size();
-                    tvOrdenesCount.setText(total == 1 ? "1 orden" : total + " órdenes");
+                    mostrarReporte(resultado);
                 })
                 .addOnFailureListener(e -> {
-                    tvOrdenesCount.setText("Error al cargar");
+                    dialogoProgreso.dismiss();
                     Toast.makeText(this, "❌ Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
                 });
     }
+
+    // 🔹 Resumen final: cuántas se confirmaron y por qué fallaron las demás
+    private void mostrarReporte(ServicioOrdenes.ResultadoLote resultado) {
+
+        if (resultado.fallidas.isEmpty()) {
+            Toast.makeText(this,
+                    "✅ " + resultado.confirmadas.size() + " órdenes confirmadas",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        StringBuilder detalle = new StringBuilder();
+        detalle.append("Confirmadas: ").append(resultado.confirmadas.size())
+                .append("\nCon error: ").append(resultado.fallidas.size()).append("\n");
+
+        for (Map.Entry<String, String> e : resultado.fallidas.entrySet()) {
+            detalle.append("\n• ").append(e.getKey()).append(": ").append(e.getValue());
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Resultado")
+                .setMessage(detalle.toString())
+                .setPositiveButton("OK", null)
+                .show();
+    }
 }
@@ -0,0 +1,148 @@
+package com.proveenet.proveenet;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * ORDEN (modelo inmutable)
+ * ==============================================================
+ * Una orden de "ordenes" ya decodificada: todos los productos de UN
+ * proveedor en "lineas", con el total ya calculado.
+ * Las órdenes antiguas de un solo producto llegan con una sola línea
+ * (ver Decodificador.orden).
+ */
+public final class Orden {
+
+    public final String id;
+    public final String compradorId;
+    public final String compradorNombre;
+    public final String proveedorId;
+    public final String proveedorNombre;
+    public final String estado;
+    public final String metodoPago;
+
+    public final double subtotal;      // total de la orden
+    public final long unidades;        // suma de las cantidades
+    public final String periodo;       // "yyyy-MM"
+    public final Timestamp fechaCreacion;
+    public final String reservaEstado; // ver ReservasStock
+
+    public final List<LineaOrden> lineas;
+
+    // Orden partida en varias por ser muy grande (0 = no partida)
+    public final int parte;
+    public final int partes;
+
+    Orden(String id, String compradorId, String compradorNombre, String proveedorId,
+          String proveedorNombre, String estado, String metodoPago, double subtotal, long unidades,
+          String periodo, Timestamp fechaCreacion, String reservaEstado, List<LineaOrden> lineas,
+          int parte, int partes) {
+        this.id = id;
+        this.compradorId = compradorId;
+        this.compradorNombre = compradorNombre;
+        this.proveedorId = proveedorId;
+        this.proveedorNombre = proveedorNombre;
+        this.estado = estado;
+        this.metodoPago = metodoPago;
+        this.subtotal = subtotal;
+        this.periodo = periodo;
+        this.fechaCreacion = fechaCreacion;
+        this.reservaEstado = reservaEstado;
+        this.lineas = Collections.unmodifiableList(new ArrayList<>(lineas));
+        this.parte = parte;
+        this.partes = partes;
+
+        // Órdenes antiguas no guardan "unidades" → se suma una vez aquí
+        if (unidades < 0) {
+            unidades = 0;
+            for (LineaOrden linea : lineas) unidades += linea.cantidad;
+        }
+        this.unidades = unidades;
+    }
+
+    // ==============================================================
+    // 🔹 Orden nueva (finalizar compra): los totales salen de las líneas
+    // ==============================================================
+    public static Orden nueva(String compradorId, String compradorNombre, String proveedorId,
+                              String proveedorNombre, String periodo, List<LineaOrden> lineas) {
+        double subtotal = 0.0;
+        for (LineaOrden linea : lineas) subtotal += linea.subtotal;
+
+        return new Orden(null, compradorId, compradorNombre, proveedorId, proveedorNombre,
+                "pendiente", null, subtotal, -1, periodo, null, null, lineas, 0, 0);
+    }
+
+    // Copia con otras líneas (para partir una orden enorme en partes)
+    public Orden conLineas(List<LineaOrden> lineasParte, int parte, int partes) {
+        double total = 0.0;
+        for (LineaOrden linea : lineasParte) total += linea.subtotal;
+
+        return new Orden(id, compradorId, compradorNombre, proveedorId, proveedorNombre, estado,
+                metodoPago, total, -1, periodo, fechaCreacion, reservaEstado, lineasParte, parte, partes);
+    }
+
+    public Orden conEstado(String nuevoEstado) {
+        return new Orden(id, compradorId, compradorNombre, proveedorId, proveedorNombre, nuevoEstado,
+                metodoPago, subtotal, unidades, periodo, fechaCreacion, reservaEstado, lineas, parte, partes);
+    }
+
+    public boolean esPendiente() {
+        return "pendiente".equalsIgnoreCase(estado);
+    }
+
+    public boolean reservaActiva() {
+        return ReservasStock.ACTIVA.equals(reservaEstado);
+    }
+
+    // productoId → unidades pedidas (si un producto aparece dos veces se suma)
+    public Map<String, Long> cantidadesPorProducto() {
+        Map<String, Long> cantidades = new LinkedHashMap<>();
+        for (LineaOrden linea : lineas) {
+            if (linea.productoId == null) continue;
+
+            Long actual = cantidades.get(linea.productoId);
+            cantidades.put(linea.productoId, (actual != null ? actual : 0L) + linea.cantidad);
+        }
+        return cantidades;
+    }
+
+    // ==============================================================
+    // 🔹 Formato en Firestore de una orden NUEVA
+    // ==============================================================
+    Map<String, Object> aMapaNueva() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (LineaOrden linea : lineas) items.add(linea.aMapa());
+
+        Map<String, Object> orden = new HashMap<>();
+        orden.put("compradorId", compradorId);
+        orden.put("compradorNombre", compradorNombre);
+
+        orden.put("proveedorNombre", proveedorNombre);
+        orden.put("proveedorId", proveedorId);
+
+        orden.put("items", items);
+        orden.put("cantidadItems", lineas.size());
+        orden.put("unidades", unidades);
+        orden.put("subtotal", subtotal);
+
+        if (partes > 0) {
+            orden.put("parte", parte);
+            orden.put("partes", partes);
+        }
+
+        // 🔹 serverTimestamp() → hora exacta del servidor
+        orden.put("fechaCreacion", FieldValue.serverTimestamp());
+        orden.put("periodo", periodo);
+        orden.put("estado", "pendiente");
+        orden.put("confirmacionProveedor", "pendiente");
+        return orden;
+    }
+}
@@ -11,14 +11,13 @@ import android.widget.Toast;
 
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import java.util.Set;
 
 /*
  * ==============================================================
@@ -32,14 +31,59 @@ import java.util.Map;
  *  ✔ Crear cada fila (ViewHolder)
  *  ✔ Rellenarla con datos (bind)
  *  ✔ Manejar eventos (confirmar / eliminar orden)
+ *  ✔ Modo selección: mantener presionada una orden pendiente para
+ *    marcar varias y confirmarlas juntas (ver MisOrdenes)
  */
 public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHolder> {
 
-    // Lista de órdenes => cada orden es un Map<String,Object> (similar a un JSON)
-    private final List<Map<String, Object>> listaOrdenes;
+    // ==============================================================
+    // 🔹 Fila lista para mostrar
+    // ==============================================================
+    /*
+     * Orden + sus textos ya formateados (fecha, total, productos).
+     * MisOrdenes las arma en el hilo de fondo (ver Hilos): al hacer scroll
+     * el bind solo asigna textos.
+     */
+    public static final class Fila {
+        public final Orden orden;
+        final String numero, estado, fecha, metodoPago, total, productos;
+
+        public Fila(Orden orden) {
+            this.orden = orden;
+
+            String id = orden.id != null ? orden.id : "";
+            String textoProductos = describirProductos(orden);
+
+            numero = "Orden: " + (id.isEmpty() ? "N/A" : id);
+            estado = orden.estado == null || orden.estado.isEmpty() ? "pendiente" : orden.estado;
+            fecha = Formatos.fechaLarga(orden.fechaCreacion);
+            metodoPago = orden.metodoPago == null || orden.metodoPago.isEmpty() ? "No definido" : orden.metodoPago;
+            total = Formatos.dinero(orden.subtotal);
+            productos = textoProductos.isEmpty() ? "Sin producto" : textoProductos;
+        }
+
+        // 🔹 Documentos → filas (llamar en el hilo de fondo)
+        public static List<Fila> de(List<DocumentSnapshot> documentos) {
+            List<Fila> filas = new ArrayList<>(documentos.size());
+            for (DocumentSnapshot doc : documentos) filas.add(new Fila(Decodificador.orden(doc)));
+            return filas;
+        }
+    }
+
+    // Filas ya preparadas (las llena MisOrdenes en el hilo principal)
+    private final List<Fila> listaOrdenes;
 
-    // Firebase Firestore para actualizar o eliminar órdenes
-    private final FirebaseFirestore db;
+    // Confirmar / eliminar órdenes (transacciones en Firestore)
+    private final ServicioOrdenes servicioOrdenes;
+
+    // Avisa a la pantalla cuántas órdenes hay marcadas (0 = salir del modo selección)
+    public interface OnSeleccionListener {
+        void onSeleccionCambiada(int cantidad);
+    }
+
+    // IDs de las órdenes marcadas (en el orden en que se marcaron)
+    private final Set<String> seleccionadas = new LinkedHashSet<>();
+    private OnSeleccionListener seleccionListener;
 
     /*
      * Constructor:
@@ -47,9 +91,50 @@ public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHol
      *  - la lista de órdenes desde la Activity
      *  - la instancia de Firestore para operar en la BD
      */
-    public OrdenAdapter(List<Map<String, Object>> listaOrdenes, FirebaseFirestore db) {
+    public OrdenAdapter(List<Fila> listaOrdenes, FirebaseFirestore db) {
         this.listaOrdenes = listaOrdenes;
-        this.db = db;
+        this.servicioOrdenes = new ServicioOrdenes(db);
+    }
+
+    public void setOnSeleccionListener(OnSeleccionListener listener) {
+        this.seleccionListener = listener;
+    }
+
+    // ==============================================================
+    // 🔹 Modo selección
+    // ==============================================================
+    public boolean enModoSeleccion() {
+        return !seleccionadas.isEmpty();
+    }
+
+    // Órdenes marcadas, en el orden en que se marcaron
+    public List<Orden> getOrdenesSeleccionadas() {
+        List<Orden> resultado = new ArrayList<>();
+        for (String id : seleccionadas) {
+            for (Fila fila : listaOrdenes) {
+                if (id.equals(fila.orden.id)) {
+                    resultado.add(fila.orden);
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    public void limpiarSeleccion() {
+        if (seleccionadas.isEmpty()) return;
+        seleccionadas.clear();
+        notifyDataSetChanged();
+        if (seleccionListener != null) seleccionListener.onSeleccionCambiada(0);
+    }
+
+    // Solo las órdenes pendientes se pueden marcar
+    private void alternarSeleccion(Orden orden) {
+        if (!orden.esPendiente() || orden.id == null) return;
+
+        if (!seleccionadas.remove(orden.id)) seleccionadas.add(orden.id);
+        notifyDataSetChanged();
+        if (seleccionListener != null) seleccionListener.onSeleccionCambiada(seleccionadas.size());
     }
 
     /*
@@ -65,7 +150,47 @@ public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHol
         View v = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_orden, parent, false);
 
-        return new OrdenViewHolder(v);
+        OrdenViewHolder holder = new OrdenViewHolder(v);
+
+        /*
+         * Listeners creados UNA vez por tarjeta (no en cada bind):
+         * leen la posición al momento del click, así una tarjeta reciclada
+         * siempre actúa sobre la orden que muestra ahora.
+         */
+        holder.itemView.setOnLongClickListener(view -> {
+            Fila fila = filaEn(holder);
+            if (fila != null) alternarSeleccion(fila.orden);
+            return true;
+        });
+
+        holder.itemView.setOnClickListener(view -> {
+            Fila fila = filaEn(holder);
+            if (fila != null && enModoSeleccion()) alternarSeleccion(fila.orden);
+        });
+
+        holder.btnEditar.setOnClickListener(view -> {
+            Fila fila = filaEn(holder);
+            if (fila == null) return;
+
+            if (enModoSeleccion()) {
+                alternarSeleccion(fila.orden);
+                return;
+            }
+            preguntarConfirmar(view.getContext(), fila);
+        });
+
+        holder.btnEliminar.setOnClickListener(view -> {
+            Fila fila = filaEn(holder);
+            if (fila != null) preguntarEliminar(view.getContext(), fila.orden.id);
+        });
+
+        return holder;
+    }
+
+    // Fila que muestra la tarjeta ahora (null si se está quitando de la lista)
+    private Fila filaEn(OrdenViewHolder holder) {
+        int pos = holder.getBindingAdapterPosition();
+        return pos == RecyclerView.NO_POSITION ? null : listaOrdenes.get(pos);
     }
 
     /*
@@ -78,36 +203,22 @@ public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHol
     @Override
     public void onBindViewHolder(OrdenViewHolder holder, int position) {
 
-        // Obtiene la orden N° position
-        Map<String, Object> orden = listaOrdenes.get(position);
-        Context context = holder.itemView.getContext();
-
-        // Lectura segura de datos (evita crashes si es null)
-        String idOrden        = safeString(orden.get("id"));
-        String estado         = safeString(orden.get("estado"));
-        String metodoPago     = safeString(orden.get("metodoPago"));
-        String productoNombre = safeString(orden.get("productoNombre"));
-        String productoId     = safeString(orden.get("productoId"));
-
-        double subtotal = safeDouble(orden.get("subtotal"));
-        long cantidad   = safeLong(orden.get("cantidad"));
+        // Obtiene la orden N° position (textos ya formateados en el fondo)
+        Fila fila = listaOrdenes.get(position);
+        boolean pendiente = fila.orden.esPendiente();
 
-        // Fecha
-        Object fechaObj = orden.get("fechaCreacion");
-        String fechaFormateada = formatearFecha(fechaObj);
-
-        // Rellenar textos
-        holder.tvOrdenNumero.setText("Orden: " + (idOrden.isEmpty() ? "N/A" : idOrden));
-        holder.tvEstado.setText(estado.isEmpty() ? "pendiente" : estado);
-        holder.tvFecha.setText(fechaFormateada);
-        holder.tvMetodoPago.setText(metodoPago.isEmpty() ? "No definido" : metodoPago);
-        holder.tvTotal.setText("$" + String.format("%.0f", subtotal));
-        holder.tvProductos.setText(productoNombre.isEmpty() ? "Sin producto" : productoNombre);
+        // Rellenar textos (sin concatenar ni formatear: ya vienen listos)
+        holder.tvOrdenNumero.setText(fila.numero);
+        holder.tvEstado.setText(fila.estado);
+        holder.tvFecha.setText(fila.fecha);
+        holder.tvMetodoPago.setText(fila.metodoPago);
+        holder.tvTotal.setText(fila.total);
+        holder.tvProductos.setText(fila.productos);
 
         // ----------------------------------------------------------
         // Botón CONFIRMAR (cuando estado = pendiente)
         // ----------------------------------------------------------
-        if ("pendiente".equalsIgnoreCase(estado)) {
+        if (pendiente) {
             holder.btnEditar.setText("Confirmar");
             holder.btnEditar.setEnabled(true);
         } else {
@@ -115,88 +226,81 @@ public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHol
             holder.btnEditar.setEnabled(false);
         }
 
-        /*
-         * Confirmar orden:
-         * 1) Actualiza estado en colección "ordenes"
-         * 2) Reduce el stock del producto en colección "productos"
-         */
-        holder.btnEditar.setOnClickListener(v -> {
-
-            new AlertDialog.Builder(context)
-                    .setTitle("Confirmar Orden")
-                    .setMessage("¿Deseas confirmar esta orden y actualizar el stock del producto?")
-                    .setPositiveButton("Sí", (dialog, which) -> {
-
-                        db.collection("ordenes").document(idOrden)
-                                .update("estado", "confirmada",
-                                        "confirmacionProveedor", "confirmada")
-                                .addOnSuccessListener(aVoid -> {
-
-                                    // Actualizar stock en productos
-                                    db.collection("productos").document(productoId)
-                                            .get()
-                                            .addOnSuccessListener(snapshot -> {
-
-                                                if (snapshot.exists()) {
-                                                    long stockActual = safeLong(snapshot.get("stock"));
-                                                    long nuevoStock = Math.max(stockActual - cantidad, 0);
-
-                                                    // Update de stock
-                                                    db.collection("productos").document(productoId)
-                                                            .update("stock", nuevoStock)
-                                                            .addOnSuccessListener(aVoid2 -> {
-
-                                                                Toast.makeText(context,
-                                                                        "Orden confirmada",
-                                                                        Toast.LENGTH_SHORT).show();
-
-                                                                holder.btnEditar.setText("Confirmada");
-                                                                holder.btnEditar.setEnabled(false);
-                                                                holder.tvEstado.setText("confirmada");
-                                                            })
-                                                            .addOnFailureListener(e ->
-                                                                    Toast.makeText(context,
-                                                                            "Error al actualizar stock: " + e.getMessage(),
-                                                                            Toast.LENGTH_SHORT).show());
-                                                }
-                                            });
-                                })
-                                .addOnFailureListener(e ->
-                                        Toast.makeText(context,
-                                                "Error al confirmar: " + e.getMessage(),
-                                                Toast.LENGTH_SHORT).show());
-                    })
-                    .setNegativeButton("Cancelar", null)
-                    .show();
-        });
-
         // ----------------------------------------------------------
-        // Botón ELIMINAR
+        // Modo selección: la card marcada se ve normal y las demás atenuadas
         // ----------------------------------------------------------
-        holder.btnEliminar.setOnClickListener(v -> {
-
-            new AlertDialog.Builder(context)
-                    .setTitle("Eliminar orden")
-                    .setMessage("¿Seguro que deseas eliminar esta orden?")
-                    .setPositiveButton("Eliminar", (dialog, which) -> {
-
-                        /*
-                         * .delete() → elimina documento de Firestore
-                         */
-                        db.collection("ordenes").document(idOrden)
-                                .delete()
-                                .addOnSuccessListener(aVoid ->
-                                        Toast.makeText(context,
-                                                "Orden eliminada",
-                                                Toast.LENGTH_SHORT).show())
-                                .addOnFailureListener(e ->
-                                        Toast.makeText(context,
-                                                "Error: " + e.getMessage(),
-                                                Toast.LENGTH_SHORT).show());
-                    })
-                    .setNegativeButton("Cancelar", null)
-                    .show();
-        });
+        boolean marcada = fila.orden.id != null && seleccionadas.contains(fila.orden.id);
+        holder.itemView.setActivated(marcada);
+        holder.itemView.setAlpha(enModoSeleccion() && !marcada ? 0.5f : 1f);
+        holder.btnEliminar.setEnabled(!enModoSeleccion());
+        if (enModoSeleccion() && pendiente) {
+            holder.btnEditar.setText(marcada ? "✓ Marcada" : "Marcar");
+        }
+    }
+
+    /*
+     * Confirmar orden:
+     * Una sola transacción (ServicioOrdenes) que:
+     * 1) Cambia el estado en "ordenes"
+     * 2) Descuenta el stock de cada producto de la orden en "productos"
+     * Si no alcanza el stock de algún producto, la orden NO se confirma.
+     */
+    private void preguntarConfirmar(Context context, Fila fila) {
+
+        new AlertDialog.Builder(context)
+                .setTitle("Confirmar Orden")
+                .setMessage("¿Deseas confirmar esta orden y actualizar el stock de sus productos?")
+                .setPositiveButton("Sí", (dialog, which) -> {
+
+                    servicioOrdenes.confirmarOrden(fila.orden.id)
+                            .addOnSuccessListener(aVoid -> {
+
+                                Toast.makeText(context,
+                                        "Orden confirmada",
+                                        Toast.LENGTH_SHORT).show();
+
+                                // La fila se reemplaza y solo esa tarjeta se vuelve a enlazar
+                                int pos = listaOrdenes.indexOf(fila);
+                                if (pos >= 0) {
+                                    listaOrdenes.set(pos, new Fila(fila.orden.conEstado("confirmada")));
+                                    notifyItemChanged(pos);
+                                }
+                            })
+                            .addOnFailureListener(e ->
+                                    Toast.makeText(context,
+                                            "Error al confirmar: " + e.getMessage(),
+                                            Toast.LENGTH_SHORT).show());
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    // ----------------------------------------------------------
+    // Botón ELIMINAR
+    // ----------------------------------------------------------
+    private void preguntarEliminar(Context context, String idOrden) {
+
+        new AlertDialog.Builder(context)
+                .setTitle("Eliminar orden")
+                .setMessage("¿Seguro que deseas eliminar esta orden?")
+                .setPositiveButton("Eliminar", (dialog, which) -> {
+
+                    /*
+                     * Borra la orden y la descuenta del resumen del dashboard
+                     * en la misma transacción.
+                     */
+                    servicioOrdenes.eliminarOrden(idOrden)
+                            .addOnSuccessListener(aVoid ->
+                                    Toast.makeText(context,
+                                            "Orden eliminada",
+                                            Toast.LENGTH_SHORT).show())
+                            .addOnFailureListener(e ->
+                                    Toast.makeText(context,
+                                            "Error: " + e.getMessage(),
+                                            Toast.LENGTH_SHORT).show());
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
     }
 
     @Override
@@ -205,57 +309,23 @@ public class OrdenAdapter extends RecyclerView.Adapter<OrdenAdapter.OrdenViewHol
     }
 
     // ==============================================================
-    // 🔹 Conversión segura de fecha (Timestamp → texto legible)
-    // ==============================================================
-    private String formatearFecha(Object fechaObj) {
-        try {
-            /*
-             * Timestamp (Firebase):
-             * Representa una fecha exacta guardada en la nube.
-             */
-            if (fechaObj instanceof Timestamp) {
-                Date date = ((Timestamp) fechaObj).toDate();
-
-                SimpleDateFormat sdf = new SimpleDateFormat(
-                        "dd 'de' MMMM 'de' yyyy, HH:mm",
-                        new Locale("es", "CL")
-                );
-                return sdf.format(date);
-            }
-        } catch (Exception ignored) {}
-        return "Fecha no disponible";
-    }
-
-    // ==============================================================
-    // 🔹 Métodos seguros para evitar crashes
+    // 🔹 Productos de la orden: "2 × Arroz" por línea
     // ==============================================================
-
     /*
-     * safeString():
-     * Devuelve un String válido aunque el valor sea null.
+     * Las órdenes nuevas traen todos los productos del proveedor en "items";
+     * las antiguas tienen un solo producto (Decodificador.orden() lo resuelve).
      */
-    private String safeString(Object o) {
-        return o == null ? "" : o.toString();
-    }
+    private static String describirProductos(Orden orden) {
+        StringBuilder texto = new StringBuilder();
 
-    /*
-     * safeDouble():
-     * Convierte cualquier tipo a double sin crashear.
-     */
-    private double safeDouble(Object o) {
-        if (o instanceof Number) return ((Number) o).doubleValue();
-        try { return Double.parseDouble(o.toString()); }
-        catch (Exception e) { return 0.0; }
-    }
+        for (LineaOrden linea : orden.lineas) {
+            String nombre = linea.productoNombre;
+            if (nombre == null || nombre.isEmpty()) nombre = "Producto desconocido";
 
-    /*
-     * safeLong():
-     * Convierte cualquier valor a long, incluso si viene como String o null.
-     */
-    private long safeLong(Object o) {
-        if (o instanceof Number) return ((Number) o).longValue();
-        try { return Long.parseLong(o.toString()); }
-        catch (Exception e) { return 0L; }
+            if (texto.length() > 0) texto.append("\n");
+            texto.append(linea.cantidad).append(" × ").append(nombre);
+        }
+        return texto.toString();
     }
 
     // ==============================================================
@@ -0,0 +1,197 @@
+package com.proveenet.proveenet;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * PAGINADOR FIRESTORE
+ * ==============================================================
+ * Trae una consulta de a "páginas" usando un cursor:
+ *
+ *   página 1 → query.limit(20)
+ *   página 2 → query.startAfter(últimoDocumento).limit(20)
+ *   ...
+ *
+ * La consulta base DEBE tener un orderBy estable (ej: documentId),
+ * si no el cursor no sabe desde dónde seguir.
+ * Así la pantalla muestra las primeras cards sin esperar todo el catálogo.
+ */
+public class PaginadorFirestore {
+
+    public interface Callback {
+        // "pagina" = solo los documentos nuevos; "desde" = posición del primero en la lista total
+        void onPagina(List<DocumentSnapshot> pagina, int desde);
+
+        void onError(Exception e);
+    }
+
+    // ==============================================================
+    // 🔹 Caché de páginas compartida por toda la app
+    // ==============================================================
+    /*
+     * Al volver a una pantalla se reutiliza el paginador con las páginas que ya
+     * se descargaron (y su cursor), en vez de pedirlas de nuevo.
+     * Pasado VIGENCIA_CACHE_MS se descarta y se vuelve a empezar.
+     *
+     * Es LRU: hay una entrada por cada catálogo de proveedor visitado, así
+     * que pasadas MAX_CACHE claves se descarta la usada hace más tiempo.
+     */
+    private static final long VIGENCIA_CACHE_MS = 10 * 60 * 1000; // 10 minutos
+    private static final int MAX_CACHE = 12;
+    private static final Map<String, PaginadorFirestore> CACHE =
+            new LinkedHashMap<String, PaginadorFirestore>(16, 0.75f, true) { // true = orden de uso
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PaginadorFirestore> mayor) {
+                    return size() > MAX_CACHE;
+                }
+            };
+
+    public static PaginadorFirestore compartido(String clave, Query base, int tamanoPagina) {
+        PaginadorFirestore existente = CACHE.get(clave);
+        if (existente != null
+                && SystemClock.elapsedRealtime() - existente.creadoEn < VIGENCIA_CACHE_MS) {
+            return existente;
+        }
+
+        PaginadorFirestore nuevo = new PaginadorFirestore(base, tamanoPagina);
+        CACHE.put(clave, nuevo);
+        return nuevo;
+    }
+
+    public static void invalidar(String clave) {
+        CACHE.remove(clave);
+    }
+
+    // 🔹 Pide la primera página sin pantalla que la reciba (queda en la caché)
+    public static void precargar(String clave, Query base, int tamanoPagina) {
+        PaginadorFirestore paginador = compartido(clave, base, tamanoPagina);
+        if (paginador.documentos.isEmpty() && paginador.callbackActual == null) {
+            paginador.cargarSiguiente(SIN_PANTALLA);
+        }
+    }
+
+    // Si la pantalla se abre mientras la precarga viene en camino, cargarSiguiente la reemplaza
+    private static final Callback SIN_PANTALLA = new Callback() {
+        @Override
+        public void onPagina(List<DocumentSnapshot> pagina, int desde) {}
+
+        @Override
+        public void onError(Exception e) {}
+    };
+
+    private final Query base;
+    private final int tamanoPagina;
+    private final long creadoEn = SystemClock.elapsedRealtime();
+
+    // Todos los documentos cargados hasta ahora (en orden)
+    private final List<DocumentSnapshot> documentos = new ArrayList<>();
+
+    private DocumentSnapshot cursor;   // último documento recibido
+    private boolean cargando = false;
+    private boolean hayMas = true;
+
+    // Pantalla que recibe la página en curso (si la pantalla se recrea mientras
+    // una página viene en camino, la recibe la pantalla nueva).
+    // ⚠️ El paginador vive en CACHE hasta 10 minutos: se suelta al entregar la
+    // página o el error (y con soltar() en onDestroy), para no retener la pantalla.
+    private Callback callbackActual;
+
+    public PaginadorFirestore(Query base, int tamanoPagina) {
+        this.base = base;
+        this.tamanoPagina = tamanoPagina;
+    }
+
+    // 🔹 Pide la siguiente página (ignora la llamada si ya hay una en curso o no quedan más)
+    public boolean cargarSiguiente(Callback callback) {
+        callbackActual = callback;
+        if (cargando || !hayMas) return false;
+        cargando = true;
+
+        Query query = (cursor == null)
+                ? base.limit(tamanoPagina)
+                : base.startAfter(cursor).limit(tamanoPagina);
+
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    cargando = false;
+
+                    List<DocumentSnapshot> pagina = snapshot.getDocuments();
+                    int desde = documentos.size();
+
+                    if (!pagina.isEmpty()) cursor = pagina.get(pagina.size() - 1);
+                    hayMas = pagina.size() == tamanoPagina; // página incompleta = fin de la lista
+
+                    documentos.addAll(pagina);
+                    Callback destino = callbackActual;
+                    callbackActual = null;
+                    if (destino != null) destino.onPagina(pagina, desde);
+                })
+                .addOnFailureListener(e -> {
+                    cargando = false;
+                    Callback destino = callbackActual;
+                    callbackActual = null;
+                    if (destino != null) destino.onError(e);
+                });
+        return true;
+    }
+
+    // 🔹 La pantalla se destruye: la página en camino ya no le llega a ella
+    public void soltar(Callback callback) {
+        if (callbackActual == callback) callbackActual = null;
+    }
+
+    // 🔹 Primera página que ya se tenía (ej: del paquete, ver PaqueteCatalogo)
+    // Queda igual que si la hubiera traído cargarSiguiente(): el cursor sigue desde ahí
+    public boolean sembrar(List<DocumentSnapshot> pagina) {
+        if (cargando || !documentos.isEmpty() || pagina.isEmpty()) return false;
+
+        cursor = pagina.get(pagina.size() - 1);
+        hayMas = pagina.size() == tamanoPagina;
+        documentos.addAll(pagina);
+        return true;
+    }
+
+    public List<DocumentSnapshot> getDocumentos() {
+        return documentos;
+    }
+
+    public boolean hayMas() {
+        return hayMas;
+    }
+
+    public boolean estaCargando() {
+        return cargando;
+    }
+
+    // ==============================================================
+    // 🔹 Prefetch: avisa cuando quedan menos de "umbral" filas por ver
+    // ==============================================================
+    public static void alAcercarseAlFinal(RecyclerView recycler, int umbral, Runnable accion) {
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) return; // solo al bajar
+
+                LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+                if (lm == null) return;
+
+                int ultimoVisible = lm.findLastVisibleItemPosition();
+                if (ultimoVisible >= lm.getItemCount() - umbral) {
+                    accion.run();
+                }
+            }
+        });
+    }
+}
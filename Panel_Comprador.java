@@ -1,6 +1,5 @@
 package com.proveenet.proveenet;
 
-import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
 import android.content.Intent;
@@ -12,7 +11,6 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;           // Manejo de sesión del usuario
 import com.google.firebase.auth.FirebaseUser;          // Datos del usuario actual
 import com.google.firebase.firestore.FirebaseFirestore; // Base de datos Firestore
-import com.google.firebase.firestore.QueryDocumentSnapshot; // Foto de documentos devueltos en una Query
 
 /*
  * =====================================================
@@ -91,7 +89,7 @@ public class Panel_comprador extends BaseActivity {
         // 4. CERRAR SESIÓN
         // =====================================================
         btnLogout.setOnClickListener(v -> {
-            auth.signOut();
+            SesionUsuario.cerrar(this);
             Intent intent = new Intent(Panel_comprador.this, MainActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
             startActivity(intent);
@@ -153,96 +151,73 @@ public class Panel_comprador extends BaseActivity {
 
 
     // ==========================================================
-    // 📌 1. CARGAR NOMBRE DEL USUARIO (desde colección "compradores")
+    // 📌 1. CARGAR NOMBRE DEL USUARIO (perfil de la sesión)
     // ==========================================================
     private void cargarNombreUsuario() {
 
-        /*
-         * db.collection("compradores").document(uid).get()
-         * Devuelve un DocumentSnapshot con los datos del comprador.
-         */
-        db.collection("compradores")
-                .document(user.getUid())
-                .get()
-                .addOnSuccessListener(document -> {
-
-                    if (document.exists()) {
-                        String nombre = document.getString("nombre");
-
-                        if (nombre != null && !nombre.isEmpty()) {
-                            tvUserName.setText(nombre);
-                            tvWelcome.setText("Bienvenido, " + nombre);
-                        } else {
-                            tvUserName.setText("Usuario");
-                        }
-                    }
-                })
-                .addOnFailureListener(e ->
-                        tvUserName.setText("Usuario")
-                );
+        // Perfil guardado al iniciar sesión (SesionUsuario) → sin lectura a Firestore
+        SesionUsuario.obtener(this, db, sesion -> {
+            String nombre = sesion != null ? sesion.nombre : null;
+
+            if (nombre != null && !nombre.isEmpty()) {
+                tvUserName.setText(nombre);
+                tvWelcome.setText("Bienvenido, " + nombre);
+            } else {
+                tvUserName.setText("Usuario");
+            }
+        });
     }
 
     // ==========================================================
     // 📌 2. CARGAR ESTADÍSTICAS DEL COMPRADOR
     // ==========================================================
+    /*
+     * Las cifras se calculan en el servidor (count / sum), salvo el total
+     * de productos si ya hay copia local del catálogo (CatalogoLocal).
+     * Ya no se descargan proveedores, productos ni órdenes solo para contarlos.
+     */
     private void cargarEstadisticas() {
 
-        // -------------------------  
-        // A) Total de proveedores  
+        EstadisticasService estadisticas = new EstadisticasService(db);
+
+        // -------------------------
+        // A) Total de proveedores
         // -------------------------
-        db.collection("proveedores")
-                .get()
-                .addOnSuccessListener(snapshot ->
-                        tvProveedoresCount.setText(String.valueOf(snapshot.size()))
+        estadisticas.contarProveedores()
+                .addOnSuccessListener(total ->
+                        tvProveedoresCount.setText(String.valueOf(total))
                 )
                 .addOnFailureListener(e ->
                         tvProveedoresCount.setText("0")
                 );
 
-        // ---------------------------  
-        // B) Total de productos activos  
         // ---------------------------
-        db.collection("productos")
-                .whereEqualTo("estado", "activo") // solo productos activos
-                .get()
-                .addOnSuccessListener(snapshot ->
-                        tvProductosCount.setText(String.valueOf(snapshot.size()))
-                )
-                .addOnFailureListener(e ->
-                        tvProductosCount.setText("0")
-                );
-
-        // ---------------------------  
-        // C) Total de compras y gasto total  
+        // B) Total de productos activos
+        //    Desde la copia local si existe (la pone al día Productos);
+        //    si nunca se sincronizó, se cuenta en el servidor.
         // ---------------------------
-        db.collection("ordenes")
-                .whereEqualTo("compradorId", user.getUid()) // compras del usuario actual
-                .get()
-                .addOnSuccessListener(snapshot -> {
-
-                    int cantidadCompras = snapshot.size();
-                    double totalGastado = 0.0;
-
-                    /*
-                     * QueryDocumentSnapshot:
-                     * Representa cada documento dentro del QuerySnapshot.
-                     * Funciona igual que DocumentSnapshot, pero se garantiza que viene de un Query.
-                     */
-                    for (QueryDocumentSnapshot doc : snapshot) {
-
-                        Object subtotalObj = doc.get("subtotal");
-
-                        if (subtotalObj != null) {
-                            try {
-                                // Convertir subtotal a double aunque venga como Object
-                                totalGastado += Double.parseDouble(subtotalObj.toString());
-                            } catch (NumberFormatException ignored) {}
-                        }
-                    }
-
-                    tvComprasCount.setText(String.valueOf(cantidadCompras));
-                    tvTotalGastado.setText("$" + String.format("%.0f", totalGastado));
+        CatalogoLocal catalogoLocal = CatalogoLocal.get(this);
+        Hilos.preparar(() -> catalogoLocal.sincronizadoAlgunaVez() ? catalogoLocal.contarActivos() : -1L, local -> {
+            if (local >= 0) {
+                tvProductosCount.setText(String.valueOf(local));
+                return;
+            }
+            estadisticas.contarProductosActivos()
+                    .addOnSuccessListener(total ->
+                            tvProductosCount.setText(String.valueOf(total))
+                    )
+                    .addOnFailureListener(e ->
+                            tvProductosCount.setText("0")
+                    );
+        });
 
+        // ---------------------------
+        // C) Total de compras y gasto total (count + sum("subtotal"))
+        // ---------------------------
+        estadisticas.comprasDelComprador(user.getUid())
+                .addOnSuccessListener(compras -> {
+                    tvComprasCount.setText(String.valueOf(compras.cantidad));
+                    tvTotalGastado.setText(Formatos.dinero(compras.total));
                 })
                 .addOnFailureListener(e -> {
                     tvComprasCount.setText("0");
@@ -0,0 +1,370 @@
+package com.proveenet.proveenet;
+
+import android.content.Context;
+import android.util.Base64;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * PAQUETE DEL CATÁLOGO (Firestore data bundle)
+ * ==============================================================
+ * Una instalación nueva no tiene copia local (CatalogoLocal): antes de
+ * mostrar la primera card esperaba la descarga completa del catálogo.
+ *
+ * Un "bundle" es un archivo con documentos + consultas con nombre que
+ * Firestore carga directo a su caché (db.loadBundle):
+ *
+ *   construir() → catalogo_resumen activos (+ directorio de proveedores)
+ *               → archivo catalogo.bundle
+ *   cargar()    → loadBundle → getNamedQuery("catalogo-activo")
+ *               → get(Source.CACHE) → documentos (sin ir a la red)
+ *   primerosProveedores() → getNamedQuery("directorio-proveedores")
+ *               → primera página de Proveedores, también desde la caché
+ *
+ * Después CatalogoLocal se pone al día con sincronizar() como siempre:
+ * la marca queda en el updatedAt más alto del paquete, así que solo baja
+ * lo que cambió desde que se armó.
+ *
+ * De dónde sale el archivo (en orden):
+ *   1) files/catalogo.bundle  → lo deja construir() o se copia con adb push
+ *   2) URL_LOCAL              → servidor estático de prueba en la PC
+ *                               (python3 -m http.server 8080), en reemplazo
+ *                               del hosting/CDN donde iría en producción.
+ *                               SOLO en builds debug: en un dispositivo real
+ *                               10.0.2.2 no existe y la espera demoraría la
+ *                               primera card; en release sin archivo se sigue
+ *                               directo por la red.
+ *
+ * 📌 Cómo medir (log "ProveeNet", ver Productos.medirPrimeraCard):
+ *   borrar datos de la app → abrir Productos con el paquete disponible,
+ *   y de nuevo sin él (sin archivo y sin servidor): "primera card: N ms".
+ *
+ * Formato: cada elemento es un JSON precedido por su largo en bytes
+ * (metadata, consultas con nombre, y por cada documento su
+ * documentMetadata + document). Es lo mismo que arma el SDK de Admin.
+ */
+public final class PaqueteCatalogo {
+
+    public static final String CONSULTA_CATALOGO = "catalogo-activo";
+    public static final String CONSULTA_PROVEEDORES = "directorio-proveedores";
+
+    static final String NOMBRE_ARCHIVO = "catalogo.bundle";
+
+    // 10.0.2.2 = la PC desde el emulador
+    static final String URL_LOCAL = "http://10.0.2.2:8080/" + NOMBRE_ARCHIVO;
+    private static final int ESPERA_RED_MS = 3000;
+
+    private PaqueteCatalogo() {}
+
+    public static File archivo(Context context) {
+        return new File(context.getFilesDir(), NOMBRE_ARCHIVO);
+    }
+
+    // Las mismas consultas que usan Productos y Proveedores
+    static Query consultaCatalogo(FirebaseFirestore db) {
+        return ResumenCatalogo.coleccion(db)
+                .whereEqualTo("estado", "activo")
+                .orderBy(FieldPath.documentId());
+    }
+
+    static Query consultaProveedores(FirebaseFirestore db) {
+        return db.collection("proveedores")
+                .whereEqualTo("rol", "proveedor")
+                .orderBy("empresa");
+    }
+
+    // ==============================================================
+    // 🔹 Cargar (Productos, primera vez sin copia local)
+    // ==============================================================
+    // Falla si no hay paquete o no trae la consulta: quien llama sigue por la red
+    public static Task<List<DocumentSnapshot>> cargar(Context context, FirebaseFirestore db) {
+        return consultaNombrada(context, db, CONSULTA_CATALOGO)
+                .continueWithTask(Hilos.FONDO, t -> t.getResult().get(Source.CACHE))
+                .continueWith(Hilos.FONDO, t -> t.getResult().getDocuments());
+    }
+
+    // ==============================================================
+    // 🔹 Primera página del directorio (Proveedores)
+    // ==============================================================
+    /*
+     * Las primeras "limite" filas de CONSULTA_PROVEEDORES, desde la caché.
+     * Las páginas siguientes las pide el paginador a la red con startAfter
+     * (el cursor sirve igual: es el mismo orderBy("empresa")).
+     * Falla si el paquete se armó sin el directorio: quien llama sigue por la red.
+     */
+    public static Task<List<DocumentSnapshot>> primerosProveedores(Context context, FirebaseFirestore db, int limite) {
+        return consultaNombrada(context, db, CONSULTA_PROVEEDORES)
+                .continueWithTask(Hilos.FONDO, t -> t.getResult().limit(limite).get(Source.CACHE))
+                .continueWith(Hilos.FONDO, t -> t.getResult().getDocuments());
+    }
+
+    // Una sola carga del paquete por proceso (Productos y Proveedores lo comparten)
+    private static Task<Void> cargaEnCurso;
+
+    private static synchronized Task<Void> cargarPaquete(Context context, FirebaseFirestore db) {
+        if (cargaEnCurso == null || (cargaEnCurso.isComplete() && !cargaEnCurso.isSuccessful())) {
+            File archivo = archivo(context);
+            cargaEnCurso = Tasks.call(Hilos.FONDO, () -> leerPaquete(archivo))
+                    .continueWithTask(Hilos.FONDO, t -> db.loadBundle(t.getResult()))
+                    .continueWith(Hilos.FONDO, t -> {
+                        t.getResult(); // propaga el error de loadBundle
+                        return null;
+                    });
+        }
+        return cargaEnCurso;
+    }
+
+    // La consulta con nombre; si la caché todavía no la tiene, se carga el paquete
+    private static Task<Query> consultaNombrada(Context context, FirebaseFirestore db, String nombre) {
+        return db.getNamedQuery(nombre).continueWithTask(Hilos.FONDO, t -> {
+            if (t.isSuccessful() && t.getResult() != null) return Tasks.forResult(t.getResult());
+
+            return cargarPaquete(context, db)
+                    .continueWithTask(Hilos.FONDO, carga -> {
+                        carga.getResult();
+                        return db.getNamedQuery(nombre);
+                    })
+                    .continueWith(Hilos.FONDO, q -> {
+                        if (q.getResult() == null) {
+                            throw new IllegalStateException("El paquete no trae " + nombre);
+                        }
+                        return q.getResult();
+                    });
+        });
+    }
+
+    private static byte[] leer(File archivo) throws IOException {
+        try (InputStream entrada = new FileInputStream(archivo)) {
+            return todo(entrada);
+        }
+    }
+
+    private static byte[] leerPaquete(File archivo) throws IOException {
+        if (archivo.exists()) return leer(archivo);
+        if (!BuildConfig.DEBUG) throw new FileNotFoundException("Sin paquete: " + archivo.getName());
+        return descargar(URL_LOCAL);
+    }
+
+    private static byte[] descargar(String url) throws IOException {
+        HttpURLConnection conexion = (HttpURLConnection) new URL(url).openConnection();
+        conexion.setConnectTimeout(ESPERA_RED_MS);
+        conexion.setReadTimeout(ESPERA_RED_MS);
+        try {
+            if (conexion.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Paquete no disponible: HTTP " + conexion.getResponseCode());
+            }
+            try (InputStream entrada = conexion.getInputStream()) {
+                return todo(entrada);
+            }
+        } finally {
+            conexion.disconnect();
+        }
+    }
+
+    private static byte[] todo(InputStream entrada) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int leidos;
+        while ((leidos = entrada.read(buffer)) != -1) salida.write(buffer, 0, leidos);
+        return salida.toByteArray();
+    }
+
+    // ==============================================================
+    // 🛠 Construir (herramienta de desarrollo, ver DashboardProveedor)
+    // ==============================================================
+    /*
+     * Lee del servidor (no de la caché) y escribe files/catalogo.bundle.
+     * Para servirlo: adb pull del archivo a la carpeta del servidor estático.
+     * Devuelve la cantidad de documentos del paquete.
+     */
+    public static Task<Integer> construir(Context context, FirebaseFirestore db, boolean conProveedores) {
+        File archivo = archivo(context);
+        Task<QuerySnapshot> catalogo = consultaCatalogo(db).get(Source.SERVER);
+        Task<QuerySnapshot> proveedores = conProveedores
+                ? consultaProveedores(db).get(Source.SERVER)
+                : Tasks.forResult(null);
+
+        return Tasks.whenAllSuccess(catalogo, proveedores).continueWith(Hilos.FONDO, t -> {
+            t.getResult(); // propaga el error de cualquiera de las dos consultas
+
+            Constructor paquete = new Constructor(db.getApp().getOptions().getProjectId(), Timestamp.now());
+
+            paquete.consulta(CONSULTA_CATALOGO, estructurada(ResumenCatalogo.nombreColeccion(),
+                    "estado", "activo", "__name__"), catalogo.getResult());
+            if (conProveedores) {
+                paquete.consulta(CONSULTA_PROVEEDORES, estructurada("proveedores",
+                        "rol", "proveedor", "empresa"), proveedores.getResult());
+            }
+
+            try (OutputStream salida = new FileOutputStream(archivo)) {
+                paquete.escribir(salida);
+            }
+            return paquete.documentos;
+        });
+    }
+
+    // Consulta "campo == valor ORDER BY orden" en el formato de la API REST
+    private static JSONObject estructurada(String coleccion, String campo, String valor, String orden)
+            throws JSONException {
+        JSONObject filtro = new JSONObject()
+                .put("field", new JSONObject().put("fieldPath", campo))
+                .put("op", "EQUAL")
+                .put("value", new JSONObject().put("stringValue", valor));
+
+        return new JSONObject()
+                .put("from", new JSONArray().put(new JSONObject().put("collectionId", coleccion)))
+                .put("where", new JSONObject().put("fieldFilter", filtro))
+                .put("orderBy", new JSONArray().put(new JSONObject()
+                        .put("field", new JSONObject().put("fieldPath", orden))
+                        .put("direction", "ASCENDING")));
+    }
+
+    /*
+     * Arma los elementos en memoria: la metadata va primero pero necesita
+     * el total de bytes y de documentos, que se conocen al final.
+     * (totalBytes no incluye a la propia metadata, igual que el SDK de Admin)
+     */
+    private static final class Constructor {
+
+        private final String raiz;
+        private final JSONObject creado;
+        private final ByteArrayOutputStream consultas = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream cuerpo = new ByteArrayOutputStream();
+        int documentos;
+
+        Constructor(String proyecto, Timestamp ahora) throws JSONException {
+            raiz = "projects/" + proyecto + "/databases/(default)/documents";
+            creado = tiempo(ahora);
+        }
+
+        void consulta(String nombre, JSONObject estructurada, QuerySnapshot resultado) throws JSONException {
+            JSONObject agrupada = new JSONObject()
+                    .put("parent", raiz)
+                    .put("structuredQuery", estructurada)
+                    .put("limitType", "FIRST");
+            elemento(consultas, new JSONObject().put("namedQuery", new JSONObject()
+                    .put("name", nombre)
+                    .put("bundledQuery", agrupada)
+                    .put("readTime", creado)));
+
+            for (DocumentSnapshot doc : resultado.getDocuments()) {
+                String ruta = raiz + "/" + doc.getReference().getPath();
+
+                elemento(cuerpo, new JSONObject().put("documentMetadata", new JSONObject()
+                        .put("name", ruta)
+                        .put("readTime", creado)
+                        .put("exists", true)
+                        .put("queries", new JSONArray().put(nombre))));
+
+                Timestamp actualizado = doc.getTimestamp(CatalogoLocal.ACTUALIZADO);
+                JSONObject version = actualizado != null ? tiempo(actualizado) : creado;
+                elemento(cuerpo, new JSONObject().put("document", new JSONObject()
+                        .put("name", ruta)
+                        .put("fields", campos(doc.getData()))
+                        .put("createTime", version)
+                        .put("updateTime", version)));
+                documentos++;
+            }
+        }
+
+        void escribir(OutputStream salida) throws JSONException, IOException {
+            int total = consultas.size() + cuerpo.size();
+
+            ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+            elemento(metadata, new JSONObject().put("metadata", new JSONObject()
+                    .put("id", NOMBRE_ARCHIVO)
+                    .put("createTime", creado)
+                    .put("version", 1)
+                    .put("totalDocuments", documentos)
+                    .put("totalBytes", total)));
+
+            metadata.writeTo(salida);
+            consultas.writeTo(salida);
+            cuerpo.writeTo(salida);
+        }
+
+        // Largo en bytes (UTF-8) + JSON
+        private static void elemento(ByteArrayOutputStream salida, JSONObject json) {
+            byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] largo = String.valueOf(bytes.length).getBytes(StandardCharsets.UTF_8);
+            salida.write(largo, 0, largo.length);
+            salida.write(bytes, 0, bytes.length);
+        }
+
+        private JSONObject campos(Map<String, Object> datos) throws JSONException {
+            JSONObject campos = new JSONObject();
+            if (datos == null) return campos;
+            for (Map.Entry<String, Object> e : datos.entrySet()) campos.put(e.getKey(), valor(e.getValue()));
+            return campos;
+        }
+
+        // 🔹 Valor de Firestore → JSON de la API REST ({"stringValue": ...}, etc.)
+        private JSONObject valor(Object v) throws JSONException {
+            JSONObject j = new JSONObject();
+
+            if (v == null) j.put("nullValue", JSONObject.NULL);
+            else if (v instanceof Boolean) j.put("booleanValue", v);
+            else if (v instanceof Long || v instanceof Integer) j.put("integerValue", String.valueOf(v));
+            else if (v instanceof Number) j.put("doubleValue", ((Number) v).doubleValue());
+            else if (v instanceof String) j.put("stringValue", v);
+            else if (v instanceof Timestamp) j.put("timestampValue", tiempo((Timestamp) v));
+            else if (v instanceof GeoPoint) {
+                GeoPoint p = (GeoPoint) v;
+                j.put("geoPointValue", new JSONObject()
+                        .put("latitude", p.getLatitude())
+                        .put("longitude", p.getLongitude()));
+            } else if (v instanceof Blob) {
+                j.put("bytesValue", Base64.encodeToString(((Blob) v).toBytes(), Base64.NO_WRAP));
+            } else if (v instanceof DocumentReference) {
+                j.put("referenceValue", raiz + "/" + ((DocumentReference) v).getPath());
+            } else if (v instanceof List) {
+                JSONArray valores = new JSONArray();
+                for (Object item : (List<?>) v) valores.put(valor(item));
+                j.put("arrayValue", new JSONObject().put("values", valores));
+            } else if (v instanceof Map) {
+                JSONObject campos = new JSONObject();
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                    campos.put(String.valueOf(e.getKey()), valor(e.getValue()));
+                }
+                j.put("mapValue", new JSONObject().put("fields", campos));
+            } else {
+                throw new IllegalArgumentException("Tipo sin soporte en el paquete: " + v.getClass().getSimpleName());
+            }
+            return j;
+        }
+
+        private static JSONObject tiempo(Timestamp t) throws JSONException {
+            return new JSONObject().put("seconds", t.getSeconds()).put("nanos", t.getNanoseconds());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.proveenet.proveenet;
+
+/*
+ * ==============================================================
+ * PRODUCTO (modelo inmutable)
+ * ==============================================================
+ * Un documento de "productos" ya decodificado (ver Decodificador):
+ * precio y stock son números aunque en Firestore vengan como texto.
+ */
+public final class Producto {
+
+    public final String id;
+    public final String codigo;
+    public final String nombre;
+    public final String categoria;
+    public final String descripcion;
+    public final String proveedorId;
+    public final String proveedorNombre;
+    public final String estado;
+
+    public final double precio;
+    public final long stock;
+    public final long reservado;   // unidades apartadas por órdenes sin confirmar
+
+    Producto(String id, String codigo, String nombre, String categoria, String descripcion,
+             String proveedorId, String proveedorNombre, String estado,
+             double precio, long stock, long reservado) {
+        this.id = id;
+        this.codigo = codigo;
+        this.nombre = nombre;
+        this.categoria = categoria;
+        this.descripcion = descripcion;
+        this.proveedorId = proveedorId;
+        this.proveedorNombre = proveedorNombre;
+        this.estado = estado;
+        this.precio = precio;
+        this.stock = stock;
+        this.reservado = reservado;
+    }
+
+    public boolean esActivo() {
+        return "activo".equals(estado);
+    }
+
+    // Unidades que un comprador todavía puede pedir
+    public long disponible() {
+        return Math.max(0, stock - reservado);
+    }
+}
@@ -0,0 +1,126 @@
+package com.proveenet.proveenet;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ==============================================================
+ * PRODUCTO ADAPTER (catálogo público)
+ * ==============================================================
+ * Reemplaza el "inflar una card por producto" dentro de un LinearLayout.
+ * El RecyclerView solo crea las cards que caben en pantalla (+ unas pocas)
+ * y las RECICLA al hacer scroll, cambiando solo los textos.
+ */
+public class ProductoAdapter extends RecyclerView.Adapter<ProductoAdapter.ProductoViewHolder> {
+
+    // Acción del botón "Agregar" de cada card
+    public interface OnAgregarListener {
+        void onAgregar(Producto producto);
+    }
+
+    // ==============================================================
+    // 🔹 Fila lista para mostrar
+    // ==============================================================
+    /*
+     * Se arma en el hilo de fondo (ver Hilos): decodificar y formatear
+     * el precio ya está hecho cuando la card se enlaza.
+     */
+    public static final class Fila {
+        final Producto producto;
+        final String nombre, precio, proveedor, stock, categoria, descripcion;
+
+        Fila(Producto producto) {
+            this.producto = producto;
+            nombre = producto.nombre != null ? producto.nombre : "Sin nombre";
+            precio = Formatos.dinero(producto.precio); // sin decimales
+            proveedor = producto.proveedorNombre != null ? producto.proveedorNombre : "Desconocido";
+            // disponibles = stock - unidades reservadas por órdenes sin confirmar
+            stock = producto.disponible() + " disponibles";
+            categoria = producto.categoria != null ? producto.categoria : "Sin categoría";
+            descripcion = producto.descripcion != null ? producto.descripcion : "Sin descripción";
+        }
+
+        // 🔹 Documentos de una página → filas (llamar en el hilo de fondo)
+        public static List<Fila> de(List<DocumentSnapshot> documentos) {
+            List<Fila> filas = new ArrayList<>(documentos.size());
+            for (DocumentSnapshot doc : documentos) filas.add(new Fila(Decodificador.producto(doc)));
+            return filas;
+        }
+    }
+
+    // Filas ya preparadas (Productos las agrega página por página en el hilo principal)
+    private final List<Fila> filas;
+    private final OnAgregarListener listener;
+
+    public ProductoAdapter(List<Fila> filas, OnAgregarListener listener) {
+        this.filas = filas;
+        this.listener = listener;
+    }
+
+    @Override
+    public ProductoViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_producto_publico, parent, false);
+
+        ProductoViewHolder holder = new ProductoViewHolder(v);
+
+        // El listener se crea UNA vez por card y lee la posición al momento del click
+        holder.btnAgregar.setOnClickListener(btn -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos == RecyclerView.NO_POSITION) return;
+
+            listener.onAgregar(filas.get(pos).producto);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ProductoViewHolder holder, int position) {
+
+        // Solo asignar textos: todo viene formateado desde el hilo de fondo
+        Fila fila = filas.get(position);
+        holder.tvNombre.setText(fila.nombre);
+        holder.tvPrecio.setText(fila.precio);
+        holder.tvProveedor.setText(fila.proveedor);
+        holder.tvStock.setText(fila.stock);
+        holder.tvCategoria.setText(fila.categoria);
+        holder.tvDescripcion.setText(fila.descripcion);
+    }
+
+    @Override
+    public int getItemCount() {
+        return filas.size();
+    }
+
+    // ==============================================================
+    // 🔹 ViewHolder: guarda las referencias de UNA card
+    // ==============================================================
+    public static class ProductoViewHolder extends RecyclerView.ViewHolder {
+
+        TextView tvNombre, tvPrecio, tvProveedor, tvStock, tvCategoria, tvDescripcion;
+        Button btnAgregar;
+
+        public ProductoViewHolder(View itemView) {
+            super(itemView);
+
+            // Enlazar vistas del layout item_producto_publico.xml
+            tvNombre      = itemView.findViewById(R.id.tvNombreProducto);
+            tvPrecio      = itemView.findViewById(R.id.tvPrecio);
+            tvProveedor   = itemView.findViewById(R.id.tvProveedor);
+            tvStock       = itemView.findViewById(R.id.tvStock);
+            tvCategoria   = itemView.findViewById(R.id.tvCategoria);
+            tvDescripcion = itemView.findViewById(R.id.tvDescripcion);
+            btnAgregar    = itemView.findViewById(R.id.btnAgregarCotizacion);
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package com.proveenet.proveenet;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.view.LayoutInflater; // ➜ Para convertir XML en Views
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -17,9 +31,10 @@ import com.google.firebase.auth.FirebaseAuth;         // ➜ Maneja la sesión d
 import com.google.firebase.auth.FirebaseUser;        // ➜ Representa al usuario actual
 import com.google.firebase.firestore.DocumentSnapshot; // ➜ Representa un documento de Firestore
 import com.google.firebase.firestore.FirebaseFirestore; // ➜ Base de datos Firestore
-import com.google.firebase.firestore.QuerySnapshot;     // ➜ Resultado de una consulta (varios documentos)
+import com.google.firebase.firestore.Query;             // ➜ Consulta base del paginador
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /*
@@ -27,9 +42,13 @@ import java.util.Map;
  * ACTIVITY: Productos (vista del comprador)
  * ======================================================
  * Esta pantalla muestra todos los productos con estado "activo".
- * Los productos vienen desde Firestore → colección "productos".
- * Cada producto se muestra en una card inflada desde XML.
+ * Los productos salen de la copia local (CatalogoLocal), que se pone al día
+ * con solo lo que cambió; la primera vez salen del paquete del catálogo
+ * (PaqueteCatalogo) o, si no hay, de Firestore de a páginas.
+ * Cada producto se muestra en una card reciclada por un RecyclerView.
  * Permite agregar productos al carrito (colección anidada).
+ * El buscador filtra en el dispositivo (ver IndiceBusqueda) y "Filtros"
+ * acota por categoría, proveedor y precio (ver FiltroCatalogo).
  */
 public class Productos extends BaseActivity {
 
@@ -39,6 +58,47 @@ public class Productos extends BaseActivity {
     private LinearLayout llListaProductos; // contenedor de las cards del producto
     private TextView tvProductosCount, tvUserName;
 
+    // Paginación del catálogo
+    private static final int TAMANO_PAGINA = 20;   // productos por consulta
+    private static final int UMBRAL_PREFETCH = 5;  // cards restantes antes de pedir la siguiente página
+    private PaginadorFirestore paginador;
+    private ProductoAdapter productoAdapter;
+
+    // Filas que muestra el adapter: el catálogo paginado o los resultados de la búsqueda
+    private final List<ProductoAdapter.Fila> filas = new ArrayList<>();
+
+    // Páginas del catálogo ya decodificadas en el hilo de fondo (ver Hilos)
+    private final List<ProductoAdapter.Fila> catalogo = new ArrayList<>();
+
+    // Búsqueda local
+    private static final long ESPERA_BUSQUEDA_MS = 150; // se busca cuando se deja de escribir
+    private final IndiceBusqueda indice = new IndiceBusqueda(); // ⚠️ solo desde Hilos.FONDO
+    private final Handler esperaBusqueda = new Handler(Looper.getMainLooper());
+    private final Runnable buscarAhora = () -> buscar(etBuscar.getText().toString().trim());
+    private CatalogoLocal catalogoLocal;  // copia de "productos" en el dispositivo
+    private boolean catalogoLocalListo;   // índice y facetas tienen el catálogo completo
+    private EditText etBuscar;
+    private RecyclerView recycler;
+    private String consultaActual = "";
+    private int numeroBusqueda;          // descarta respuestas de consultas viejas
+    private boolean cargandoResultados, quedanResultados;
+    private String textoTotal = "";
+
+    // Facetas (categoría / proveedor / precio)
+    private final FacetasCatalogo facetas = new FacetasCatalogo(); // ⚠️ solo desde Hilos.FONDO
+    private FiltroCatalogo filtro = FiltroCatalogo.TODOS;
+    private Button btnFiltros;
+    private DialogoFiltros dialogoFiltros;
+
+    // Agregados al carrito pendientes de escribir (se envían juntos)
+    private CarritoBuffer carritoBuffer;
+
+    // Medición: tiempo hasta la primera card (ver PaqueteCatalogo, "Cómo medir")
+    private static final String TAG = "ProveeNet";
+    private final long inicioPantalla = SystemClock.elapsedRealtime();
+    private String origenCatalogo = "red";
+    private boolean primeraCardMedida;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -49,6 +109,7 @@ public class Productos extends BaseActivity {
         // ======================================================
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        catalogoLocal = CatalogoLocal.get(this);
 
         // ======================================================
         // 2. ENLAZAR ELEMENTOS DEL LAYOUT
@@ -78,44 +139,17 @@ public class Productos extends BaseActivity {
             return;
         }
 
-        String uid = user.getUid();
-
         /*
-         * Primero busca en "compradores".
-         * DocumentSnapshot representa los datos del documento encontrado.
+         * El perfil (comprador O proveedor) se guardó al iniciar sesión:
+         * antes se leía "compradores" y, si no estaba, también "proveedores".
          */
-        db.collection("compradores").document(uid).get()
-                .addOnSuccessListener(document -> {
-
-                    if (document.exists()) {
-                        String nombre = document.getString("nombre");
-
-                        if (nombre != null && !nombre.isEmpty()) {
-                            tvUserName.setText(nombre);
-                        } else {
-                            tvUserName.setText("Sin nombre");
-                        }
-
-                    } else {
-                        // No es comprador → buscar proveedor
-                        db.collection("proveedores").document(uid).get()
-                                .addOnSuccessListener(docProv -> {
-
-                                    if (docProv.exists()) {
-                                        String nombre = docProv.getString("nombre");
-                                        tvUserName.setText(
-                                                (nombre != null && !nombre.isEmpty()) ? nombre : "Sin nombre"
-                                        );
-                                    } else {
-                                        tvUserName.setText("Usuario desconocido");
-                                    }
-
-                                })
-                                .addOnFailureListener(e -> tvUserName.setText("Error al cargar nombre"));
-                    }
-
-                })
-                .addOnFailureListener(e -> tvUserName.setText("Error al cargar nombre"));
+        SesionUsuario.obtener(this, db, sesion -> {
+            if (sesion == null) {
+                tvUserName.setText("Usuario desconocido");
+                return;
+            }
+            tvUserName.setText(sesion.nombre != null && !sesion.nombre.isEmpty() ? sesion.nombre : "Sin nombre");
+        });
     }
 
 
@@ -157,117 +191,556 @@ public class Productos extends BaseActivity {
 
 
     // ======================================================
-    // Cargar productos activos desde Firestore
+    // Cargar productos activos desde Firestore (de a páginas)
     // ======================================================
     private void cargarProductosDisponibles() {
 
+        // RecyclerView en vez de inflar una card por producto en el LinearLayout
+        recycler = convertirEnListaReciclable(llListaProductos);
+        productoAdapter = new ProductoAdapter(filas, this::agregarAlCarrito);
+        recycler.setAdapter(productoAdapter);
+
+        agregarBuscador();
+
+        // Prefetch: cuando faltan pocas cards por ver se pide la siguiente página
+        PaginadorFirestore.alAcercarseAlFinal(recycler, UMBRAL_PREFETCH, this::cargarSiguientePagina);
+
+        // Con copia local no se pide ninguna página a Firestore (ver cargarCatalogoLocal)
+        cargarCatalogoLocal();
+
+        // El total se cuenta en el servidor (no hace falta tener todas las páginas)
+        new EstadisticasService(db).contarProductosActivos()
+                .addOnSuccessListener(total -> {
+                    textoTotal = total + " disponibles";
+                    if (!modoLocal() && filtro.facetasActivas() == 0) tvProductosCount.setText(textoTotal);
+                });
+    }
+
+    // Paginador nuevo para el filtro actual (sin filtro o UNA faceta)
+    private void reiniciarCatalogo() {
+
         /*
          * whereEqualTo("estado", "activo"):
          * Filtra solo productos disponibles para los compradores.
+         *
+         * filtro.aplicarA agrega la faceta elegida (si hay) y el orderBy:
+         * un orden estable para que el cursor (startAfter) del paginador
+         * sepa desde dónde seguir.
          */
-        db.collection("productos")
-                .whereEqualTo("estado", "activo")
-                .get()
-                .addOnSuccessListener(this::mostrarProductos)
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error al cargar productos", Toast.LENGTH_LONG).show()
-                );
+        Query query = filtro.aplicarA(ResumenCatalogo.coleccion(db)
+                .whereEqualTo("estado", "activo"));
+
+        paginador = new PaginadorFirestore(query, TAMANO_PAGINA);
+        catalogo.clear();
+
+        if (!modoLocal()) {
+            filas.clear();
+            productoAdapter.notifyDataSetChanged();
+            mostrarTotalFiltro();
+        }
+        cargarPaginaCatalogo();
+    }
+
+    private void cargarSiguientePagina() {
+
+        // Buscando o con varias facetas → la "siguiente página" sale del dispositivo
+        if (modoLocal()) {
+            cargarMasResultados();
+            return;
+        }
+        cargarPaginaCatalogo();
+    }
+
+    private void cargarPaginaCatalogo() {
+
+        if (paginador == null) return; // todavía se está leyendo la copia local
+        PaginadorFirestore esePaginador = paginador;
+
+        esePaginador.cargarSiguiente(new PaginadorFirestore.Callback() {
+            @Override
+            public void onPagina(List<DocumentSnapshot> pagina, int desde) {
+                // Decodificar y formatear en el fondo; el hilo principal solo inserta
+                Hilos.preparar(() -> ProductoAdapter.Fila.de(pagina), nuevas -> {
+                    if (esePaginador != paginador) return; // el filtro cambió mientras llegaba
+
+                    catalogo.addAll(nuevas);
+                    if (modoLocal()) return; // se verá al borrar la búsqueda
+
+                    int inicio = filas.size();
+                    filas.addAll(nuevas);
+
+                    // Solo se avisan las filas nuevas → las cards ya dibujadas no se tocan
+                    productoAdapter.notifyItemRangeInserted(inicio, nuevas.size());
+                    medirPrimeraCard();
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(Productos.this, "❌ Error al cargar productos", Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    // La lista sale del dispositivo: copia local lista, búsqueda o 2+ facetas
+    private boolean modoLocal() {
+        return catalogoLocalListo || !consultaActual.isEmpty() || filtro.facetasActivas() > 1;
     }
 
 
     // ======================================================
-    // Muestra los productos en tarjetas dinámicas
+    // Buscador (nombre, categoría o descripción) + botón Filtros
     // ======================================================
-    private void mostrarProductos(QuerySnapshot snapshot) {
+    private void agregarBuscador() {
 
         /*
-         * QuerySnapshot:
-         * Representa un conjunto de DocumentSnapshot (lista de documentos).
+         * Se arman en código y quedan justo arriba de la lista:
+         * la lista se envuelve en una columna [buscador | Filtros, lista].
          */
-        llListaProductos.removeAllViews(); // limpiar antes de llenar
-        int count = 0;
-
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-
-            // =========== LEER DATOS DEL PRODUCTO DESDE FIRESTORE ===========
-            String codigo = doc.getId();
-            String nombre = doc.getString("nombre");
-            String categoria = doc.getString("categoria");
-            String descripcion = doc.getString("descripcion");
-            String proveedor = doc.getString("proveedorNombre");
-            String proveedorId = doc.getString("proveedorId");
-
-            // --- precio puede ser Number o String → validar
-            Object precioObj = doc.get("precio");
-            double precio = 0.0;
-            String precioTxt = "0";
-
-            if (precioObj instanceof Number) {
-                precio = ((Number) precioObj).doubleValue();
-                precioTxt = String.format("%.0f", precio); // quitar decimales
-            } else if (precioObj instanceof String) {
-                try {
-                    precio = Double.parseDouble(((String) precioObj).replaceAll("[^0-9.]", ""));
-                    precioTxt = String.valueOf(precio);
-                } catch (Exception ignored) {}
+        etBuscar = new EditText(this);
+        etBuscar.setHint("🔍 Buscar productos");
+        etBuscar.setSingleLine(true);
+        etBuscar.setImeOptions(EditorInfo.IME_ACTION_SEARCH);
+
+        btnFiltros = new Button(this);
+        btnFiltros.setText("Filtros");
+        btnFiltros.setOnClickListener(v -> mostrarDialogoFiltros());
+
+        LinearLayout barra = new LinearLayout(this);
+        barra.setOrientation(LinearLayout.HORIZONTAL);
+        barra.addView(etBuscar, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f));
+        barra.addView(btnFiltros, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        ViewGroup padre = (ViewGroup) recycler.getParent();
+        int indiceLista = padre.indexOfChild(recycler);
+        ViewGroup.LayoutParams params = recycler.getLayoutParams();
+        padre.removeViewAt(indiceLista);
+
+        LinearLayout columna = new LinearLayout(this);
+        columna.setOrientation(LinearLayout.VERTICAL);
+        columna.addView(barra, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        columna.addView(recycler, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, 0, 1f));
+        padre.addView(columna, indiceLista, params);
+
+        etBuscar.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                // Se reinicia la espera con cada letra
+                esperaBusqueda.removeCallbacks(buscarAhora);
+                esperaBusqueda.postDelayed(buscarAhora, ESPERA_BUSQUEDA_MS);
             }
+        });
+    }
 
-            // --- stock (puede venir como texto o número)
-            Object stockObj = doc.get("stock");
-            String stockTxt = "0";
+    // ======================================================
+    // Catálogo local: alimenta el índice de búsqueda y las facetas
+    // ======================================================
+    private void cargarCatalogoLocal() {
 
-            if (stockObj instanceof Number) {
-                stockTxt = stockObj.toString();
-            } else if (stockObj instanceof String) {
-                stockTxt = (String) stockObj;
+        /*
+         * 1) La copia local (CatalogoLocal) llena índice y facetas sin descargar nada.
+         *    Sin copia (instalación nueva) se prueba el paquete del catálogo
+         *    (PaqueteCatalogo): siembra la copia sin esperar a la red.
+         * 2) sincronizar() trae solo los productos que cambiaron desde la última
+         *    vez (ver CatalogoLocal) y se aplican de a uno: un producto que dejó
+         *    de estar "activo" o se borró sale del índice.
+         *
+         * Con la copia lista, la lista entera sale del dispositivo. Solo sin
+         * copia ni paquete se usa el paginador mientras se descarga todo.
+         *
+         * Hilos.FONDO: índice, facetas y SQLite se tocan siempre en el mismo hilo.
+         */
+        Hilos.preparar(() -> {
+            for (Producto producto : catalogoLocal.activos()) {
+                indice.actualizar(producto);
+                facetas.actualizar(producto);
             }
+            return catalogoLocal.sincronizadoAlgunaVez();
+        }, habiaCopia -> {
+            if (habiaCopia) {
+                origenCatalogo = "copia local";
+                alCambiarCatalogoLocal();
+                sincronizarCatalogoLocal();
+            } else {
+                cargarPaqueteCatalogo();
+            }
+        });
+    }
 
-            // ======================================================
-            // Crear card inflando layout XML item_producto_publico
-            // ======================================================
-
-            /*
-             * LayoutInflater:
-             * Convierte un archivo XML en un objeto View en tiempo real.
-             */
-            View cardView = LayoutInflater.from(this)
-                    .inflate(R.layout.item_producto_publico, llListaProductos, false);
-
-            // Asignar datos a la card
-            ((TextView) cardView.findViewById(R.id.tvNombreProducto)).setText(nombre != null ? nombre : "Sin nombre");
-            ((TextView) cardView.findViewById(R.id.tvPrecio)).setText("$" + precioTxt);
-            ((TextView) cardView.findViewById(R.id.tvProveedor)).setText(proveedor != null ? proveedor : "Desconocido");
-            ((TextView) cardView.findViewById(R.id.tvStock)).setText(stockTxt + " disponibles");
-            ((TextView) cardView.findViewById(R.id.tvCategoria)).setText(categoria != null ? categoria : "Sin categoría");
-            ((TextView) cardView.findViewById(R.id.tvDescripcion)).setText(descripcion != null ? descripcion : "Sin descripción");
-
-            // Botón agregar
-            Button btnAgregar = cardView.findViewById(R.id.btnAgregarCotizacion);
-
-            // Variables finales para lambdas
-            double finalPrecio = precio;
-            String finalProveedorId = proveedorId;
-
-            // Acción del botón
-            btnAgregar.setOnClickListener(v ->
-                    agregarAlCarrito(codigo, nombre, proveedor, finalProveedorId, finalPrecio)
-            );
-
-            // Agregar card al LinearLayout
-            llListaProductos.addView(cardView);
-
-            count++;
+    // Primera vez: el paquete siembra la copia local y después se sincroniza desde su marca
+    private void cargarPaqueteCatalogo() {
+        PaqueteCatalogo.cargar(this, db)
+                .addOnSuccessListener(Hilos.FONDO, documentos -> {
+                    CatalogoLocal.Delta delta = catalogoLocal.sembrar(documentos);
+                    aplicarAlIndice(delta);
+
+                    Hilos.principal(() -> {
+                        if (delta.vacio()) {
+                            sinPaqueteCatalogo();
+                            return;
+                        }
+                        origenCatalogo = "paquete";
+                        alCambiarCatalogoLocal();
+                        sincronizarCatalogoLocal();
+                    });
+                })
+                .addOnFailureListener(e -> sinPaqueteCatalogo());
+    }
+
+    // Sin paquete: páginas de Firestore mientras se descarga el catálogo completo
+    private void sinPaqueteCatalogo() {
+        reiniciarCatalogo();
+        sincronizarCatalogoLocal();
+    }
+
+    private void sincronizarCatalogoLocal() {
+        catalogoLocal.sincronizar()
+                .addOnSuccessListener(Hilos.FONDO, delta -> {
+                    aplicarAlIndice(delta);
+                    if (!delta.vacio()) Hilos.principal(this::alCambiarCatalogoLocal);
+                })
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "⚠️ No se pudo actualizar el catálogo", Toast.LENGTH_SHORT).show());
+    }
+
+    // ⚠️ Hilos.FONDO
+    private void aplicarAlIndice(CatalogoLocal.Delta delta) {
+        for (Producto producto : delta.cambiados) {
+            indice.actualizar(producto);
+            facetas.actualizar(producto);
         }
+        for (String id : delta.eliminados) {
+            indice.quitar(id);
+            facetas.quitar(id);
+        }
+    }
 
-        tvProductosCount.setText(count + " disponibles");
+    // Una sola vez por pantalla: cuánto tardó en verse la primera card y de dónde salió
+    private void medirPrimeraCard() {
+        if (primeraCardMedida || filas.isEmpty()) return;
+        primeraCardMedida = true;
+        Log.i(TAG, "primera card: " + (SystemClock.elapsedRealtime() - inicioPantalla)
+                + " ms (" + origenCatalogo + ")");
+    }
+
+    // Resultados, total y conteos en pantalla pueden haber cambiado
+    private void alCambiarCatalogoLocal() {
+        catalogoLocalListo = true;
+        mostrarResultados(Math.max(filas.size(), TAMANO_PAGINA), false);
+        if (dialogoFiltros != null) dialogoFiltros.recontar();
+    }
+
+    private void buscar(String consulta) {
+
+        if (consulta.equals(consultaActual)) return;
+        consultaActual = consulta;
+
+        if (modoLocal()) {
+            mostrarResultados(TAMANO_PAGINA, true);
+            return;
+        }
+
+        // Vuelve el catálogo paginado tal como estaba
+        numeroBusqueda++;
+        filas.clear();
+        filas.addAll(catalogo);
+        productoAdapter.notifyDataSetChanged();
+        mostrarTotalFiltro();
+    }
+
+    // Primera(s) página(s) de resultados → reemplazan la lista
+    private void mostrarResultados(int cantidad, boolean alInicio) {
+
+        String consulta = consultaActual;
+        FiltroCatalogo f = filtro;
+        int numero = ++numeroBusqueda;
+        cargandoResultados = true;
+
+        // El total se lee en el mismo paso: índice y facetas se tocan solo desde el fondo
+        Hilos.preparar(() -> consulta.isEmpty()
+                ? new Resultados(filasDe(facetas.filtrar(f, 0, cantidad)), facetas.contar(f))
+                : new Resultados(filasDe(indice.buscar(consulta, f, 0, cantidad)), indice.totalUltimaBusqueda()),
+                listo -> {
+                    if (numero != numeroBusqueda) return; // ya se escribió / filtró otra cosa
+
+                    cargandoResultados = false;
+                    quedanResultados = listo.filas.size() < listo.total;
+
+                    filas.clear();
+                    filas.addAll(listo.filas);
+                    productoAdapter.notifyDataSetChanged();
+                    medirPrimeraCard();
+                    if (!catalogoLocalListo) tvProductosCount.setText("Buscando…");
+                    else if (consulta.isEmpty() && f.facetasActivas() == 0) tvProductosCount.setText(listo.total + " disponibles");
+                    else tvProductosCount.setText(listo.total + " resultados");
+                    if (alInicio) recycler.scrollToPosition(0);
+                });
+    }
+
+    // Siguiente página de resultados (prefetch al hacer scroll)
+    private void cargarMasResultados() {
+
+        if (cargandoResultados || !quedanResultados) return;
+
+        String consulta = consultaActual;
+        FiltroCatalogo f = filtro;
+        int numero = numeroBusqueda;
+        int desde = filas.size();
+        cargandoResultados = true;
+
+        Hilos.preparar(() -> filasDe(consulta.isEmpty()
+                ? facetas.filtrar(f, desde, TAMANO_PAGINA)
+                : indice.buscar(consulta, f, desde, TAMANO_PAGINA)), nuevas -> {
+            if (numero != numeroBusqueda) return;
+
+            cargandoResultados = false;
+            quedanResultados = nuevas.size() == TAMANO_PAGINA;
+
+            filas.addAll(nuevas);
+            productoAdapter.notifyItemRangeInserted(desde, nuevas.size());
+        });
+    }
+
+    private static final class Resultados {
+        final List<ProductoAdapter.Fila> filas;
+        final int total;
+
+        Resultados(List<ProductoAdapter.Fila> filas, int total) {
+            this.filas = filas;
+            this.total = total;
+        }
+    }
+
+    private static List<ProductoAdapter.Fila> filasDe(List<Producto> productos) {
+        List<ProductoAdapter.Fila> resultado = new ArrayList<>(productos.size());
+        for (Producto p : productos) resultado.add(new ProductoAdapter.Fila(p));
+        return resultado;
+    }
+
+
+    // ======================================================
+    // Filtros por categoría, proveedor y precio
+    // ======================================================
+    private void aplicarFiltro(FiltroCatalogo nuevo) {
+
+        if (nuevo.equals(filtro)) return;
+        filtro = nuevo;
+
+        int activas = nuevo.facetasActivas();
+        btnFiltros.setText(activas == 0 ? "Filtros" : "Filtros (" + activas + ")");
+
+        /*
+         * Copia local lista → todo se filtra en el dispositivo.
+         * Si no (primera vez):
+         *   0 o 1 faceta → consulta indexada de Firestore, de a páginas.
+         *   2 o más      → FacetasCatalogo (se completa al terminar la descarga).
+         */
+        if (activas > 1 || catalogoLocalListo) {
+            mostrarResultados(TAMANO_PAGINA, true);
+        } else {
+            reiniciarCatalogo();
+            if (modoLocal()) mostrarResultados(TAMANO_PAGINA, true); // la búsqueda sigue activa
+        }
+    }
+
+    // Contador de arriba para el catálogo paginado
+    private void mostrarTotalFiltro() {
+
+        FiltroCatalogo f = filtro;
+        if (f.facetasActivas() == 0) {
+            tvProductosCount.setText(textoTotal);
+            return;
+        }
+        if (!catalogoLocalListo) {
+            tvProductosCount.setText("Filtrado");
+            return;
+        }
+
+        Hilos.preparar(() -> facetas.contar(f), total -> {
+            if (f.equals(filtro) && !modoLocal()) tvProductosCount.setText(total + " resultados");
+        });
+    }
+
+    private void mostrarDialogoFiltros() {
+        // Los conteos salen del catálogo local
+        dialogoFiltros = new DialogoFiltros();
+        dialogoFiltros.mostrar();
+    }
+
+    /*
+     * Diálogo armado en código:
+     *
+     *   Categoría  [ Bebidas (12)      ▼ ]
+     *   Proveedor  [ Distribuidora (4) ▼ ]
+     *   Precio     [ mín ]  [ máx ]
+     *
+     * Cada cambio recalcula los conteos en el fondo con el "borrador"
+     * del filtro; recién "Aplicar" cambia la lista.
+     */
+    private class DialogoFiltros {
+
+        private final Spinner spCategoria = new Spinner(Productos.this);
+        private final Spinner spProveedor = new Spinner(Productos.this);
+        private final EditText etMin = new EditText(Productos.this);
+        private final EditText etMax = new EditText(Productos.this);
+
+        // Valores detrás de cada opción del spinner (posición 0 = null = "Todas")
+        private final List<String> categorias = new ArrayList<>();
+        private final List<String> proveedores = new ArrayList<>();
+
+        private FiltroCatalogo borrador = filtro;
+        private AlertDialog dialog;
+
+        void mostrar() {
+
+            LinearLayout contenido = new LinearLayout(Productos.this);
+            contenido.setOrientation(LinearLayout.VERTICAL);
+            int margen = (int) (20 * getResources().getDisplayMetrics().density);
+            contenido.setPadding(margen, margen / 2, margen, 0);
+
+            etMin.setHint("Precio mín");
+            etMax.setHint("Precio máx");
+            etMin.setInputType(InputType.TYPE_CLASS_NUMBER);
+            etMax.setInputType(InputType.TYPE_CLASS_NUMBER);
+            if (borrador.precioMin != null) etMin.setText(String.valueOf(Math.round(borrador.precioMin)));
+            if (borrador.precioMax != null) etMax.setText(String.valueOf(Math.round(borrador.precioMax)));
+
+            LinearLayout precios = new LinearLayout(Productos.this);
+            precios.setOrientation(LinearLayout.HORIZONTAL);
+            precios.addView(etMin, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f));
+            precios.addView(etMax, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1f));
+
+            contenido.addView(etiqueta("Categoría"));
+            contenido.addView(spCategoria);
+            contenido.addView(etiqueta("Proveedor"));
+            contenido.addView(spProveedor);
+            contenido.addView(etiqueta("Precio"));
+            contenido.addView(precios);
+
+            // Selección de un spinner → nuevo borrador → conteos nuevos del otro
+            spCategoria.setOnItemSelectedListener(alElegir(categorias, true));
+            spProveedor.setOnItemSelectedListener(alElegir(proveedores, false));
+
+            TextWatcher alCambiarPrecio = new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    borrador = borrador.conPrecio(leerPrecio(etMin), leerPrecio(etMax));
+                    recontar();
+                }
+            };
+            etMin.addTextChangedListener(alCambiarPrecio);
+            etMax.addTextChangedListener(alCambiarPrecio);
+
+            dialog = new AlertDialog.Builder(Productos.this)
+                    .setTitle("Filtros")
+                    .setView(contenido)
+                    .setPositiveButton("Aplicar", (d, w) -> aplicarFiltro(borrador))
+                    .setNeutralButton("Limpiar", (d, w) -> aplicarFiltro(FiltroCatalogo.TODOS))
+                    .setNegativeButton("Cancelar", null)
+                    .create();
+            dialog.setOnDismissListener(d -> dialogoFiltros = null);
+            dialog.show();
+
+            recontar();
+        }
+
+        // Conteos "en vivo" para el borrador actual
+        void recontar() {
+            FiltroCatalogo f = borrador;
+            Hilos.preparar(() -> facetas.conteos(f), conteos -> {
+                if (dialog == null || !dialog.isShowing() || !f.equals(borrador)) return;
+
+                llenar(spCategoria, categorias, conteos.categorias, null, f.categoria, "Todas");
+                llenar(spProveedor, proveedores, conteos.proveedores, conteos.nombresProveedor, f.proveedorId, "Todos");
+                dialog.setTitle(catalogoLocalListo
+                        ? "Filtros · " + conteos.total + " productos"
+                        : "Filtros · cargando…");
+            });
+        }
+
+        private void llenar(Spinner spinner, List<String> valores, Map<String, Integer> conteos,
+                            Map<String, String> nombres, String elegido, String todos) {
+
+            valores.clear();
+            List<String> opciones = new ArrayList<>();
+            valores.add(null);
+            opciones.add(todos);
+
+            for (Map.Entry<String, Integer> e : conteos.entrySet()) {
+                String nombre = nombres != null && nombres.get(e.getKey()) != null
+                        ? nombres.get(e.getKey()) : e.getKey();
+                valores.add(e.getKey());
+                opciones.add(nombre + " (" + e.getValue() + ")");
+            }
+
+            // El valor elegido se mantiene aunque ya no tenga productos
+            if (elegido != null && !valores.contains(elegido)) {
+                valores.add(elegido);
+                opciones.add(elegido + " (0)");
+            }
+
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(Productos.this,
+                    android.R.layout.simple_spinner_item, opciones);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            spinner.setAdapter(adapter);
+            spinner.setSelection(valores.indexOf(elegido), false);
+        }
+
+        private AdapterView.OnItemSelectedListener alElegir(List<String> valores, boolean esCategoria) {
+            return new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    if (position >= valores.size()) return;
+                    String valor = valores.get(position);
+
+                    FiltroCatalogo nuevo = esCategoria ? borrador.conCategoria(valor) : borrador.conProveedor(valor);
+                    if (nuevo.equals(borrador)) return; // se volvió a llenar el spinner, no es un cambio
+                    borrador = nuevo;
+                    recontar();
+                }
+
+                @Override
+                public void onNothingSelected(AdapterView<?> parent) {}
+            };
+        }
+
+        private TextView etiqueta(String texto) {
+            TextView tv = new TextView(Productos.this);
+            tv.setText(texto);
+            return tv;
+        }
+
+        private Double leerPrecio(EditText campo) {
+            String texto = campo.getText().toString().trim();
+            if (texto.isEmpty()) return null;
+            try {
+                return Double.valueOf(texto);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
     }
 
 
     // ======================================================
     // Agregar producto al carrito del usuario
     // ======================================================
-    private void agregarAlCarrito(String productoId, String nombre, String proveedor,
-                                  String proveedorId, double precio) {
+    private void agregarAlCarrito(Producto producto) {
 
         FirebaseUser user = auth.getCurrentUser();
         if (user == null) {
@@ -275,55 +748,38 @@ public class Productos extends BaseActivity {
             return;
         }
 
-        String userId = user.getUid();
+        if (carritoBuffer == null) {
+            carritoBuffer = new CarritoBuffer(db, user.getUid(), e ->
+                    Toast.makeText(this, "❌ Error al guardar el carrito", Toast.LENGTH_SHORT).show());
+        }
 
         /*
          * Estructura del carrito:
          *
          * carritos → userId → items → productoId
+         *
+         * Sin leer el ítem antes: el buffer junta los toques y los escribe
+         * en un solo batch con FieldValue.increment (ver CarritoBuffer).
          */
-        db.collection("carritos")
-                .document(userId)
-                .collection("items")
-                .document(productoId)
-                .get()
-                .addOnSuccessListener(doc -> {
-
-                    if (doc.exists()) {
-
-                        // Si ya existe → aumentar la cantidad
-                        Long cantidadActual = doc.getLong("cantidad");
-                        if (cantidadActual == null) cantidadActual = 1L;
-
-                        db.collection("carritos")
-                                .document(userId)
-                                .collection("items")
-                                .document(productoId)
-                                .update("cantidad", cantidadActual + 1)
-                                .addOnSuccessListener(aVoid ->
-                                        Toast.makeText(this, "🛒 Cantidad actualizada", Toast.LENGTH_SHORT).show()
-                                );
-
-                    } else {
-
-                        // Crear nuevo ítem en el carrito
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("nombre", nombre);
-                        item.put("proveedor", proveedor);
-                        item.put("proveedorId", proveedorId);
-                        item.put("precio", precio);
-                        item.put("cantidad", 1L);
-                        item.put("productoId", productoId);
-
-                        db.collection("carritos")
-                                .document(userId)
-                                .collection("items")
-                                .document(productoId)
-                                .set(item)
-                                .addOnSuccessListener(aVoid ->
-                                        Toast.makeText(this, "✅ Agregado al carrito: " + nombre, Toast.LENGTH_SHORT).show()
-                                );
-                    }
-                });
+        carritoBuffer.agregar(producto.id, producto.nombre, producto.proveedorNombre,
+                producto.proveedorId, producto.precio);
+        Toast.makeText(this, "✅ Agregado al carrito: " + producto.nombre, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // Escribe los productos agregados que aún estaban en el buffer
+        if (carritoBuffer != null) {
+            carritoBuffer.enviar(); // si falla, avisa el propio buffer (y reintenta)
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        esperaBusqueda.removeCallbacks(buscarAhora);
     }
 }
@@ -0,0 +1,131 @@
+package com.proveenet.proveenet;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ==============================================================
+ * PROVEEDOR ADAPTER (directorio de proveedores)
+ * ==============================================================
+ * Cada fila es una card "item_proveedor".
+ * Las cards se reciclan al hacer scroll: solo se cambian los textos.
+ */
+public class ProveedorAdapter extends RecyclerView.Adapter<ProveedorAdapter.ProveedorViewHolder> {
+
+    // Acciones de los botones de la card
+    public interface OnProveedorListener {
+        void onVerCatalogo(DocumentSnapshot proveedor);
+
+        void onContactar(DocumentSnapshot proveedor);
+    }
+
+    // ==============================================================
+    // 🔹 Fila lista para mostrar (se arma en el hilo de fondo, ver Hilos)
+    // ==============================================================
+    public static final class Fila {
+        final DocumentSnapshot documento;
+        final String nombre, categoria, direccion, telefono;
+
+        Fila(DocumentSnapshot doc) {
+            documento = doc;
+
+            String empresa = doc.getString("empresa");
+            String rubro = doc.getString("rubro");
+            String dir = doc.getString("direccion");
+            String tel = doc.getString("telefono");
+
+            nombre = empresa != null ? empresa : "Proveedor sin nombre";
+            categoria = rubro != null ? rubro : "Sin categoría";
+            direccion = dir != null && !dir.isEmpty() ? dir : "Sin dirección";
+            telefono = tel != null ? tel : "Sin teléfono";
+        }
+
+        public static List<Fila> de(List<DocumentSnapshot> documentos) {
+            List<Fila> filas = new ArrayList<>(documentos.size());
+            for (DocumentSnapshot doc : documentos) filas.add(new Fila(doc));
+            return filas;
+        }
+    }
+
+    private final List<Fila> filas;
+    private final OnProveedorListener listener;
+
+    public ProveedorAdapter(List<Fila> filas, OnProveedorListener listener) {
+        this.filas = filas;
+        this.listener = listener;
+    }
+
+    @Override
+    public ProveedorViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_proveedor, parent, false);
+
+        ProveedorViewHolder holder = new ProveedorViewHolder(v);
+
+        // Listeners creados una sola vez por card; la posición se lee al hacer click
+        holder.btnCatalogo.setOnClickListener(btn -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) listener.onVerCatalogo(filas.get(pos).documento);
+        });
+
+        holder.btnContactar.setOnClickListener(btn -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) listener.onContactar(filas.get(pos).documento);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ProveedorViewHolder holder, int position) {
+
+        Fila fila = filas.get(position);
+
+        // ======== ASIGNAR DATOS A LA CARD (ya leídos en el fondo) ========
+        holder.tvNombre.setText(fila.nombre);
+        holder.tvCategoria.setText(fila.categoria);
+
+        // Campo que no existe → se esconde
+        holder.tvVerificado.setVisibility(View.GONE);
+
+        holder.tvDireccion.setText(fila.direccion);
+        holder.tvTelefono.setText(fila.telefono);
+    }
+
+    @Override
+    public int getItemCount() {
+        return filas.size();
+    }
+
+    // ==============================================================
+    // 🔹 ViewHolder
+    // ==============================================================
+    public static class ProveedorViewHolder extends RecyclerView.ViewHolder {
+
+        TextView tvNombre, tvCategoria, tvVerificado, tvDireccion, tvTelefono;
+        Button btnCatalogo, btnContactar;
+
+        public ProveedorViewHolder(View itemView) {
+            super(itemView);
+
+            // Enlazar vistas del layout item_proveedor.xml
+            tvNombre     = itemView.findViewById(R.id.tvNombreProveedor);
+            tvCategoria  = itemView.findViewById(R.id.tvCategoria);
+            tvVerificado = itemView.findViewById(R.id.tvVerificado);
+            tvDireccion  = itemView.findViewById(R.id.tvDireccion);
+            tvTelefono   = itemView.findViewById(R.id.tvTelefono);
+
+            btnCatalogo  = itemView.findViewById(R.id.btnVerCatalogo);
+            btnContactar = itemView.findViewById(R.id.btnContactar);
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package com.proveenet.proveenet;
 
-import androidx.appcompat.app.AppCompatActivity;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.view.LayoutInflater;   // ➜ Para convertir XML en Views dinámicas
-import android.view.View;
-import android.widget.Button;
-import android.widget.LinearLayout;   // ➜ Contenedor de las cards generadas
+import android.widget.LinearLayout;   // ➜ Contenedor de las cards (se convierte en RecyclerView)
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -16,14 +15,17 @@ import com.google.firebase.auth.FirebaseAuth;          // ➜ Maneja sesiones
 import com.google.firebase.auth.FirebaseUser;         // ➜ Representa al usuario actual
 import com.google.firebase.firestore.DocumentSnapshot; // ➜ Documento individual de Firestore
 import com.google.firebase.firestore.FirebaseFirestore; // ➜ Base de datos Firestore
-import com.google.firebase.firestore.QuerySnapshot;     // ➜ Resultado completo de una query
+import com.google.firebase.firestore.Query;             // ➜ Consulta base del paginador
+
+import java.util.ArrayList;
+import java.util.List;
 
 /*
  * =========================================================================
  * ACTIVITY: Proveedores (vista para compradores)
  * =========================================================================
  * Muestra una lista de proveedores que tienen el campo "rol: proveedor".
- * Cada proveedor se carga dinámicamente en una card.
+ * Los proveedores se cargan de a páginas (ordenados por empresa) en un RecyclerView.
  * La data proviene de Firestore → colección "proveedores".
  * =========================================================================
  */
@@ -36,6 +38,18 @@ public class Proveedores extends BaseActivity {
     private TextView tvProveedoresCount, tvUserName;
     private BottomNavigationView bottomNavigationView;
 
+    // Paginación del directorio
+    private static final String CLAVE_CACHE = "proveedores";
+    private static final int TAMANO_PAGINA = 20;
+    private static final int UMBRAL_PREFETCH = 5;
+    private PaginadorFirestore paginador;
+    private ProveedorAdapter proveedorAdapter;
+    private RecyclerView recycler;
+
+    // Filas preparadas en el hilo de fondo (una por documento del paginador)
+    private final List<ProveedorAdapter.Fila> filas = new ArrayList<>();
+    private long totalProveedores = -1; // -1 = aún no contado
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -99,48 +113,22 @@ public class Proveedores extends BaseActivity {
             return;
         }
 
-        String uid = user.getUid();
-
         /*
-         * Primero se busca si es comprador.
-         * DocumentSnapshot contiene TODOS los campos del documento.
+         * El perfil (comprador O proveedor) se guardó al iniciar sesión:
+         * antes se leía "compradores" y, si no estaba, también "proveedores".
          */
-        db.collection("compradores").document(uid).get()
-                .addOnSuccessListener(document -> {
-
-                    if (document.exists()) {
-                        String nombre = document.getString("nombre");
-                        tvUserName.setText(
-                                nombre != null && !nombre.isEmpty() ? nombre : "Sin nombre"
-                        );
-                    } else {
-                        // Si no es comprador → buscar proveedor
-                        db.collection("proveedores").document(uid).get()
-                                .addOnSuccessListener(docProv -> {
-
-                                    if (docProv.exists()) {
-                                        String nombre = docProv.getString("nombre");
-                                        tvUserName.setText(
-                                                nombre != null && !nombre.isEmpty() ? nombre : "Sin nombre"
-                                        );
-                                    } else {
-                                        tvUserName.setText("Usuario desconocido");
-                                    }
-                                })
-                                .addOnFailureListener(e ->
-                                        tvUserName.setText("Error al cargar nombre")
-                                );
-                    }
-
-                })
-                .addOnFailureListener(e ->
-                        tvUserName.setText("Error al cargar nombre")
-                );
+        SesionUsuario.obtener(this, db, sesion -> {
+            if (sesion == null) {
+                tvUserName.setText("Usuario desconocido");
+                return;
+            }
+            tvUserName.setText(sesion.nombre != null && !sesion.nombre.isEmpty() ? sesion.nombre : "Sin nombre");
+        });
     }
 
 
     // ======================================================
-    // 5. Cargar proveedores que tengan rol = "proveedor"
+    // 5. Cargar proveedores que tengan rol = "proveedor" (de a páginas)
     // ======================================================
     private void cargarProveedores() {
 
@@ -148,90 +136,133 @@ public class Proveedores extends BaseActivity {
          * whereEqualTo("rol", "proveedor"):
          * Solo trae los documentos cuyo campo "rol" es exactamente "proveedor".
          *
-         * QuerySnapshot = conjunto de documentos resultado de la consulta.
+         * orderBy("empresa"): directorio alfabético y cursor estable para startAfter.
+         * (requiere índice compuesto rol + empresa)
          */
-        db.collection("proveedores")
+        Query query = db.collection("proveedores")
                 .whereEqualTo("rol", "proveedor")
-                .get()
-                .addOnSuccessListener(this::mostrarProveedores)
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "❌ Error: " + e.getMessage(), Toast.LENGTH_LONG).show()
-                );
+                .orderBy("empresa");
+
+        // Paginador compartido: al volver a esta pantalla se reusan las páginas ya cargadas
+        paginador = PaginadorFirestore.compartido(CLAVE_CACHE, query, TAMANO_PAGINA);
+
+        recycler = convertirEnListaReciclable(llListaProveedores);
+        proveedorAdapter = new ProveedorAdapter(filas, new ProveedorAdapter.OnProveedorListener() {
+            @Override
+            public void onVerCatalogo(DocumentSnapshot proveedor) {
+                // Si la card estuvo a la vista, la primera página ya está en caché
+                CatalogoProveedor.abrir(Proveedores.this, proveedor.getId(), proveedor.getString("empresa"));
+            }
+
+            @Override
+            public void onContactar(DocumentSnapshot proveedor) {
+                Toast.makeText(Proveedores.this, "📞 Contactar a " + proveedor.getString("empresa"), Toast.LENGTH_SHORT).show();
+            }
+        });
+        recycler.setAdapter(proveedorAdapter);
+
+        PaginadorFirestore.alAcercarseAlFinal(recycler, UMBRAL_PREFETCH, this::cargarSiguientePagina);
+
+        // Al detenerse el scroll se precargan los catálogos de las cards visibles
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView rv, int estado) {
+                if (estado == RecyclerView.SCROLL_STATE_IDLE) precargarCatalogosVisibles();
+            }
+        });
+
+        // Solo se pide la primera página si la caché está vacía
+        if (paginador.getDocumentos().isEmpty()) {
+            cargarPrimeraPagina();
+        } else {
+            // Páginas en caché: se preparan las filas en el fondo (copia de la lista del paginador)
+            agregarFilas(new ArrayList<>(paginador.getDocumentos()));
+        }
     }
 
+    // 🔹 Primera página: del paquete del catálogo si lo hay (sin red), si no del servidor
+    private void cargarPrimeraPagina() {
+        PaginadorFirestore esePaginador = paginador;
+        PaqueteCatalogo.primerosProveedores(this, db, TAMANO_PAGINA)
+                .addOnSuccessListener(this, pagina -> {
+                    if (esePaginador.sembrar(pagina)) agregarFilas(pagina);
+                    else cargarSiguientePagina();
+                })
+                .addOnFailureListener(this, e -> cargarSiguientePagina());
+    }
+
+    // Un solo callback por pantalla: onDestroy lo suelta del paginador compartido
+    private final PaginadorFirestore.Callback alRecibirPagina = new PaginadorFirestore.Callback() {
+        @Override
+        public void onPagina(List<DocumentSnapshot> pagina, int desde) {
+            agregarFilas(pagina);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Toast.makeText(Proveedores.this, "❌ Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    };
+
+    private void cargarSiguientePagina() {
+        paginador.cargarSiguiente(alRecibirPagina);
+    }
+
+    // 🔹 Leer los documentos en el fondo; el hilo principal solo inserta las filas
+    private void agregarFilas(List<DocumentSnapshot> documentos) {
+        Hilos.preparar(() -> ProveedorAdapter.Fila.de(documentos), nuevas -> {
+            int inicio = filas.size();
+            filas.addAll(nuevas);
+            proveedorAdapter.notifyItemRangeInserted(inicio, nuevas.size());
+            actualizarContador();
+
+            // Primeras cards en pantalla: se precargan sin esperar un scroll
+            if (inicio == 0) recycler.post(this::precargarCatalogosVisibles);
+        });
+    }
+
+    // 🔹 Primera página del catálogo de cada card visible → caché (ver CatalogoProveedor)
+    private void precargarCatalogosVisibles() {
+        LinearLayoutManager lm = (LinearLayoutManager) recycler.getLayoutManager();
+        if (lm == null) return;
+
+        int primera = lm.findFirstVisibleItemPosition();
+        int ultima = lm.findLastVisibleItemPosition();
+        if (primera == RecyclerView.NO_POSITION) return;
+
+        // Solo durante la pausa del scroll: un fling rápido no dispara decenas de consultas
+        for (int i = primera; i <= ultima && i < filas.size(); i++) {
+            CatalogoProveedor.precargar(db, filas.get(i).documento.getId());
+        }
+    }
 
     // ======================================================
-    // 6. Mostrar proveedores dentro del LinearLayout dinámico
+    // 6. Contador de proveedores
     // ======================================================
-    private void mostrarProveedores(QuerySnapshot snapshot) {
+    private void actualizarContador() {
+        int cargados = paginador.getDocumentos().size();
 
-        llListaProveedores.removeAllViews(); // limpio la lista antes de llenarla
-        int count = 0;
-
-        /*
-         * snapshot.getDocuments():
-         * Devuelve una lista de DocumentSnapshot.
-         */
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-
-            // ======== LEER DATOS DEL PROVEEDOR ========
-            String empresa = doc.getString("empresa");
-            String rubro = doc.getString("rubro");
-            String correo = doc.getString("correo");
-            String telefono = doc.getString("telefono");
-            String direccion = doc.getString("direccion");
-
-            // ======================================================
-            // Crear card con LayoutInflater
-            // ======================================================
-
-            /*
-             * LayoutInflater.inflate:
-             * Convierte el XML item_proveedor en un View real.
-             */
-            View card = LayoutInflater.from(this)
-                    .inflate(R.layout.item_proveedor, llListaProveedores, false);
-
-            // Vincular vistas internas
-            TextView tvNombre = card.findViewById(R.id.tvNombreProveedor);
-            TextView tvCategoria = card.findViewById(R.id.tvCategoria);
-            TextView tvVerificado = card.findViewById(R.id.tvVerificado);
-            TextView tvDireccion = card.findViewById(R.id.tvDireccion);
-            TextView tvTelefono = card.findViewById(R.id.tvTelefono);
-
-            Button btnCatalogo = card.findViewById(R.id.btnVerCatalogo);
-            Button btnContactar = card.findViewById(R.id.btnContactar);
-
-            // ======== ASIGNAR DATOS A LA CARD ========
-            tvNombre.setText(empresa != null ? empresa : "Proveedor sin nombre");
-            tvCategoria.setText(rubro != null ? rubro : "Sin categoría");
-
-            // Campo que no existe → se esconde
-            tvVerificado.setVisibility(View.GONE);
-
-            tvDireccion.setText(
-                    direccion != null && !direccion.isEmpty() ? direccion : "Sin dirección"
-            );
-
-            tvTelefono.setText(
-                    telefono != null ? telefono : "Sin teléfono"
-            );
-
-            // ======== BOTONES DE ACCIÓN ========
-            btnCatalogo.setOnClickListener(v ->
-                    Toast.makeText(this, "📦 Ver catálogo de " + empresa, Toast.LENGTH_SHORT).show()
-            );
-
-            btnContactar.setOnClickListener(v ->
-                    Toast.makeText(this, "📞 Contactar a " + empresa, Toast.LENGTH_SHORT).show()
-            );
-
-            // Agregar la card al LinearLayout
-            llListaProveedores.addView(card);
-            count++;
+        if (!paginador.hayMas()) {
+            // Ya están todos en memoria → no hace falta preguntar al servidor
+            tvProveedoresCount.setText(cargados + " proveedores disponibles");
+            return;
         }
 
-        tvProveedoresCount.setText(count + " proveedores disponibles");
+        if (totalProveedores < 0) {
+            new EstadisticasService(db)
+                    .contar(db.collection("proveedores").whereEqualTo("rol", "proveedor"))
+                    .addOnSuccessListener(total -> {
+                        totalProveedores = total;
+                        tvProveedoresCount.setText(total + " proveedores disponibles");
+                    });
+        }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // El paginador sigue en la caché compartida: que no retenga esta pantalla
+        if (paginador != null) paginador.soltar(alRecibirPagina);
+    }
 }
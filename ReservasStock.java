@@ -0,0 +1,165 @@
+package com.proveenet.proveenet;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * RESERVAS DE STOCK
+ * ==============================================================
+ * Al finalizar la compra, las unidades de cada producto quedan
+ * "apartadas" hasta que el proveedor confirme la orden:
+ *
+ *   productos/{id}:   "stock": 20, "reservado": 6   → disponibles = 14
+ *   ordenes/{id}:     "reservaEstado": "activa",
+ *                     "reservaExpiraEn": Timestamp
+ *
+ * Estados de la reserva de una orden:
+ *   activa     → sus unidades están sumadas en "reservado"
+ *   convertida → el proveedor confirmó: se descontó stock y se soltó la reserva
+ *   vencida    → pasó RESERVA_HORAS sin confirmar: las unidades se liberaron
+ *   liberada   → la orden se eliminó antes de confirmarse
+ *
+ * Regla: una orden suma en "reservado" SOLO mientras su reserva está "activa".
+ * Todos los cambios de estado se hacen en transacción junto con "reservado".
+ */
+public final class ReservasStock {
+
+    public static final String RESERVADO = "reservado";
+    public static final String ESTADO = "reservaEstado";
+    public static final String EXPIRA_EN = "reservaExpiraEn";
+
+    public static final String ACTIVA = "activa";
+    public static final String CONVERTIDA = "convertida";
+    public static final String VENCIDA = "vencida";
+    public static final String LIBERADA = "liberada";
+
+    // Tiempo que el proveedor tiene para confirmar antes de perder la reserva
+    static final long RESERVA_HORAS = 24;
+
+    // Órdenes vencidas que se liberan por transacción
+    static final int LOTE_LIBERACION = 50;
+
+    // Margen bajo el límite de 500 escrituras por transacción
+    private static final int MAX_ESCRITURAS = 450;
+
+    private ReservasStock() {}
+
+    // 🔹 Unidades apartadas de un producto
+    public static long reservado(DocumentSnapshot producto) {
+        return Decodificador.numero(producto.get(RESERVADO));
+    }
+
+    // 🔹 Unidades que un comprador todavía puede pedir
+    public static long disponible(DocumentSnapshot producto) {
+        return Math.max(0, Decodificador.numero(producto.get("stock")) - reservado(producto));
+    }
+
+    public static boolean reservaActiva(DocumentSnapshot orden) {
+        return ACTIVA.equals(orden.getString(ESTADO));
+    }
+
+    public static Timestamp nuevaExpiracion() {
+        return new Timestamp(new Date(System.currentTimeMillis() + RESERVA_HORAS * 60 * 60 * 1000));
+    }
+
+    // ==============================================================
+    // 🔹 Liberar reservas vencidas (de a lotes)
+    // ==============================================================
+    /*
+     * No hay servidor propio, así que el barrido lo hace la app del proveedor
+     * al abrir el dashboard / sus órdenes.
+     * Cada lote es UNA transacción: vuelve a leer las órdenes (por si otra
+     * pantalla ya las confirmó) y resta sus unidades de "reservado".
+     * Requiere índice compuesto: proveedorId + reservaEstado + reservaExpiraEn.
+     */
+    public static Task<Integer> liberarVencidas(FirebaseFirestore db, String proveedorId) {
+        return liberarLote(db, proveedorId, 0);
+    }
+
+    private static Task<Integer> liberarLote(FirebaseFirestore db, String proveedorId, int liberadas) {
+
+        return db.collection("ordenes")
+                .whereEqualTo("proveedorId", proveedorId)
+                .whereEqualTo(ESTADO, ACTIVA)
+                .whereLessThan(EXPIRA_EN, Timestamp.now())
+                .limit(LOTE_LIBERACION)
+                .get()
+                .continueWithTask(t -> {
+                    List<DocumentSnapshot> vencidas = t.getResult().getDocuments();
+                    if (vencidas.isEmpty()) return Tasks.forResult(liberadas);
+
+                    return liberarEnTransaccion(db, vencidas).continueWithTask(tx -> {
+                        int enEsteLote = tx.getResult();
+
+                        // Lote vacío = otra pantalla ya las liberó; seguir solo si hubo avance
+                        if (enEsteLote == 0) return Tasks.forResult(liberadas);
+                        return liberarLote(db, proveedorId, liberadas + enEsteLote);
+                    });
+                });
+    }
+
+    private static Task<Integer> liberarEnTransaccion(FirebaseFirestore db, List<DocumentSnapshot> vencidas) {
+
+        return db.runTransaction(transaction -> {
+
+            // ---------- 1) LECTURAS ----------
+            List<DocumentSnapshot> aLiberar = new ArrayList<>();
+            Map<String, DocumentSnapshot> productos = new HashMap<>();
+            Map<String, Long> devolver = new HashMap<>();
+
+            for (DocumentSnapshot vencida : vencidas) {
+                DocumentSnapshot orden = transaction.get(vencida.getReference());
+                if (!orden.exists() || !reservaActiva(orden)) continue;
+
+                Map<String, Long> pedido = Decodificador.orden(orden).cantidadesPorProducto();
+
+                // Cortar el lote antes de pasar el límite de escrituras
+                // (cada producto = producto + su catalogo_resumen)
+                int nuevos = 0;
+                for (String productoId : pedido.keySet()) {
+                    if (!productos.containsKey(productoId)) nuevos++;
+                }
+                if (aLiberar.size() + 1
+                        + (productos.size() + nuevos) * ServicioOrdenes.ESCRITURAS_POR_PRODUCTO > MAX_ESCRITURAS) break;
+
+                for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                    if (!productos.containsKey(e.getKey())) {
+                        productos.put(e.getKey(),
+                                transaction.get(db.collection("productos").document(e.getKey())));
+                    }
+                    Long actual = devolver.get(e.getKey());
+                    devolver.put(e.getKey(), (actual != null ? actual : 0L) + e.getValue());
+                }
+                aLiberar.add(orden);
+            }
+
+            // ---------- 2) ESCRITURAS ----------
+            for (DocumentSnapshot orden : aLiberar) {
+                transaction.update(orden.getReference(), ESTADO, VENCIDA);
+            }
+
+            for (Map.Entry<String, Long> e : devolver.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                if (!producto.exists()) continue;
+
+                long restante = Math.max(0, reservado(producto) - e.getValue());
+                transaction.update(producto.getReference(),
+                        RESERVADO, restante,
+                        CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                ResumenCatalogo.existencias(transaction, producto, null, restante);
+            }
+
+            return aLiberar.size();
+        });
+    }
+}
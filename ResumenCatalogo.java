@@ -0,0 +1,187 @@
+package com.proveenet.proveenet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * RESUMEN DEL CATÁLOGO (catalogo_resumen/{productoId})
+ * ==============================================================
+ * Firestore en Android siempre descarga el documento COMPLETO: para
+ * dibujar una card de producto se bajaba también la descripción larga
+ * y cualquier otro campo que se le agregue al producto.
+ *
+ * Esta colección es una "proyección": mismo ID que productos/{id},
+ * solo los campos que usa una card (la descripción recortada) y con
+ * los mismos nombres, así Decodificador.producto() la lee igual.
+ *
+ *   productos/{id}         → documento completo (editar, órdenes)
+ *   catalogo_resumen/{id}  → listas (Productos, CatalogoProveedor,
+ *                            CatalogoLocal, MiCatalogo)
+ *
+ * Quien escribe un producto escribe su resumen COMPLETO en el mismo batch /
+ * transacción (MiCatalogo, ServicioOrdenes, ReservasStock), armado desde
+ * el producto: nunca queda un resumen a medias (solo stock, sin nombre).
+ *
+ * Los productos anteriores se copian UNA vez con MigracionTipos.rellenarResumen()
+ * (menú de desarrollo de DashboardProveedor, con una cuenta de administración;
+ * se puede cortar y reanudar). Ningún proveedor escribe resúmenes ajenos.
+ * Al terminar se marca migraciones/catalogo_resumen { completo: true }.
+ * Hasta entonces las listas siguen leyendo "productos" (ver coleccion()):
+ * un producto sin resumen no desaparece de ninguna pantalla.
+ */
+public final class ResumenCatalogo {
+
+    public static final String COLECCION = "catalogo_resumen";
+
+    private static final String PREFS = "resumen_catalogo";
+    private static final String LISTO = "listo";
+
+    // true = el relleno terminó (migraciones/catalogo_resumen); se comprueba una vez por proceso
+    private static volatile boolean listo;
+    private static boolean comprobado;
+
+    // Lo que cabe en la card (item_producto_publico / item_producto_card)
+    static final int LARGO_DESCRIPCION = 140;
+
+    // Campos que se copian del producto (el resto no viaja a las listas)
+    private static final String[] CAMPOS = {
+            "codigo", "nombre", "categoria", "proveedorId", "proveedorNombre", "estado",
+            CatalogoLocal.ELIMINADO
+    };
+
+    private ResumenCatalogo() {}
+
+    // 🔹 De dónde leen las listas: el resumen si ya está completo, si no "productos"
+    // (mismos nombres de campos: Decodificador.producto() lee cualquiera de los dos)
+    public static CollectionReference coleccion(FirebaseFirestore db) {
+        return db.collection(nombreColeccion());
+    }
+
+    public static String nombreColeccion() {
+        return listo ? COLECCION : "productos";
+    }
+
+    public static boolean listo() {
+        return listo;
+    }
+
+    private static DocumentReference marca(FirebaseFirestore db) {
+        return db.collection("migraciones").document(COLECCION);
+    }
+
+    // ==============================================================
+    // 🔹 ¿Ya se puede leer el resumen? (BaseActivity, al abrir la app)
+    // ==============================================================
+    // Una vez en true queda guardado: solo se consulta Firestore hasta verlo listo
+    public static synchronized Task<Boolean> comprobar(Context context, FirebaseFirestore db) {
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(LISTO, false)) listo = true;
+        if (listo || comprobado) return Tasks.forResult(listo);
+        comprobado = true;
+
+        return marca(db).get().continueWith(t -> {
+            boolean completo = t.isSuccessful() && Boolean.TRUE.equals(t.getResult().getBoolean("completo"));
+            if (completo) {
+                listo = true;
+                prefs.edit().putBoolean(LISTO, true).apply();
+            } else {
+                synchronized (ResumenCatalogo.class) {
+                    comprobado = false; // se vuelve a preguntar en la próxima pantalla
+                }
+            }
+            return completo;
+        });
+    }
+
+    // Lo llama MigracionTipos cuando el relleno llegó al último producto
+    static Task<Void> marcarListo(FirebaseFirestore db) {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("completo", true);
+        datos.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+        return marca(db).set(datos);
+    }
+
+    public static DocumentReference ref(FirebaseFirestore db, String productoId) {
+        return db.collection(COLECCION).document(productoId);
+    }
+
+    // ==============================================================
+    // 🔹 Resumen desde los campos de un producto
+    // ==============================================================
+    /*
+     * Sirve para el producto completo (crear, migración) y para una
+     * actualización parcial (editar): solo se copian los campos presentes.
+     * Un mapa parcial se combina con el resumen completo (de(Producto))
+     * antes de escribir: el resumen siempre se escribe entero.
+     */
+    public static Map<String, Object> de(Map<String, Object> producto) {
+        Map<String, Object> resumen = new HashMap<>();
+
+        for (String campo : CAMPOS) {
+            if (producto.containsKey(campo)) resumen.put(campo, producto.get(campo));
+        }
+
+        // Números siempre con su tipo (el producto puede venir de una versión vieja)
+        if (producto.containsKey("precio")) resumen.put("precio", Decodificador.decimal(producto.get("precio")));
+        if (producto.containsKey("stock")) resumen.put("stock", Decodificador.numero(producto.get("stock")));
+        if (producto.containsKey(ReservasStock.RESERVADO)) {
+            resumen.put(ReservasStock.RESERVADO, Decodificador.numero(producto.get(ReservasStock.RESERVADO)));
+        }
+
+        if (producto.containsKey("descripcion")) {
+            resumen.put("descripcion", recortar(Decodificador.texto(producto.get("descripcion"))));
+        }
+
+        resumen.put(CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+        return resumen;
+    }
+
+    // 🔹 Resumen completo desde un producto ya decodificado (editar, borrar)
+    public static Map<String, Object> de(Producto p) {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("codigo", p.codigo);
+        datos.put("nombre", p.nombre);
+        datos.put("categoria", p.categoria);
+        datos.put("descripcion", p.descripcion);
+        datos.put("proveedorId", p.proveedorId);
+        datos.put("proveedorNombre", p.proveedorNombre);
+        datos.put("estado", p.estado);
+        datos.put("precio", p.precio);
+        datos.put("stock", p.stock);
+        datos.put(ReservasStock.RESERVADO, p.reservado);
+        return de(datos);
+    }
+
+    /*
+     * Existencias nuevas, dentro de la transacción de la orden.
+     * stock = null → no cambió. Se reescribe el resumen ENTERO desde el
+     * producto leído en la transacción: si el producto todavía no tenía
+     * resumen, queda completo (y no un documento con solo stock).
+     */
+    public static void existencias(Transaction transaction, DocumentSnapshot producto, Long stock, long reservado) {
+        if (!producto.exists() || producto.getData() == null) return;
+
+        Map<String, Object> resumen = de(producto.getData());
+        if (stock != null) resumen.put("stock", stock);
+        resumen.put(ReservasStock.RESERVADO, reservado);
+
+        transaction.set(ref(producto.getReference().getFirestore(), producto.getId()), resumen);
+    }
+
+    private static String recortar(String texto) {
+        if (texto == null || texto.length() <= LARGO_DESCRIPCION) return texto;
+        return texto.substring(0, LARGO_DESCRIPCION - 1).trim() + "…";
+    }
+}
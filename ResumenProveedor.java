@@ -0,0 +1,211 @@
+package com.proveenet.proveenet;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * RESUMEN DEL PROVEEDOR
+ * ==============================================================
+ * Documento "resumenProveedores/{proveedorId}" con las métricas del
+ * DashboardProveedor ya calculadas:
+ *
+ *   {
+ *     "productosActivos": 12,
+ *     "stockBajo": 3,
+ *     "ordenesRecibidas": 240,
+ *     "ultimaOrden": { "id": "...", "estado": "pendiente", "subtotal": 12000, "fecha": Timestamp }
+ *   }
+ *
+ * Cada pantalla que crea/edita/elimina productos u órdenes agrega un
+ * "Cambio" al mismo batch/transacción, usando FieldValue.increment().
+ * Así el dashboard abre con UNA lectura en vez de recorrer todo el historial.
+ *
+ * Las ventas NO van acá: un mapa por mes crecería sin límite dentro del
+ * documento. Van en resumenProveedores/{id}/meses/{yyyy-MM} (VentasMensuales).
+ */
+public final class ResumenProveedor {
+
+    public static final String COLECCION = "resumenProveedores";
+
+    public static final String PRODUCTOS_ACTIVOS = "productosActivos";
+    public static final String STOCK_BAJO = "stockBajo";
+    public static final String ORDENES_RECIBIDAS = "ordenesRecibidas";
+    public static final String ULTIMA_ORDEN = "ultimaOrden";
+
+    // Un producto con stock <= 5 se considera "stock bajo"
+    public static final long LIMITE_STOCK_BAJO = 5;
+
+    private ResumenProveedor() {}
+
+    // 🔹 Referencia al documento resumen de un proveedor
+    public static DocumentReference ref(FirebaseFirestore db, String proveedorId) {
+        return db.collection(COLECCION).document(proveedorId);
+    }
+
+    // 🔹 Mes "yyyy-MM" de una fecha de Firestore (o el actual si no hay fecha)
+    public static String mesDe(Object fecha) {
+        Date date = (fecha instanceof Timestamp) ? ((Timestamp) fecha).toDate() : Calendar.getInstance().getTime();
+        return new SimpleDateFormat("yyyy-MM", Locale.US).format(date);
+    }
+
+    public static String mesActual() {
+        return mesDe(null);
+    }
+
+    // ==============================================================
+    // 🔹 Cambio: acumula deltas y los escribe con FieldValue.increment()
+    // ==============================================================
+    public static class Cambio {
+
+        private long productosActivos;
+        private long stockBajo;
+        private long ordenesRecibidas;
+        private Map<String, Object> ultimaOrden;
+
+        // signo = +1 cuando el producto aparece, -1 cuando desaparece
+        public Cambio producto(boolean activo, long stock, int signo) {
+            if (activo) productosActivos += signo;
+            if (stock <= LIMITE_STOCK_BAJO) stockBajo += signo;
+            return this;
+        }
+
+        // El stock de un producto pasó de "antes" a "despues" (entra o sale de stock bajo)
+        public Cambio stock(long antes, long despues) {
+            boolean eraBajo = antes <= LIMITE_STOCK_BAJO;
+            boolean esBajo = despues <= LIMITE_STOCK_BAJO;
+            if (eraBajo != esBajo) stockBajo += esBajo ? 1 : -1;
+            return this;
+        }
+
+        public Cambio orden(int signo) {
+            ordenesRecibidas += signo;
+            return this;
+        }
+
+        public Cambio ultimaOrden(String ordenId, String estado, double subtotal) {
+            ultimaOrden = new HashMap<>();
+            ultimaOrden.put("id", ordenId);
+            ultimaOrden.put("estado", estado);
+            ultimaOrden.put("subtotal", subtotal);
+            ultimaOrden.put("fecha", FieldValue.serverTimestamp());
+            return this;
+        }
+
+        public boolean estaVacio() {
+            return productosActivos == 0 && stockBajo == 0 && ordenesRecibidas == 0
+                    && ultimaOrden == null;
+        }
+
+        // Mapa para set(..., SetOptions.merge()): los maps anidados se fusionan
+        public Map<String, Object> aMapa() {
+            Map<String, Object> datos = new HashMap<>();
+            if (productosActivos != 0) datos.put(PRODUCTOS_ACTIVOS, FieldValue.increment(productosActivos));
+            if (stockBajo != 0) datos.put(STOCK_BAJO, FieldValue.increment(stockBajo));
+            if (ordenesRecibidas != 0) datos.put(ORDENES_RECIBIDAS, FieldValue.increment(ordenesRecibidas));
+
+            if (ultimaOrden != null) datos.put(ULTIMA_ORDEN, ultimaOrden);
+            return datos;
+        }
+
+        public void aplicar(WriteBatch batch, DocumentReference resumenRef) {
+            if (!estaVacio()) batch.set(resumenRef, aMapa(), SetOptions.merge());
+        }
+
+        public void aplicar(Transaction transaction, DocumentReference resumenRef) {
+            if (!estaVacio()) transaction.set(resumenRef, aMapa(), SetOptions.merge());
+        }
+    }
+
+    // ==============================================================
+    // 🔹 Puntero "ultimaOrden" (dentro de una transacción)
+    // ==============================================================
+    /*
+     * "resumen" debe haberse leído con transaction.get() ANTES de escribir.
+     * Si la orden es la última: nuevoEstado != null → actualiza su estado,
+     * nuevoEstado == null → borra el puntero (el dashboard la vuelve a buscar).
+     */
+    public static void actualizarUltimaOrden(Transaction transaction, DocumentReference resumenRef,
+                                             DocumentSnapshot resumen, String ordenId, String nuevoEstado) {
+        if (!ordenId.equals(resumen.getString(ULTIMA_ORDEN + ".id"))) return;
+
+        if (nuevoEstado != null) {
+            transaction.update(resumenRef, ULTIMA_ORDEN + ".estado", nuevoEstado);
+        } else {
+            transaction.update(resumenRef, ULTIMA_ORDEN, FieldValue.delete());
+        }
+    }
+
+    // ==============================================================
+    // 🔹 Reconstrucción (solo si el resumen aún no existe)
+    // ==============================================================
+    /*
+     * Proveedores antiguos no tienen documento resumen.
+     * Se calcula UNA vez y desde ahí en adelante se mantiene con incrementos.
+     * Los conteos se piden como agregaciones al servidor (las ventas del mes
+     * las completa VentasMensuales.ventasDelMes mientras el mes no tenga "backfilled");
+     * solo "stock bajo" recorre los productos porque stock puede venir como texto.
+     */
+    public static Task<DocumentSnapshot> reconstruir(FirebaseFirestore db, String proveedorId) {
+
+        EstadisticasService estadisticas = new EstadisticasService(db);
+
+        Task<Long> activosTask = estadisticas.contarProductosActivos(proveedorId);
+        Task<Long> ordenesTask = estadisticas.contarOrdenesRecibidas(proveedorId);
+
+        Task<QuerySnapshot> productosTask = db.collection("productos")
+                .whereEqualTo("proveedorId", proveedorId)
+                .get();
+
+        Task<QuerySnapshot> ultimaTask = db.collection("ordenes")
+                .whereEqualTo("proveedorId", proveedorId)
+                .orderBy("fechaCreacion", Query.Direction.DESCENDING)
+                .limit(1)
+                .get();
+
+        return Tasks.whenAllSuccess(activosTask, ordenesTask, productosTask, ultimaTask)
+                .continueWithTask(t -> {
+
+                    long bajos = 0;
+                    for (DocumentSnapshot doc : productosTask.getResult()) {
+                        if (CatalogoLocal.esLapida(doc)) continue; // producto borrado
+                        if (doc.get("stock") != null && Decodificador.numero(doc.get("stock")) <= LIMITE_STOCK_BAJO) bajos++;
+                    }
+
+                    Map<String, Object> datos = new HashMap<>();
+                    datos.put(PRODUCTOS_ACTIVOS, activosTask.getResult());
+                    datos.put(STOCK_BAJO, bajos);
+                    datos.put(ORDENES_RECIBIDAS, ordenesTask.getResult());
+
+                    if (!ultimaTask.getResult().isEmpty()) {
+                        DocumentSnapshot ultima = ultimaTask.getResult().getDocuments().get(0);
+                        Map<String, Object> puntero = new HashMap<>();
+                        puntero.put("id", ultima.getId());
+                        puntero.put("estado", ultima.getString("estado"));
+                        puntero.put("subtotal", Decodificador.decimal(ultima.get("subtotal")));
+                        puntero.put("fecha", ultima.get("fechaCreacion"));
+                        datos.put(ULTIMA_ORDEN, puntero);
+                    }
+
+                    DocumentReference resumenRef = ref(db, proveedorId);
+                    return resumenRef.set(datos).continueWithTask(x -> resumenRef.get());
+                });
+    }
+}
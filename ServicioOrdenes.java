@@ -0,0 +1,678 @@
+package com.proveenet.proveenet;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * ==============================================================
+ * SERVICIO DE ÓRDENES
+ * ==============================================================
+ * Una orden agrupa TODOS los productos de un proveedor en "items":
+ *
+ *   "items": [ { "productoId", "productoNombre", "cantidad",
+ *                "precioUnitario", "subtotal" }, ... ]
+ *   "subtotal": total de la orden (suma de los items)
+ *
+ * Las órdenes antiguas (un producto por orden, con "productoId" y
+ * "cantidad" en la raíz) se leen como una orden de un solo item.
+ *
+ * Confirmar o eliminar una orden toca varios documentos:
+ *   - ordenes/{id}                      → estado
+ *   - productos/{productoId}            → stock (uno por item)
+ *   - resumenProveedores/{proveedorId}  → métricas del dashboard
+ *   - resumenProveedores/{id}/meses/... → ventas del mes
+ *
+ * Todo se hace en UNA transacción (runTransaction):
+ *   ✔ se cambian todos o ninguno (no quedan órdenes confirmadas sin descontar stock)
+ *   ✔ si dos personas confirman a la vez, Firestore repite la transacción
+ *     con el stock actualizado en vez de perder un descuento
+ *
+ * Desde que se finaliza la compra, las unidades quedan reservadas
+ * (ver ReservasStock): confirmar convierte la reserva en descuento de stock.
+ */
+public class ServicioOrdenes {
+
+    private final FirebaseFirestore db;
+
+    public ServicioOrdenes(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    // ==============================================================
+    // 🔹 Crear órdenes reservando stock (finalizar compra)
+    // ==============================================================
+    /*
+     * Carritos grandes (B2B) pueden superar las 500 escrituras de una
+     * transacción, así que la compra se hace en tramos:
+     *
+     *  - una orden con más de MAX_LINEAS_POR_ORDEN items se parte en
+     *    varias órdenes ("parte" 1 de N, 2 de N...)
+     *  - las órdenes se agrupan en tramos de hasta MAX_ESCRITURAS_POR_TRAMO
+     *    (1 por orden + ESCRITURAS_POR_PRODUCTO por producto reservado
+     *    + 1 por resumen de proveedor)
+     *  - cada tramo es UNA transacción: reserva sus productos y crea sus
+     *    órdenes, o no hace nada si algún producto no alcanza
+     *
+     * Los tramos se ejecutan uno tras otro (comparten el resumen del
+     * proveedor; en paralelo solo se reintentarían entre sí).
+     * El resultado dice qué productos quedaron ordenados para que el
+     * carrito borre solo esos.
+     */
+    // Cada producto tocado se escribe DOS veces: productos/{id} y su
+    // catalogo_resumen/{id} (ver ResumenCatalogo.existencias)
+    static final int ESCRITURAS_POR_PRODUCTO = 2;
+
+    // 200 líneas × 2 escrituras + orden + resumen = 402: una parte siempre
+    // cabe en un tramo de MAX_ESCRITURAS_POR_TRAMO (450)
+    static final int MAX_LINEAS_POR_ORDEN = 200;
+
+    public static class ResultadoCompra {
+        public final Set<String> productosOrdenados = new HashSet<>();
+        public final List<String> errores = new ArrayList<>();
+    }
+
+    public Task<ResultadoCompra> crearOrdenes(List<Orden> ordenes) {
+
+        // 1) Partir órdenes enormes
+        List<Orden> partes = new ArrayList<>();
+        for (Orden orden : ordenes) partes.addAll(partirOrden(orden));
+
+        // 2) Armar tramos contando escrituras
+        List<List<Orden>> tramos = new ArrayList<>();
+        List<Orden> actual = new ArrayList<>();
+        Set<String> proveedoresDelTramo = new HashSet<>();
+        int escrituras = 0;
+
+        for (Orden orden : partes) {
+            int costo = 1 + orden.cantidadesPorProducto().size() * ESCRITURAS_POR_PRODUCTO
+                    + (proveedoresDelTramo.contains(orden.proveedorId) ? 0 : 1);
+
+            if (!actual.isEmpty() && escrituras + costo > MAX_ESCRITURAS_POR_TRAMO) {
+                tramos.add(actual);
+                actual = new ArrayList<>();
+                proveedoresDelTramo = new HashSet<>();
+                costo = 2 + orden.cantidadesPorProducto().size() * ESCRITURAS_POR_PRODUCTO;
+                escrituras = 0;
+            }
+
+            actual.add(orden);
+            proveedoresDelTramo.add(orden.proveedorId);
+            escrituras += costo;
+        }
+        if (!actual.isEmpty()) tramos.add(actual);
+
+        // 3) Ejecutar los tramos en secuencia
+        ResultadoCompra resultado = new ResultadoCompra();
+        Task<Void> cadena = Tasks.forResult(null);
+
+        for (List<Orden> tramo : tramos) {
+            cadena = cadena.continueWithTask(t -> crearTramo(tramo)
+                    .continueWith(tramoTask -> {
+                        if (tramoTask.isSuccessful()) {
+                            for (Orden orden : tramo) {
+                                resultado.productosOrdenados.addAll(orden.cantidadesPorProducto().keySet());
+                            }
+                        } else {
+                            String motivo = tramoTask.getException() != null
+                                    ? tramoTask.getException().getMessage() : "Error desconocido";
+                            resultado.errores.add(motivo);
+                        }
+                        return null;
+                    }));
+        }
+
+        return cadena.continueWith(t -> resultado);
+    }
+
+    // 🔹 Copia la orden en partes de hasta MAX_LINEAS_POR_ORDEN items (con sus totales)
+    private static List<Orden> partirOrden(Orden orden) {
+        List<LineaOrden> lineas = orden.lineas;
+        if (lineas.size() <= MAX_LINEAS_POR_ORDEN) return Collections.singletonList(orden);
+
+        int totalPartes = (lineas.size() + MAX_LINEAS_POR_ORDEN - 1) / MAX_LINEAS_POR_ORDEN;
+        List<Orden> partes = new ArrayList<>();
+
+        for (int i = 0; i < totalPartes; i++) {
+            partes.add(orden.conLineas(lineas.subList(
+                    i * MAX_LINEAS_POR_ORDEN, Math.min((i + 1) * MAX_LINEAS_POR_ORDEN, lineas.size())),
+                    i + 1, totalPartes));
+        }
+        return partes;
+    }
+
+    /*
+     * Un tramo = una transacción que:
+     *  1) lee los productos del tramo
+     *  2) verifica "disponible" (stock - reservado) contra lo pedido
+     *  3) suma lo pedido a "reservado" y crea las órdenes con reserva activa
+     */
+    private Task<Void> crearTramo(List<Orden> ordenes) {
+
+        // Unidades pedidas por producto sumando todas las órdenes del tramo
+        Map<String, Long> pedido = new LinkedHashMap<>();
+        for (Orden orden : ordenes) {
+            for (Map.Entry<String, Long> e : orden.cantidadesPorProducto().entrySet()) {
+                Long actual = pedido.get(e.getKey());
+                pedido.put(e.getKey(), (actual != null ? actual : 0L) + e.getValue());
+            }
+        }
+
+        return db.runTransaction(transaction -> {
+
+            // ---------- 1) LECTURAS ----------
+            Map<String, DocumentSnapshot> productos = new HashMap<>();
+            for (String productoId : pedido.keySet()) {
+                DocumentSnapshot producto = transaction.get(db.collection("productos").document(productoId));
+                // Borrado = lápida (ver CatalogoLocal): el documento sigue existiendo
+                if (!producto.exists() || CatalogoLocal.esLapida(producto)) {
+                    throw new FirebaseFirestoreException("Un producto del carrito ya no existe",
+                            FirebaseFirestoreException.Code.NOT_FOUND);
+                }
+                productos.put(productoId, producto);
+            }
+
+            // ---------- 2) VALIDACIÓN ----------
+            for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                long disponible = ReservasStock.disponible(producto);
+                if (disponible < e.getValue()) {
+                    String nombre = producto.getString("nombre");
+                    throw new FirebaseFirestoreException(
+                            "Stock insuficiente" + (nombre != null ? " de " + nombre : "")
+                                    + ": disponibles " + disponible + " y el carrito pide " + e.getValue(),
+                            FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+                }
+            }
+
+            // ---------- 3) ESCRITURAS ----------
+            for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                long reservado = ReservasStock.reservado(producto) + e.getValue();
+                transaction.update(producto.getReference(),
+                        ReservasStock.RESERVADO, reservado,
+                        CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                ResumenCatalogo.existencias(transaction, producto, null, reservado);
+            }
+
+            Timestamp expira = ReservasStock.nuevaExpiracion();
+
+            // Un solo cambio de resumen por proveedor: +N órdenes y la última como "última orden"
+            Map<String, ResumenProveedor.Cambio> resumenes = new HashMap<>();
+
+            for (Orden orden : ordenes) {
+                Map<String, Object> datos = orden.aMapaNueva();
+                datos.put(ReservasStock.ESTADO, ReservasStock.ACTIVA);
+                datos.put(ReservasStock.EXPIRA_EN, expira);
+
+                DocumentReference ordenRef = db.collection("ordenes").document();
+                transaction.set(ordenRef, datos);
+
+                if (orden.proveedorId != null) {
+                    ResumenProveedor.Cambio cambio = resumenes.get(orden.proveedorId);
+                    if (cambio == null) {
+                        cambio = new ResumenProveedor.Cambio();
+                        resumenes.put(orden.proveedorId, cambio);
+                    }
+                    cambio.orden(+1).ultimaOrden(ordenRef.getId(), "pendiente", orden.subtotal);
+                }
+            }
+
+            for (Map.Entry<String, ResumenProveedor.Cambio> e : resumenes.entrySet()) {
+                e.getValue().aplicar(transaction, ResumenProveedor.ref(db, e.getKey()));
+            }
+
+            return null;
+        });
+    }
+
+    // ==============================================================
+    // 🔹 Confirmar orden + descontar stock
+    // ==============================================================
+    public Task<Void> confirmarOrden(String ordenId) {
+
+        DocumentReference ordenRef = db.collection("ordenes").document(ordenId);
+
+        return db.runTransaction(transaction -> {
+
+            // ---------- 1) LECTURAS (siempre antes de escribir) ----------
+            DocumentSnapshot ordenDoc = transaction.get(ordenRef);
+            if (!ordenDoc.exists()) {
+                throw new FirebaseFirestoreException("La orden ya no existe",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+
+            Orden orden = Decodificador.orden(ordenDoc);
+            if (!orden.esPendiente()) {
+                throw new FirebaseFirestoreException("La orden ya fue confirmada",
+                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+
+            String proveedorId = orden.proveedorId;
+            double subtotal = orden.subtotal;
+            String periodo = VentasMensuales.periodoDe(orden.periodo, orden.fechaCreacion);
+            Map<String, Long> pedido = orden.cantidadesPorProducto();
+
+            Map<String, DocumentSnapshot> productos = new HashMap<>();
+            for (String productoId : pedido.keySet()) {
+                DocumentSnapshot producto = transaction.get(db.collection("productos").document(productoId));
+                // Borrado = lápida (ver CatalogoLocal): el documento sigue existiendo
+                if (!producto.exists() || CatalogoLocal.esLapida(producto)) {
+                    throw new FirebaseFirestoreException("El producto ya no existe",
+                            FirebaseFirestoreException.Code.NOT_FOUND);
+                }
+                productos.put(productoId, producto);
+            }
+
+            DocumentReference resumenRef = ResumenProveedor.ref(db, proveedorId);
+            DocumentSnapshot resumen = transaction.get(resumenRef);
+
+            // ---------- 2) VALIDACIÓN (todos los items o ninguno) ----------
+            /*
+             * Con reserva activa las unidades ya están apartadas para esta orden:
+             * alcanza con que haya stock. Sin reserva (vencida u orden antigua)
+             * solo se puede usar lo que no está reservado para otros.
+             */
+            boolean conReserva = orden.reservaActiva();
+
+            for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                long libre = conReserva
+                        ? Decodificador.numero(producto.get("stock"))
+                        : ReservasStock.disponible(producto);
+                if (libre < e.getValue()) {
+                    // Se rechaza en vez de dejar el stock en 0
+                    throw new FirebaseFirestoreException(
+                            faltaStock(producto, libre, e.getValue()),
+                            FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+                }
+            }
+
+            // ---------- 3) ESCRITURAS ----------
+            if (conReserva) {
+                transaction.update(ordenRef,
+                        "estado", "confirmada",
+                        "confirmacionProveedor", "confirmada",
+                        ReservasStock.ESTADO, ReservasStock.CONVERTIDA);
+            } else {
+                transaction.update(ordenRef,
+                        "estado", "confirmada",
+                        "confirmacionProveedor", "confirmada");
+            }
+
+            ResumenProveedor.Cambio cambio = new ResumenProveedor.Cambio();
+
+            for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                long stockActual = Decodificador.numero(producto.get("stock"));
+                long nuevoStock = stockActual - e.getValue();
+
+                // La reserva se convierte: baja el stock y se suelta lo apartado
+                if (conReserva) {
+                    long reservado = Math.max(0, ReservasStock.reservado(producto) - e.getValue());
+                    transaction.update(producto.getReference(),
+                            "stock", nuevoStock,
+                            ReservasStock.RESERVADO, reservado,
+                            CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                    ResumenCatalogo.existencias(transaction, producto, nuevoStock, reservado);
+                } else {
+                    transaction.update(producto.getReference(), "stock", nuevoStock,
+                            CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                    ResumenCatalogo.existencias(transaction, producto, nuevoStock, ReservasStock.reservado(producto));
+                }
+                cambio.stock(stockActual, nuevoStock);
+            }
+
+            cambio.aplicar(transaction, resumenRef);
+            VentasMensuales.registrar(transaction, db, proveedorId, periodo, subtotal, 1);
+            ResumenProveedor.actualizarUltimaOrden(transaction, resumenRef, resumen, ordenId, "confirmada");
+
+            return null;
+        });
+    }
+
+    private static String faltaStock(DocumentSnapshot producto, long quedan, long pide) {
+        String nombre = producto.getString("nombre");
+        return "Stock insuficiente" + (nombre != null ? " de " + nombre : "")
+                + ": quedan " + quedan + " y la orden pide " + pide;
+    }
+
+    // ==============================================================
+    // 🔹 Eliminar orden (y descontarla del resumen)
+    // ==============================================================
+    public Task<Void> eliminarOrden(String ordenId) {
+
+        DocumentReference ordenRef = db.collection("ordenes").document(ordenId);
+
+        return db.runTransaction(transaction -> {
+
+            DocumentSnapshot ordenDoc = transaction.get(ordenRef);
+            if (!ordenDoc.exists()) return null; // ya estaba eliminada
+
+            Orden orden = Decodificador.orden(ordenDoc);
+            String proveedorId = orden.proveedorId;
+            DocumentReference resumenRef = ResumenProveedor.ref(db, proveedorId);
+            DocumentSnapshot resumen = transaction.get(resumenRef);
+
+            // Orden con reserva activa → devolver sus unidades a "disponible"
+            Map<String, Long> pedido = orden.reservaActiva()
+                    ? orden.cantidadesPorProducto()
+                    : Collections.<String, Long>emptyMap();
+
+            Map<String, DocumentSnapshot> productos = new HashMap<>();
+            for (String productoId : pedido.keySet()) {
+                productos.put(productoId, transaction.get(db.collection("productos").document(productoId)));
+            }
+
+            transaction.delete(ordenRef);
+
+            for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                DocumentSnapshot producto = productos.get(e.getKey());
+                if (!producto.exists()) continue;
+                long reservado = Math.max(0, ReservasStock.reservado(producto) - e.getValue());
+                transaction.update(producto.getReference(),
+                        ReservasStock.RESERVADO, reservado,
+                        CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                ResumenCatalogo.existencias(transaction, producto, null, reservado);
+            }
+
+            ResumenProveedor.Cambio cambio = new ResumenProveedor.Cambio().orden(-1);
+
+            // Una orden confirmada deja de contar como venta de su mes
+            if ("confirmada".equalsIgnoreCase(orden.estado)) {
+                String periodo = VentasMensuales.periodoDe(orden.periodo, orden.fechaCreacion);
+                double subtotal = orden.subtotal;
+
+                VentasMensuales.registrar(transaction, db, proveedorId, periodo, -subtotal, -1);
+            }
+
+            cambio.aplicar(transaction, resumenRef);
+            ResumenProveedor.actualizarUltimaOrden(transaction, resumenRef, resumen, ordenId, null);
+
+            return null;
+        });
+    }
+
+    // ==============================================================
+    // 🔹 Confirmación masiva (modo selección de MisOrdenes)
+    // ==============================================================
+    /*
+     * Límite de Firestore: 500 escrituras por transacción.
+     * Cada tramo escribe: sus órdenes + ESCRITURAS_POR_PRODUCTO por producto
+     * distinto (producto + catalogo_resumen) + resumen + meses,
+     * así que un tramo se cierra al llegar a MAX_ESCRITURAS_POR_TRAMO
+     * (el resto queda de margen para resumen, meses y "última orden").
+     */
+    static final int MAX_ESCRITURAS_POR_TRAMO = 450;
+
+    public interface ProgresoListener {
+        void onProgreso(int procesadas, int total);
+    }
+
+    // Resultado por orden: cuáles se confirmaron y por qué fallaron las demás
+    public static class ResultadoLote {
+        public final List<String> confirmadas = new ArrayList<>();
+        public final Map<String, String> fallidas = new LinkedHashMap<>();
+    }
+
+    /*
+     * "ordenes" son las de la lista de MisOrdenes (se usan su id y sus líneas).
+     * Las órdenes se agrupan por producto: el stock de cada producto se
+     * descuenta UNA vez por tramo con la suma de las cantidades.
+     * Los tramos se ejecutan uno tras otro para poder mostrar progreso.
+     */
+    public Task<ResultadoLote> confirmarOrdenes(List<Orden> ordenes, ProgresoListener progreso) {
+
+        // 1) Agrupar por producto (el primero de cada orden), manteniendo el orden de la lista
+        Map<String, List<Orden>> porProducto = new LinkedHashMap<>();
+        for (Orden orden : ordenes) {
+            Map<String, Long> pedido = orden.cantidadesPorProducto();
+            String clave = pedido.isEmpty() ? "" : pedido.keySet().iterator().next();
+
+            List<Orden> grupo = porProducto.get(clave);
+            if (grupo == null) {
+                grupo = new ArrayList<>();
+                porProducto.put(clave, grupo);
+            }
+            grupo.add(orden);
+        }
+
+        // 2) Armar tramos contando escrituras: 1 por orden + 2 por producto distinto en el tramo
+        List<List<String>> tramos = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        Set<String> productosDelTramo = new HashSet<>();
+
+        for (List<Orden> grupo : porProducto.values()) {
+            for (Orden orden : grupo) {
+                Set<String> productos = orden.cantidadesPorProducto().keySet();
+
+                int nuevos = 0;
+                for (String productoId : productos) {
+                    if (!productosDelTramo.contains(productoId)) nuevos++;
+                }
+
+                if (!actual.isEmpty()
+                        && actual.size() + 1
+                        + (productosDelTramo.size() + nuevos) * ESCRITURAS_POR_PRODUCTO > MAX_ESCRITURAS_POR_TRAMO) {
+                    tramos.add(actual);
+                    actual = new ArrayList<>();
+                    productosDelTramo = new HashSet<>();
+                }
+
+                actual.add(orden.id);
+                productosDelTramo.addAll(productos);
+            }
+        }
+        if (!actual.isEmpty()) tramos.add(actual);
+
+        // 3) Ejecutar los tramos en secuencia
+        ResultadoLote resultado = new ResultadoLote();
+        int total = ordenes.size();
+        Task<Void> cadena = Tasks.forResult(null);
+
+        for (List<String> tramo : tramos) {
+            cadena = cadena.continueWithTask(t -> confirmarTramo(tramo)
+                    .continueWith(tramoTask -> {
+                        if (tramoTask.isSuccessful()) {
+                            ResultadoLote parcial = tramoTask.getResult();
+                            resultado.confirmadas.addAll(parcial.confirmadas);
+                            resultado.fallidas.putAll(parcial.fallidas);
+                        } else {
+                            // Falló la transacción completa (ej: sin conexión)
+                            String motivo = tramoTask.getException() != null
+                                    ? tramoTask.getException().getMessage() : "Error desconocido";
+                            for (String id : tramo) resultado.fallidas.put(id, motivo);
+                        }
+
+                        if (progreso != null) {
+                            progreso.onProgreso(resultado.confirmadas.size() + resultado.fallidas.size(), total);
+                        }
+                        return null;
+                    }));
+        }
+
+        return cadena.continueWith(t -> resultado);
+    }
+
+    // 🔹 Un tramo = una transacción
+    private Task<ResultadoLote> confirmarTramo(List<String> ids) {
+
+        return db.runTransaction(transaction -> {
+
+            // El resultado se arma de nuevo en cada intento de la transacción
+            ResultadoLote parcial = new ResultadoLote();
+
+            // ---------- 1) LECTURAS ----------
+            List<Orden> ordenesLeidas = new ArrayList<>();
+            Map<String, DocumentSnapshot> productos = new HashMap<>();
+            Map<String, DocumentSnapshot> resumenes = new HashMap<>();
+
+            for (String id : ids) {
+                DocumentSnapshot ordenDoc = transaction.get(db.collection("ordenes").document(id));
+
+                if (!ordenDoc.exists()) {
+                    parcial.fallidas.put(id, "La orden ya no existe");
+                    continue;
+                }
+                Orden orden = Decodificador.orden(ordenDoc);
+                if (!orden.esPendiente()) {
+                    parcial.fallidas.put(id, "La orden ya fue confirmada");
+                    continue;
+                }
+                ordenesLeidas.add(orden);
+
+                for (String productoId : orden.cantidadesPorProducto().keySet()) {
+                    if (!productos.containsKey(productoId)) {
+                        productos.put(productoId, transaction.get(db.collection("productos").document(productoId)));
+                    }
+                }
+
+                String proveedorId = orden.proveedorId;
+                if (proveedorId != null && !resumenes.containsKey(proveedorId)) {
+                    resumenes.put(proveedorId, transaction.get(ResumenProveedor.ref(db, proveedorId)));
+                }
+            }
+
+            // ---------- 2) ASIGNAR STOCK (en el orden de la selección) ----------
+            Map<String, Long> stockInicial = new HashMap<>();
+            Map<String, Long> stockRestante = new HashMap<>();
+            Map<String, Long> reservadoRestante = new HashMap<>();
+            for (Map.Entry<String, DocumentSnapshot> e : productos.entrySet()) {
+                // Sin stock asignable = "El producto ya no existe" (también la lápida de un borrado)
+                if (!e.getValue().exists() || CatalogoLocal.esLapida(e.getValue())) continue;
+                long stock = Decodificador.numero(e.getValue().get("stock"));
+                stockInicial.put(e.getKey(), stock);
+                stockRestante.put(e.getKey(), stock);
+                reservadoRestante.put(e.getKey(), ReservasStock.reservado(e.getValue()));
+            }
+
+            List<Orden> aConfirmar = new ArrayList<>();
+            for (Orden orden : ordenesLeidas) {
+                Map<String, Long> pedido = orden.cantidadesPorProducto();
+                boolean conReserva = orden.reservaActiva();
+
+                // Una orden se confirma solo si alcanzan TODOS sus items
+                // (sin reserva propia no puede usar lo reservado para otras órdenes)
+                String motivo = null;
+                for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                    Long restante = stockRestante.get(e.getKey());
+                    if (restante == null) {
+                        motivo = "El producto ya no existe";
+                        break;
+                    }
+                    long libre = conReserva ? restante : Math.max(0, restante - reservadoRestante.get(e.getKey()));
+                    if (libre < e.getValue()) {
+                        motivo = faltaStock(productos.get(e.getKey()), libre, e.getValue());
+                        break;
+                    }
+                }
+
+                if (motivo != null) {
+                    parcial.fallidas.put(orden.id, motivo);
+                    continue;
+                }
+
+                for (Map.Entry<String, Long> e : pedido.entrySet()) {
+                    stockRestante.put(e.getKey(), stockRestante.get(e.getKey()) - e.getValue());
+                    if (conReserva) {
+                        reservadoRestante.put(e.getKey(),
+                                Math.max(0, reservadoRestante.get(e.getKey()) - e.getValue()));
+                    }
+                }
+                aConfirmar.add(orden);
+            }
+
+            // ---------- 3) ESCRITURAS ----------
+            Map<String, ResumenProveedor.Cambio> cambios = new HashMap<>();
+            Map<String, Map<String, double[]>> ventasPorMes = new HashMap<>(); // proveedor → periodo → {monto, órdenes}
+
+            for (Orden orden : aConfirmar) {
+                DocumentReference ordenRef = db.collection("ordenes").document(orden.id);
+                if (orden.reservaActiva()) {
+                    transaction.update(ordenRef,
+                            "estado", "confirmada",
+                            "confirmacionProveedor", "confirmada",
+                            ReservasStock.ESTADO, ReservasStock.CONVERTIDA);
+                } else {
+                    transaction.update(ordenRef,
+                            "estado", "confirmada",
+                            "confirmacionProveedor", "confirmada");
+                }
+                parcial.confirmadas.add(orden.id);
+
+                String proveedorId = orden.proveedorId;
+                if (proveedorId == null) continue;
+
+                String periodo = VentasMensuales.periodoDe(orden.periodo, orden.fechaCreacion);
+                double subtotal = orden.subtotal;
+
+                ResumenProveedor.Cambio cambio = cambios.get(proveedorId);
+                if (cambio == null) {
+                    cambio = new ResumenProveedor.Cambio();
+                    cambios.put(proveedorId, cambio);
+                }
+
+                Map<String, double[]> meses = ventasPorMes.get(proveedorId);
+                if (meses == null) {
+                    meses = new HashMap<>();
+                    ventasPorMes.put(proveedorId, meses);
+                }
+                double[] mes = meses.get(periodo);
+                if (mes == null) {
+                    mes = new double[2];
+                    meses.put(periodo, mes);
+                }
+                mes[0] += subtotal;
+                mes[1] += 1;
+            }
+
+            // Un solo descuento de stock (y de reservado) por producto
+            for (Map.Entry<String, Long> e : stockRestante.entrySet()) {
+                long antes = stockInicial.get(e.getKey());
+                long despues = e.getValue();
+                if (antes == despues) continue;
+
+                DocumentSnapshot producto = productos.get(e.getKey());
+                transaction.update(producto.getReference(),
+                        "stock", despues,
+                        ReservasStock.RESERVADO, reservadoRestante.get(e.getKey()),
+                        CatalogoLocal.ACTUALIZADO, CatalogoLocal.sello());
+                ResumenCatalogo.existencias(transaction, producto, despues, reservadoRestante.get(e.getKey()));
+
+                String proveedorId = producto.getString("proveedorId");
+                ResumenProveedor.Cambio cambio = cambios.get(proveedorId);
+                if (cambio != null) cambio.stock(antes, despues);
+            }
+
+            for (Map.Entry<String, ResumenProveedor.Cambio> e : cambios.entrySet()) {
+                DocumentReference resumenRef = ResumenProveedor.ref(db, e.getKey());
+                e.getValue().aplicar(transaction, resumenRef);
+
+                for (Map.Entry<String, double[]> mes : ventasPorMes.get(e.getKey()).entrySet()) {
+                    VentasMensuales.registrar(transaction, db, e.getKey(), mes.getKey(),
+                            mes.getValue()[0], (int) mes.getValue()[1]);
+                }
+
+                DocumentSnapshot resumen = resumenes.get(e.getKey());
+                for (String id : parcial.confirmadas) {
+                    ResumenProveedor.actualizarUltimaOrden(transaction, resumenRef, resumen, id, "confirmada");
+                }
+            }
+
+            return parcial;
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package com.proveenet.proveenet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/*
+ * ==============================================================
+ * SESIÓN DEL USUARIO (perfil en memoria + disco)
+ * ==============================================================
+ * Antes cada pantalla volvía a leer compradores/{uid} o proveedores/{uid}
+ * solo para poner el nombre en el header (y Productos/Proveedores hasta
+ * dos lecturas seguidas).
+ *
+ * Ahora el perfil se lee UNA vez al iniciar sesión (MainActivity) y se guarda:
+ *   - en memoria  → todas las pantallas lo leen sin ir a Firestore
+ *   - en SharedPreferences → al reabrir la app tampoco hay lectura
+ *
+ * Se borra al cerrar sesión (cerrar()) y se reemplaza si el perfil cambia
+ * (guardar() con el documento nuevo).
+ */
+public final class SesionUsuario {
+
+    public static final String ROL_COMPRADOR = "comprador";
+    public static final String ROL_PROVEEDOR = "proveedor";
+
+    private static final String PREFS = "sesion_usuario";
+
+    // Perfil del proceso actual (null = aún no cargado)
+    private static SesionUsuario actual;
+
+    public final String uid;
+    public final String rol;
+    public final String nombre;
+    public final String empresa;
+    public final String correo;
+
+    private SesionUsuario(String uid, String rol, String nombre, String empresa, String correo) {
+        this.uid = uid;
+        this.rol = rol;
+        this.nombre = nombre;
+        this.empresa = empresa;
+        this.correo = correo;
+    }
+
+    public boolean esProveedor() {
+        return ROL_PROVEEDOR.equals(rol);
+    }
+
+    // 🔹 Primer valor no vacío (para los "si no hay empresa, usar el correo...")
+    public static String primero(String... valores) {
+        for (String v : valores) {
+            if (v != null && !v.isEmpty()) return v;
+        }
+        return null;
+    }
+
+    // ==============================================================
+    // 🔹 Leer la sesión (memoria → disco)
+    // ==============================================================
+    /*
+     * Devuelve null si no hay perfil guardado o si pertenece a otro usuario
+     * (ej: se cambió de cuenta sin pasar por cerrar()).
+     */
+    public static SesionUsuario get(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return null;
+
+        if (actual == null) {
+            SharedPreferences prefs = prefs(context);
+            String uid = prefs.getString("uid", null);
+            if (uid != null) {
+                actual = new SesionUsuario(uid,
+                        prefs.getString("rol", null),
+                        prefs.getString("nombre", null),
+                        prefs.getString("empresa", null),
+                        prefs.getString("correo", null));
+            }
+        }
+
+        return (actual != null && actual.uid.equals(user.getUid())) ? actual : null;
+    }
+
+    // ==============================================================
+    // 🔹 Guardar el perfil leído de Firestore
+    // ==============================================================
+    public static SesionUsuario guardar(Context context, String rol, DocumentSnapshot perfil) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+
+        actual = new SesionUsuario(perfil.getId(), rol,
+                perfil.getString("nombre"),
+                perfil.getString("empresa"),
+                primero(perfil.getString("correo"), user != null ? user.getEmail() : null));
+
+        prefs(context).edit()
+                .putString("uid", actual.uid)
+                .putString("rol", actual.rol)
+                .putString("nombre", actual.nombre)
+                .putString("empresa", actual.empresa)
+                .putString("correo", actual.correo)
+                .apply();
+        return actual;
+    }
+
+    // 🔹 Cerrar sesión: FirebaseAuth + perfil en memoria + disco
+    public static void cerrar(Context context) {
+        FirebaseAuth.getInstance().signOut();
+        actual = null;
+        prefs(context).edit().clear().apply();
+    }
+
+    // ==============================================================
+    // 🔹 Obtener la sesión (con lectura SOLO si no hay perfil guardado)
+    // ==============================================================
+    public interface Listener {
+        void onSesion(SesionUsuario sesion); // null = sin sesión / perfil inexistente
+    }
+
+    /*
+     * Caso normal: responde al instante desde memoria/disco (0 lecturas).
+     * Solo si la app venía de una versión sin caché (sesión de Firebase abierta
+     * pero sin perfil guardado) se lee el perfil una vez y queda guardado.
+     */
+    public static void obtener(Context context, FirebaseFirestore db, Listener listener) {
+        SesionUsuario sesion = get(context);
+        if (sesion != null) {
+            listener.onSesion(sesion);
+            return;
+        }
+
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            listener.onSesion(null);
+            return;
+        }
+
+        Context app = context.getApplicationContext();
+        db.collection("compradores").document(user.getUid()).get()
+                .addOnSuccessListener(comprador -> {
+                    if (comprador.exists()) {
+                        listener.onSesion(guardar(app, ROL_COMPRADOR, comprador));
+                        return;
+                    }
+                    db.collection("proveedores").document(user.getUid()).get()
+                            .addOnSuccessListener(proveedor -> listener.onSesion(
+                                    proveedor.exists() ? guardar(app, ROL_PROVEEDOR, proveedor) : null))
+                            .addOnFailureListener(e -> listener.onSesion(null));
+                })
+                .addOnFailureListener(e -> listener.onSesion(null));
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,150 @@
+package com.proveenet.proveenet;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * ==============================================================
+ * VENTAS MENSUALES (rollups por proveedor)
+ * ==============================================================
+ * Cada orden guarda "periodo" = "yyyy-MM" (texto ordenable).
+ * Al confirmar/eliminar una orden se actualiza:
+ *
+ *   resumenProveedores/{proveedorId}/meses/{yyyy-MM}
+ *     { "periodo": "2025-11", "ventas": 185000, "ordenesConfirmadas": 14,
+ *       "backfilled": true }
+ *
+ * Así las ventas de cualquier mes se leen con UN documento (DashboardProveedor
+ * usa ventasDelMes), sin recorrer todo el historial ni guardar un mapa de
+ * meses que crezca sin límite dentro del resumen del proveedor.
+ */
+public final class VentasMensuales {
+
+    public static final String SUBCOLECCION = "meses";
+    public static final String PERIODO = "periodo";
+    public static final String VENTAS = "ventas";
+    public static final String ORDENES_CONFIRMADAS = "ordenesConfirmadas";
+
+    private VentasMensuales() {}
+
+    // 🔹 Periodo de una orden: campo "periodo" o, en órdenes antiguas, el mes de fechaCreacion
+    public static String periodoDe(Object periodo, Object fechaCreacion) {
+        if (periodo instanceof String && !((String) periodo).isEmpty()) return (String) periodo;
+        return ResumenProveedor.mesDe(fechaCreacion);
+    }
+
+    public static CollectionReference meses(FirebaseFirestore db, String proveedorId) {
+        return ResumenProveedor.ref(db, proveedorId).collection(SUBCOLECCION);
+    }
+
+    public static DocumentReference ref(FirebaseFirestore db, String proveedorId, String periodo) {
+        return meses(db, proveedorId).document(periodo);
+    }
+
+    // 🔹 Suma (o resta, con monto negativo) una orden confirmada al rollup del mes
+    public static void registrar(Transaction transaction, FirebaseFirestore db, String proveedorId,
+                                 String periodo, double monto, int ordenes) {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put(PERIODO, periodo);
+        datos.put(VENTAS, FieldValue.increment(monto));
+        datos.put(ORDENES_CONFIRMADAS, FieldValue.increment(ordenes));
+        transaction.set(ref(db, proveedorId, periodo), datos, SetOptions.merge());
+    }
+
+    // ==============================================================
+    // 🔹 Consultas
+    // ==============================================================
+
+    /*
+     * Ventas de un mes → 1 lectura.
+     *
+     * Mientras el rollup no tenga COMPLETO = true, le faltan las órdenes
+     * confirmadas antes de que existieran los rollups (en el mes del
+     * despliegue la primera confirmación crea el documento solo con su
+     * increment). Entonces se calcula una vez con sum() por rango de fecha:
+     *
+     *   1) se lee el rollup (ventas / ordenesConfirmadas que ya sumaron los increments)
+     *   2) sum() de las órdenes confirmadas del mes → incluye esas mismas órdenes
+     *      y las anteriores, así que el total del mes ES la suma
+     *   3) en una transacción: si el rollup no cambió desde 1) se guarda la
+     *      suma con COMPLETO = true; si entró otra confirmación en el medio
+     *      (no está segura en la suma) se vuelve a 1)
+     */
+    static final String COMPLETO = "backfilled";
+    private static final int INTENTOS_RELLENO = 3;
+
+    public static Task<Double> ventasDelMes(FirebaseFirestore db, String proveedorId, String periodo) {
+        return ventasDelMes(db, proveedorId, periodo, INTENTOS_RELLENO);
+    }
+
+    private static Task<Double> ventasDelMes(FirebaseFirestore db, String proveedorId, String periodo,
+                                             int intentos) {
+        DocumentReference mesRef = ref(db, proveedorId, periodo);
+
+        return mesRef.get().continueWithTask(t -> {
+            DocumentSnapshot leido = t.getResult();
+            double ventasLeidas = Decodificador.decimal(leido.get(VENTAS));
+            if (Boolean.TRUE.equals(leido.getBoolean(COMPLETO))) {
+                return Tasks.forResult(ventasLeidas);
+            }
+            long ordenesLeidas = Decodificador.numero(leido.get(ORDENES_CONFIRMADAS));
+
+            Timestamp[] rango = rangoDe(periodo);
+            return new EstadisticasService(db)
+                    .ventasEntre(proveedorId, rango[0], rango[1])
+                    .continueWithTask(suma -> db.runTransaction(transaction -> {
+                        DocumentSnapshot actual = transaction.get(mesRef);
+                        if (Boolean.TRUE.equals(actual.getBoolean(COMPLETO))) {
+                            return Decodificador.decimal(actual.get(VENTAS)); // lo rellenó otro
+                        }
+                        if (Decodificador.decimal(actual.get(VENTAS)) != ventasLeidas
+                                || Decodificador.numero(actual.get(ORDENES_CONFIRMADAS)) != ordenesLeidas) {
+                            return null; // hubo una confirmación entre la lectura y la suma
+                        }
+
+                        Map<String, Object> datos = new HashMap<>();
+                        datos.put(PERIODO, periodo);
+                        datos.put(VENTAS, suma.getResult().total);
+                        datos.put(ORDENES_CONFIRMADAS, suma.getResult().cantidad);
+                        datos.put(COMPLETO, true);
+                        transaction.set(mesRef, datos);
+                        return suma.getResult().total;
+                    }))
+                    .continueWithTask(r -> {
+                        Double ventas = r.getResult();
+                        if (ventas != null) return Tasks.forResult(ventas);
+                        if (intentos > 1) return ventasDelMes(db, proveedorId, periodo, intentos - 1);
+                        // Muchas confirmaciones seguidas: por ahora el rollup, se rellena la próxima vez
+                        return Tasks.forResult(ventasLeidas);
+                    });
+        });
+    }
+
+    // 🔹 [inicio del mes, inicio del mes siguiente) como Timestamps
+    static Timestamp[] rangoDe(String periodo) {
+        Calendar cal = Calendar.getInstance();
+        try {
+            cal.setTime(new SimpleDateFormat("yyyy-MM", Locale.US).parse(periodo));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Periodo inválido: " + periodo, e);
+        }
+        Timestamp inicio = new Timestamp(cal.getTime());
+        cal.add(Calendar.MONTH, 1);
+        return new Timestamp[] { inicio, new Timestamp(cal.getTime()) };
+    }
+}